@@ -5,6 +5,7 @@ import io.github.syferie.magicblock.block.BlockManager;
 import io.github.syferie.magicblock.command.CommandManager;
 import io.github.syferie.magicblock.command.handler.TabCompleter;
 import io.github.syferie.magicblock.config.ConfigCache;
+import io.github.syferie.magicblock.config.MaterialAccessCache;
 import io.github.syferie.magicblock.database.DatabaseManager;
 import io.github.syferie.magicblock.food.FoodManager;
 import io.github.syferie.magicblock.hook.PlaceholderHook;
@@ -12,9 +13,12 @@ import io.github.syferie.magicblock.listener.BlockListener;
 import io.github.syferie.magicblock.metrics.Metrics;
 import io.github.syferie.magicblock.util.MinecraftLangManager;
 import io.github.syferie.magicblock.util.Statistics;
+import io.github.syferie.magicblock.util.UsageAnalytics;
+import io.github.syferie.magicblock.util.UsageCounters;
 import io.github.syferie.magicblock.util.LanguageManager;
 import io.github.syferie.magicblock.block.BlockBindManager;
 import io.github.syferie.magicblock.util.UpdateChecker;
+import io.github.syferie.magicblock.manager.BlockLocationRegistry;
 import io.github.syferie.magicblock.manager.MagicBlockIndexManager;
 import io.github.syferie.magicblock.manager.FavoriteManager;
 import io.github.syferie.magicblock.manager.DataMigrationManager;
@@ -22,12 +26,12 @@ import io.github.syferie.magicblock.gui.FavoriteGUI;
 import io.github.syferie.magicblock.gui.GUIManager;
 import io.github.syferie.magicblock.util.DuplicateBlockDetector;
 import io.github.syferie.magicblock.util.ItemCreator;
+import io.github.syferie.magicblock.storage.StorageManager;
 
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
 import org.bukkit.command.CommandSender;
-import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.enchantments.Enchantment;
@@ -35,13 +39,14 @@ import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
 import org.bukkit.Bukkit;
 
 import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.HashMap;
 import java.util.UUID;
 import java.util.Map;
 import java.util.LinkedHashMap;
@@ -56,13 +61,17 @@ public class MagicBlockPlugin extends JavaPlugin {
     private FoodManager magicFood;
     private FileConfiguration foodConfig;
     private Statistics statistics;
-    private final HashMap<UUID, Integer> playerUsage = new HashMap<>();
+    private UsageAnalytics usageAnalytics;
+    // 每个玩家的方块/食物使用次数（统计、bStats 和 PlaceholderAPI 共用）
+    private final UsageCounters blockUsage = new UsageCounters();
+    private final UsageCounters foodUsage = new UsageCounters();
     private List<Material> allowedMaterials;
     private LanguageManager languageManager;
     private MinecraftLangManager minecraftLangManager;
     private FoliaLib foliaLib;
-    private DatabaseManager databaseManager;
+    private StorageManager storageManager;
     private MagicBlockIndexManager indexManager;
+    private BlockLocationRegistry blockLocationRegistry;
     private DuplicateBlockDetector duplicateDetector;
     private FavoriteManager favoriteManager;
     private FavoriteGUI favoriteGUI;
@@ -70,6 +79,18 @@ public class MagicBlockPlugin extends JavaPlugin {
     private ItemCreator itemCreator;
     private DataMigrationManager dataMigrationManager;
     private ConfigCache configCache;
+    private MaterialAccessCache materialAccessCache;
+
+    public MagicBlockPlugin() {
+        super();
+    }
+
+    /**
+     * 测试用构造方法，不经过服务端的插件加载器
+     */
+    protected MagicBlockPlugin(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+        super(loader, description, dataFolder, file);
+    }
 
     @Override
     public void onEnable() {
@@ -100,6 +121,7 @@ public class MagicBlockPlugin extends JavaPlugin {
         // 初始化允许的材料列表
         this.allowedMaterials = loadMaterialsFromConfig();
         getLogger().info("Loaded " + allowedMaterials.size() + " allowed materials");
+        this.materialAccessCache = new MaterialAccessCache(this, allowedMaterials);
 
         // 检查更新
         if(getConfig().getBoolean("check-updates")) {
@@ -114,6 +136,13 @@ public class MagicBlockPlugin extends JavaPlugin {
         // 初始化统计
         if(getConfig().getBoolean("enable-statistics")) {
             statistics = new Statistics(this);
+            storageManager.register(statistics);
+        }
+
+        // 初始化按时间窗口的使用分析
+        if(getConfig().getBoolean("analytics.enabled", true)) {
+            usageAnalytics = new UsageAnalytics(this);
+            storageManager.register(usageAnalytics);
         }
 
         saveDefaultConfig();
@@ -142,7 +171,7 @@ public class MagicBlockPlugin extends JavaPlugin {
 
         // 统计使用过魔法方块的玩家数量
         metrics.addCustomChart(new Metrics.SingleLineChart("unique_users", () ->
-            playerUsage.size()));
+            blockUsage.getPlayerCount()));
 
         // 统计使用的语言分布
         metrics.addCustomChart(new Metrics.SimplePie("language", () ->
@@ -157,22 +186,24 @@ public class MagicBlockPlugin extends JavaPlugin {
             String.valueOf(Bukkit.getPluginManager().getPlugin("PlaceholderAPI") != null)));
 
         // 统计总使用次数
-        metrics.addCustomChart(new Metrics.SingleLineChart("total_uses", () -> {
-            int total = 0;
-            for (int uses : playerUsage.values()) {
-                total += uses;
-            }
-            return total;
-        }));
+        metrics.addCustomChart(new Metrics.SingleLineChart("total_uses", () ->
+            (int) Math.min(Integer.MAX_VALUE, blockUsage.getTotal())));
 
         // 统计平均每个玩家的使用次数
-        metrics.addCustomChart(new Metrics.SimplePie("average_uses_per_player", () -> {
-            if (playerUsage.isEmpty()) return "0";
-            int total = 0;
-            for (int uses : playerUsage.values()) {
-                total += uses;
+        metrics.addCustomChart(new Metrics.SimplePie("average_uses_per_player", () ->
+            String.valueOf(blockUsage.getAverage())));
+
+        // 统计单个玩家的最高使用次数
+        metrics.addCustomChart(new Metrics.SingleLineChart("max_uses_per_player", () ->
+            (int) Math.min(Integer.MAX_VALUE, blockUsage.getMax())));
+
+        // 统计玩家使用次数的分布（直方图由计数器维护，无需遍历玩家）
+        metrics.addCustomChart(new Metrics.AdvancedPie("uses_per_player_distribution", () -> {
+            Map<String, Integer> distribution = new LinkedHashMap<>();
+            for (Map.Entry<String, Long> entry : blockUsage.getHistogram().entrySet()) {
+                distribution.put(entry.getKey(), (int) Math.min(Integer.MAX_VALUE, entry.getValue()));
             }
-            return String.valueOf(total / playerUsage.size());
+            return distribution;
         }));
 
         // 统计配置的默认使用次数范围
@@ -230,18 +261,14 @@ public class MagicBlockPlugin extends JavaPlugin {
 
     @Override
     public void onDisable() {
-        if (statistics != null) {
-            statistics.saveStats();
-        }
-
         // 取消所有FoliaLib任务
         if (foliaLib != null) {
             foliaLib.getScheduler().cancelAllTasks();
         }
 
-        // 关闭数据库连接
-        if (databaseManager != null) {
-            databaseManager.close();
+        // 写入所有数据（统计、收藏、绑定）并关闭存储
+        if (storageManager != null) {
+            storageManager.shutdown();
         }
 
         // 如果 languageManager 为 null，使用默认消息
@@ -260,21 +287,39 @@ public class MagicBlockPlugin extends JavaPlugin {
         }
     }
 
-    // 记录使用统计
+    // 记录方块使用统计
     public void logUsage(Player player, ItemStack block) {
+        blockUsage.increment(player.getUniqueId());
         if(statistics != null) {
             statistics.logBlockUse(player, block);
         }
+        if(usageAnalytics != null) {
+            usageAnalytics.record(UsageAnalytics.EventType.PLACE, block.getType(), player.getWorld());
+        }
+    }
+
+    // 记录食物使用统计
+    public void logFoodUsage(Player player, ItemStack food) {
+        foodUsage.increment(player.getUniqueId());
+        if(statistics != null) {
+            statistics.logFoodUse(player, food);
+        }
+        if(usageAnalytics != null) {
+            usageAnalytics.record(UsageAnalytics.EventType.EAT, food.getType(), player.getWorld());
+        }
     }
 
     // 获取玩家使用次数
     public int getPlayerUsage(UUID playerUUID) {
-        return playerUsage.getOrDefault(playerUUID, 0);
+        return (int) blockUsage.get(playerUUID);
     }
 
-    // 增加玩家使用次数
-    public void incrementPlayerUsage(UUID playerUUID) {
-        playerUsage.merge(playerUUID, 1, Integer::sum);
+    public UsageCounters getBlockUsage() {
+        return blockUsage;
+    }
+
+    public UsageCounters getFoodUsage() {
+        return foodUsage;
     }
 
     // 生成进度条
@@ -549,6 +594,7 @@ public class MagicBlockPlugin extends JavaPlugin {
         // 6. 重载允许的材料列表
         List<Material> newAllowedMaterials = loadMaterialsFromConfig();
         this.allowedMaterials = newAllowedMaterials;
+        materialAccessCache.reload(newAllowedMaterials);
         if (listener != null) {
             listener.setAllowedMaterials(newAllowedMaterials);
         }
@@ -560,6 +606,9 @@ public class MagicBlockPlugin extends JavaPlugin {
             listener.reloadGUIConfig();
             getLogger().info("✓ GUI配置已重载");
         }
+        if (favoriteGUI != null) {
+            favoriteGUI.reloadConfig();
+        }
         getLogger().info("✓ 允许材料列表已重载");
 
         // 7. 重载黑名单世界列表
@@ -581,6 +630,16 @@ public class MagicBlockPlugin extends JavaPlugin {
             getLogger().info("✓ 魔法方块索引已重载");
         }
 
+        // 10. 检查存储类型，变化时迁移数据并切换
+        if (storageManager != null) {
+            storageManager.reload();
+            getLogger().info("✓ 存储类型: " + storageManager.getStorageType());
+            DatabaseManager databaseManager = storageManager.getDatabaseManager();
+            if (databaseManager != null && databaseManager.getBindingCache() != null) {
+                debug(databaseManager.getBindingCache().getPerformanceStats());
+            }
+        }
+
         getLogger().info(languageManager.getMessage("general.materials-updated"));
         getLogger().info("插件配置重载完成！");
     }
@@ -591,9 +650,11 @@ public class MagicBlockPlugin extends JavaPlugin {
         if (enableStats && statistics == null) {
             // 如果配置启用统计但当前没有统计实例，创建新的
             statistics = new Statistics(this);
+            storageManager.register(statistics);
             getLogger().info("✓ 统计系统已启用");
         } else if (!enableStats && statistics != null) {
             // 如果配置禁用统计但当前有统计实例，保存并清理
+            storageManager.unregister(statistics);
             statistics.saveStats();
             statistics = null;
             getLogger().info("✓ 统计系统已禁用");
@@ -616,24 +677,22 @@ public class MagicBlockPlugin extends JavaPlugin {
         }
     }
 
+    /**
+     * 获取玩家可用的材料（包括权限组材料），返回的列表不可修改
+     */
     public List<Material> getAllowedMaterialsForPlayer(Player player) {
-        List<Material> playerMaterials = new ArrayList<>(loadMaterialsFromConfig());
-
-        ConfigurationSection groups = getConfig().getConfigurationSection("group");
-        if (groups != null) {
-            for (String key : groups.getKeys(false)) {
-                if (player.hasPermission("magicblock.group." + key)) {
-                    List<String> groupMaterials = groups.getStringList(key);
-                    for (String materialName : groupMaterials) {
-                        Material mat = Material.getMaterial(materialName);
-                        if (mat != null && !playerMaterials.contains(mat)) {
-                            playerMaterials.add(mat);
-                        }
-                    }
-                }
-            }
-        }
-        return playerMaterials;
+        return materialAccessCache.getMaterials(player);
+    }
+
+    /**
+     * 在玩家可用的材料中搜索，返回的列表不可修改
+     */
+    public List<Material> searchAllowedMaterials(Player player, String query) {
+        return materialAccessCache.search(player, query);
+    }
+
+    public boolean isMaterialAllowedForPlayer(Player player, Material material) {
+        return materialAccessCache.isAllowed(player, material);
     }
 
     private void initializeConfig() {
@@ -663,6 +722,9 @@ public class MagicBlockPlugin extends JavaPlugin {
         // 初始化魔法方块索引管理器（必须在 BlockListener 之前初始化）
         this.indexManager = new MagicBlockIndexManager(this);
 
+        // 初始化方块位置登记表（取回方块时只访问已知位置）
+        this.blockLocationRegistry = new BlockLocationRegistry(this);
+
         this.listener = new BlockListener(this, allowedMaterials);
         this.magicFood = new FoodManager(this);
         this.blacklistedWorlds = getConfig().getStringList("blacklisted-worlds");
@@ -675,14 +737,6 @@ public class MagicBlockPlugin extends JavaPlugin {
             debug("防刷检测器已禁用");
         }
 
-        // 初始化数据库管理器
-        if (getConfig().getBoolean("database.enabled", false)) {
-            this.databaseManager = new DatabaseManager(this);
-            if (this.databaseManager.isEnabled()) {
-                this.blockBindManager.setDatabaseManager(this.databaseManager);
-            }
-        }
-
         // 初始化工具类
         this.itemCreator = new ItemCreator(this);
 
@@ -702,8 +756,13 @@ public class MagicBlockPlugin extends JavaPlugin {
             }
         }
 
+        // 初始化存储（必须在 YAML -> JSON 迁移之后，非文件存储会导入 JSON 数据）
+        this.storageManager = new StorageManager(this);
+        this.storageManager.initialize();
+
         // 初始化收藏管理器
         this.favoriteManager = new FavoriteManager(this);
+        this.storageManager.register(favoriteManager);
 
         // 初始化GUI
         this.favoriteGUI = new FavoriteGUI(this, favoriteManager);
@@ -732,6 +791,9 @@ public class MagicBlockPlugin extends JavaPlugin {
             debug("魔法方块索引管理器事件已注册");
         }
 
+        getServer().getPluginManager().registerEvents(blockLocationRegistry, this);
+        getServer().getPluginManager().registerEvents(favoriteManager, this);
+
         // 🔧 修复：添加空值检查，防止命令注册失败
         org.bukkit.command.PluginCommand magicBlockCommand = getCommand("magicblock");
         if (magicBlockCommand != null) {
@@ -789,16 +851,28 @@ public class MagicBlockPlugin extends JavaPlugin {
         return statistics;
     }
 
+    public UsageAnalytics getUsageAnalytics() {
+        return usageAnalytics;
+    }
+
     public MagicBlockIndexManager getIndexManager() {
         return indexManager;
     }
 
+    public BlockLocationRegistry getBlockLocationRegistry() {
+        return blockLocationRegistry;
+    }
+
     public DuplicateBlockDetector getDuplicateDetector() {
         return duplicateDetector;
     }
 
     public DatabaseManager getDatabaseManager() {
-        return databaseManager;
+        return storageManager != null ? storageManager.getDatabaseManager() : null;
+    }
+
+    public StorageManager getStorageManager() {
+        return storageManager;
     }
 
     public FavoriteManager getFavoriteManager() {
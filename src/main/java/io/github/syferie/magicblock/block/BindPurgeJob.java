@@ -0,0 +1,246 @@
+package io.github.syferie.magicblock.block;
+
+import io.github.syferie.magicblock.MagicBlockPlugin;
+import io.github.syferie.magicblock.manager.BlockLocationRegistry;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.Container;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Item;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 绑定方块清理任务
+ * 登记表可能不完整时，在取回方块后分多个tick扫描所有世界中已加载的区块，移除残留的同ID方块：
+ * - 取回时新方块带有本次取回的随机标记，只保留标记相同的方块，其余同ID方块都视为残留
+ * - 每个区块的容器/掉落物扫描派发到区块所属的区域线程执行（Folia）
+ * - 每批区块扫描完成后按实际耗时调整下一批数量，使每tick耗时不超过预算
+ * - 向玩家报告进度和结果
+ */
+public class BindPurgeJob {
+
+    private static final long PROGRESS_INTERVAL_MS = 2000L;
+
+    private final MagicBlockPlugin plugin;
+    private final UUID ownerId;
+    private final String blockId;
+    private final String keepNonce;
+    private final NamespacedKey nonceKey;
+    private final Deque<ChunkRef> chunks = new ArrayDeque<>();
+    private final int totalChunks;
+    private final long budgetNanos;
+
+    private final AtomicInteger pendingScans = new AtomicInteger(0);
+    private final AtomicLong batchNanos = new AtomicLong(0);
+    private final AtomicInteger removed = new AtomicInteger(0);
+
+    private int batchSize = 1;
+    private long lastProgressTime;
+    private volatile boolean cancelled;
+
+    /**
+     * 待扫描的区块坐标
+     */
+    private static final class ChunkRef {
+        final World world;
+        final int x;
+        final int z;
+
+        ChunkRef(World world, int x, int z) {
+            this.world = world;
+            this.x = x;
+            this.z = z;
+        }
+    }
+
+    /**
+     * @param keepNonce 本次取回写入新方块的标记，带有该标记的方块不会被清理
+     */
+    public BindPurgeJob(MagicBlockPlugin plugin, Player owner, String blockId, String keepNonce) {
+        this.plugin = plugin;
+        this.ownerId = owner.getUniqueId();
+        this.blockId = blockId;
+        this.keepNonce = keepNonce;
+        this.nonceKey = new NamespacedKey(plugin, BlockBindManager.RETRIEVE_NONCE_KEY);
+        this.budgetNanos = Math.max(1L, plugin.getConfig().getLong("performance.retrieve-purge.time-budget-ms", 2L)) * 1_000_000L;
+
+        for (World world : Bukkit.getWorlds()) {
+            for (Chunk chunk : world.getLoadedChunks()) {
+                chunks.add(new ChunkRef(world, chunk.getX(), chunk.getZ()));
+            }
+        }
+        this.totalChunks = chunks.size();
+    }
+
+    public String getBlockId() {
+        return blockId;
+    }
+
+    /**
+     * 开始执行：先清理在线玩家（包括主人）背包中的残留方块，再逐批扫描区块
+     */
+    public void start() {
+        lastProgressTime = System.currentTimeMillis();
+        Player owner = Bukkit.getPlayer(ownerId);
+        if (owner != null) {
+            plugin.sendMessage(owner, "messages.retrieve-purge-started", totalChunks);
+        }
+
+        BlockLocationRegistry registry = plugin.getBlockLocationRegistry();
+        for (Player target : Bukkit.getOnlinePlayers()) {
+            plugin.getFoliaLib().getScheduler().runAtEntity(target, task -> {
+                if (cancelled) return;
+                int count = removeFromInventory(target.getInventory());
+                if (count > 0) {
+                    removed.addAndGet(count);
+                    if (!target.getUniqueId().equals(ownerId)) {
+                        plugin.sendMessage(target, "messages.block-removed-by-owner");
+                    }
+                    registry.trackPlayer(target);
+                }
+            });
+        }
+
+        plugin.getFoliaLib().getScheduler().runLater(this::tick, 1L);
+    }
+
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    /**
+     * 每tick调度：上一批全部完成后，按耗时调整批量并派发下一批
+     */
+    private void tick() {
+        if (cancelled) return;
+
+        if (pendingScans.get() > 0) {
+            plugin.getFoliaLib().getScheduler().runLater(this::tick, 1L);
+            return;
+        }
+
+        long spent = batchNanos.getAndSet(0);
+        if (spent > budgetNanos) {
+            batchSize = Math.max(1, batchSize / 2);
+        } else if (spent < budgetNanos / 2) {
+            batchSize = Math.min(batchSize * 2, 256);
+        }
+
+        if (chunks.isEmpty()) {
+            complete();
+            return;
+        }
+
+        reportProgress();
+
+        int dispatched = 0;
+        pendingScans.set(Math.min(batchSize, chunks.size()));
+        while (dispatched < batchSize && !chunks.isEmpty()) {
+            ChunkRef ref = chunks.poll();
+            Location location = new Location(ref.world, (ref.x << 4) + 8, 64, (ref.z << 4) + 8);
+            plugin.getFoliaLib().getScheduler().runAtLocation(location, task -> {
+                try {
+                    if (!cancelled) {
+                        long start = System.nanoTime();
+                        scanChunk(ref);
+                        batchNanos.addAndGet(System.nanoTime() - start);
+                    }
+                } finally {
+                    pendingScans.decrementAndGet();
+                }
+            });
+            dispatched++;
+        }
+
+        plugin.getFoliaLib().getScheduler().runLater(this::tick, 1L);
+    }
+
+    /**
+     * 在区块所属线程扫描容器和掉落物，不加载未加载的区块
+     */
+    private void scanChunk(ChunkRef ref) {
+        if (!ref.world.isChunkLoaded(ref.x, ref.z)) return;
+        Chunk chunk = ref.world.getChunkAt(ref.x, ref.z);
+        BlockLocationRegistry registry = plugin.getBlockLocationRegistry();
+
+        for (BlockState state : chunk.getTileEntities()) {
+            if (!(state instanceof Container)) continue;
+            Inventory inventory = ((Container) state).getInventory();
+            int count = removeFromInventory(inventory);
+            if (count > 0) {
+                removed.addAndGet(count);
+                registry.trackContainer(state.getLocation(), inventory);
+            }
+        }
+
+        for (Entity entity : chunk.getEntities()) {
+            if (!(entity instanceof Item)) continue;
+            if (isLeftover(((Item) entity).getItemStack())) {
+                registry.untrack(BlockLocationRegistry.Holder.item((Item) entity));
+                entity.remove();
+                removed.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 是否为残留方块：同ID且不带本次取回的标记
+     */
+    private boolean isLeftover(ItemStack item) {
+        if (!blockId.equals(plugin.getBlockLocationRegistry().getBlockId(item))) return false;
+        ItemMeta meta = item.getItemMeta();
+        return meta == null || !keepNonce.equals(meta.getPersistentDataContainer().get(nonceKey, PersistentDataType.STRING));
+    }
+
+    private int removeFromInventory(Inventory inventory) {
+        int count = 0;
+        ItemStack[] contents = inventory.getContents();
+        for (int i = 0; i < contents.length; i++) {
+            if (isLeftover(contents[i])) {
+                inventory.setItem(i, null);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void reportProgress() {
+        long now = System.currentTimeMillis();
+        if (now - lastProgressTime < PROGRESS_INTERVAL_MS) return;
+        lastProgressTime = now;
+
+        Player owner = Bukkit.getPlayer(ownerId);
+        if (owner != null) {
+            int scanned = totalChunks - chunks.size();
+            int percent = totalChunks == 0 ? 100 : scanned * 100 / totalChunks;
+            plugin.getFoliaLib().getScheduler().runAtEntity(owner, task ->
+                plugin.sendMessage(owner, "messages.retrieve-purge-progress", percent, scanned, totalChunks));
+        }
+    }
+
+    private void complete() {
+        plugin.getBlockBindManager().onPurgeComplete(this);
+        plugin.debug(String.format("绑定方块清理完成 - ID: %s, 扫描区块: %d, 移除: %d",
+            blockId, totalChunks, removed.get()));
+
+        Player owner = Bukkit.getPlayer(ownerId);
+        if (owner != null) {
+            plugin.getFoliaLib().getScheduler().runAtEntity(owner, task ->
+                plugin.sendMessage(owner, "messages.retrieve-purge-complete", removed.get()));
+        }
+    }
+}
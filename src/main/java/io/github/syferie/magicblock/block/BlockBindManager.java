@@ -1,168 +1,51 @@
 package io.github.syferie.magicblock.block;
 
 import io.github.syferie.magicblock.MagicBlockPlugin;
-import io.github.syferie.magicblock.database.DatabaseManager;
+import io.github.syferie.magicblock.gui.BindListGUI;
+import io.github.syferie.magicblock.manager.BlockLocationRegistry;
+import io.github.syferie.magicblock.storage.DataStorage;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.NamespacedKey;
-import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.configuration.file.FileConfiguration;
-import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.persistence.PersistentDataContainer;
 import org.bukkit.persistence.PersistentDataType;
-import org.bukkit.Chunk;
+import org.bukkit.Location;
 import org.bukkit.block.BlockState;
 import org.bukkit.block.Container;
+import org.bukkit.entity.Item;
 
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
-
 public class BlockBindManager {
+    // 每次取回写入新方块的随机标记，清理任务据此区分新方块和残留方块
+    static final String RETRIEVE_NONCE_KEY = "retrieve_nonce";
+
     private final MagicBlockPlugin plugin;
     private final NamespacedKey bindKey;
-    private final File bindFile;
-    private final File bindJsonFile;
-    private FileConfiguration bindConfig;
-    private final Gson gson;
+    private final NamespacedKey retrieveNonceKey;
     private final Map<UUID, Map<String, Long>> lastClickTimes = new HashMap<>();
     private static final long DOUBLE_CLICK_TIME = 500; // 双击时间窗口（毫秒）
-    private DatabaseManager databaseManager;
+    private final Map<String, BindPurgeJob> activePurges = new ConcurrentHashMap<>();
 
     public BlockBindManager(MagicBlockPlugin plugin) {
         this.plugin = plugin;
         this.bindKey = new NamespacedKey(plugin, "magicblock_bind");
-        this.bindFile = new File(plugin.getDataFolder(), "bindings.yml");
-        this.bindJsonFile = new File(plugin.getDataFolder(), "bindings.json");
-        this.gson = new GsonBuilder().setPrettyPrinting().create();
-        loadBindConfig();
+        this.retrieveNonceKey = new NamespacedKey(plugin, RETRIEVE_NONCE_KEY);
     }
 
     /**
-     * 设置数据库管理器
-     * @param databaseManager 数据库管理器实例
+     * 获取当前使用的存储后端
      */
-    public void setDatabaseManager(DatabaseManager databaseManager) {
-        this.databaseManager = databaseManager;
-
-        // 如果数据库已启用且配置文件存在，则迁移数据
-        if (databaseManager != null && databaseManager.isEnabled() && bindFile.exists()) {
-            databaseManager.migrateFromFile(bindConfig);
-        }
-    }
-
-    private void loadBindConfig() {
-        // 检查是否存在JSON文件
-        if (bindJsonFile.exists()) {
-            // 优先使用JSON文件
-            try (FileReader reader = new FileReader(bindJsonFile)) {
-                plugin.debug("使用JSON文件加载绑定数据");
-                // 创建空的YAML配置以兼容旧代码
-                if (!bindFile.exists()) {
-                    try {
-                        bindFile.createNewFile();
-                    } catch (IOException e) {
-                        plugin.getLogger().warning("无法创建绑定配置文件: " + e.getMessage());
-                    }
-                }
-                bindConfig = YamlConfiguration.loadConfiguration(bindFile);
-            } catch (IOException e) {
-                plugin.getLogger().warning("无法读取JSON绑定文件: " + e.getMessage());
-                // 回退到YAML文件
-                loadYamlBindConfig();
-            }
-        } else {
-            // 使用YAML文件
-            loadYamlBindConfig();
-        }
-    }
-
-    private void loadYamlBindConfig() {
-        if (!bindFile.exists()) {
-            try {
-                bindFile.createNewFile();
-            } catch (IOException e) {
-                plugin.getLogger().warning("无法创建绑定配置文件: " + e.getMessage());
-            }
-        }
-        bindConfig = YamlConfiguration.loadConfiguration(bindFile);
-        plugin.debug("使用YAML文件加载绑定数据");
-    }
-
-    public FileConfiguration getBindConfig() {
-        return bindConfig;
-    }
-
-    public void saveBindConfig() {
-        // 检查是否应该使用JSON存储
-        if (bindJsonFile.exists()) {
-            saveBindConfigToJson();
-        } else {
-            // 使用YAML存储
-            try {
-                bindConfig.save(bindFile);
-                plugin.debug("绑定数据已保存到YAML文件");
-            } catch (IOException e) {
-                plugin.getLogger().warning("无法保存绑定配置到YAML: " + e.getMessage());
-            }
-        }
-    }
-
-    private void saveBindConfigToJson() {
-        try {
-            // 从YAML配置转换为JSON格式
-            Map<String, Object> jsonData = new HashMap<>();
-
-            // 获取所有玩家UUID
-            ConfigurationSection bindingsSection = bindConfig.getConfigurationSection("bindings");
-            if (bindingsSection != null) {
-                for (String uuid : bindingsSection.getKeys(false)) {
-                    ConfigurationSection playerSection = bindingsSection.getConfigurationSection(uuid);
-                    if (playerSection != null) {
-                        Map<String, Object> playerData = new HashMap<>();
-
-                        // 获取玩家的所有绑定方块
-                        for (String blockId : playerSection.getKeys(false)) {
-                            ConfigurationSection blockSection = playerSection.getConfigurationSection(blockId);
-                            if (blockSection != null) {
-                                Map<String, Object> blockData = new HashMap<>();
-
-                                // 复制所有方块数据
-                                for (String key : blockSection.getKeys(false)) {
-                                    blockData.put(key, blockSection.get(key));
-                                }
-
-                                playerData.put(blockId, blockData);
-                            }
-                        }
-
-                        jsonData.put(uuid, playerData);
-                    }
-                }
-            }
-
-            // 写入JSON文件
-            try (FileWriter writer = new FileWriter(bindJsonFile)) {
-                gson.toJson(jsonData, writer);
-                plugin.debug("绑定数据已保存到JSON文件");
-            }
-
-        } catch (IOException e) {
-            plugin.getLogger().warning("无法保存绑定配置到JSON: " + e.getMessage());
-        }
+    private DataStorage storage() {
+        return plugin.getStorageManager().getStorage();
     }
 
     public String getBindLorePrefix() {
@@ -236,24 +119,7 @@ public class BlockBindManager {
         item.setItemMeta(meta);
 
         // 保存绑定数据
-        if (databaseManager != null && databaseManager.isEnabled()) {
-            // 使用数据库存储
-            databaseManager.saveBinding(
-                player.getUniqueId(),
-                player.getName(),
-                itemId,
-                item.getType().name(),
-                currentUses,
-                maxUses
-            );
-        } else {
-            // 使用文件存储
-            String path = "bindings." + uuid + "." + itemId;
-            bindConfig.set(path + ".material", item.getType().name());
-            bindConfig.set(path + ".uses", currentUses);
-            bindConfig.set(path + ".max_uses", maxUses);
-            saveBindConfig();
-        }
+        storage().saveBinding(player.getUniqueId(), itemId, item.getType().name(), currentUses, maxUses);
 
         plugin.sendMessage(player, "messages.bind-success");
     }
@@ -278,28 +144,8 @@ public class BlockBindManager {
         int currentUses = plugin.getBlockManager().getUseTimes(item);
         int maxUses = plugin.getBlockManager().getMaxUseTimes(item);
 
-        if (databaseManager != null && databaseManager.isEnabled()) {
-            // 使用数据库更新
-            databaseManager.updateBinding(
-                boundPlayer,
-                blockId,
-                item.getType().name(),
-                currentUses,
-                maxUses
-            );
-        } else {
-            // 使用文件更新
-            String path = "bindings." + boundPlayer.toString() + "." + blockId;
-            if (bindConfig.contains(path)) {
-                // 更新材质
-                bindConfig.set(path + ".material", item.getType().name());
-                // 同步当前使用次数
-                bindConfig.set(path + ".uses", currentUses);
-                // 同步最大使用次数
-                bindConfig.set(path + ".max_uses", maxUses);
-                saveBindConfig();
-            }
-        }
+        // 同步材质、当前使用次数和最大使用次数
+        storage().updateBinding(boundPlayer, blockId, item.getType().name(), currentUses, maxUses);
     }
 
     public boolean isBlockBound(ItemStack item) {
@@ -317,66 +163,62 @@ public class BlockBindManager {
         return uuid != null ? UUID.fromString(uuid) : null;
     }
 
+    /**
+     * 打开绑定方块列表
+     * 在玩家线程上一次遍历背包记录实际使用次数，存储查询和对账在异步线程执行，
+     * 完成后回到玩家线程按快照分页显示
+     */
     public void openBindList(Player player) {
         UUID playerUUID = player.getUniqueId();
-        String uuid = playerUUID.toString();
-        Map<String, Map<String, Object>> bindings;
-
-        // 清理使用次数为0的方块
-        if (databaseManager != null && databaseManager.isEnabled()) {
-            databaseManager.cleanupZeroUsageBlocks(playerUUID);
-            bindings = databaseManager.getPlayerBindings(playerUUID);
 
-            if (bindings.isEmpty()) {
-                plugin.sendMessage(player, "messages.no-bound-blocks");
-                return;
-            }
-        } else {
-            if (!bindConfig.contains("bindings." + uuid)) {
-                plugin.sendMessage(player, "messages.no-bound-blocks");
-                return;
-            }
-
-            // 清理使用次数为0的方块
-            Set<String> blocks = Objects.requireNonNull(bindConfig.getConfigurationSection("bindings." + uuid)).getKeys(false);
-            for (String blockId : new ArrayList<>(blocks)) {
-                removeZeroUsageBlocks(uuid, blockId);
+        // blockId -> {使用次数, 最大使用次数}，同一ID以背包中第一个为准
+        Map<String, int[]> inventoryUses = new HashMap<>();
+        for (ItemStack item : player.getInventory().getContents()) {
+            String blockId = plugin.getBlockLocationRegistry().getBlockId(item);
+            if (blockId != null && !inventoryUses.containsKey(blockId)
+                    && isBlockBound(item) && plugin.getBlockManager().isMagicBlock(item)) {
+                inventoryUses.put(blockId, new int[]{
+                    plugin.getBlockManager().getUseTimes(item),
+                    plugin.getBlockManager().getMaxUseTimes(item)
+                });
             }
+        }
 
-            // 重新检查是否还有绑定的方块
-            if (!bindConfig.contains("bindings." + uuid) ||
-                bindConfig.getConfigurationSection("bindings." + uuid).getKeys(false).isEmpty()) {
-                plugin.sendMessage(player, "messages.no-bound-blocks");
+        plugin.getFoliaLib().getScheduler().runAsync(task -> {
+            List<BindListGUI.Entry> entries;
+            try {
+                entries = loadBindList(playerUUID, inventoryUses);
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.SEVERE, "加载绑定列表失败: " + playerUUID, e);
                 return;
             }
 
-            // 从文件中构建绑定数据
-            bindings = new HashMap<>();
-            blocks = Objects.requireNonNull(bindConfig.getConfigurationSection("bindings." + uuid)).getKeys(false);
-            for (String blockId : blocks) {
-                String path = "bindings." + uuid + "." + blockId;
-                if (bindConfig.getBoolean(path + ".hidden", false)) {
-                    continue;
+            plugin.getFoliaLib().getScheduler().runAtEntity(player, t -> {
+                if (!player.isOnline()) return;
+                if (entries.isEmpty()) {
+                    plugin.sendMessage(player, "messages.no-bound-blocks");
+                    return;
                 }
+                plugin.getGuiManager().getBindListGUI().open(player, entries);
+            });
+        });
+    }
 
-                Map<String, Object> blockData = new HashMap<>();
-                blockData.put("material", bindConfig.getString(path + ".material"));
-                blockData.put("uses", bindConfig.getInt(path + ".uses"));
-                blockData.put("max_uses", bindConfig.getInt(path + ".max_uses"));
-                blockData.put("hidden", bindConfig.getBoolean(path + ".hidden", false));
-
-                bindings.put(blockId, blockData);
-            }
-        }
+    /**
+     * 查询玩家的绑定并与背包中的实际使用次数对账（异步线程调用）
+     *
+     * @param inventoryUses 背包中绑定方块的实际使用次数
+     * @return 列表中可见的绑定，不可修改
+     */
+    private List<BindListGUI.Entry> loadBindList(UUID playerUUID, Map<String, int[]> inventoryUses) {
+        DataStorage storage = storage();
 
-        String guiTitle = ChatColor.translateAlternateColorCodes('&',
-            plugin.getConfig().getString("gui.text.bound-blocks-title", "&8⚡ &b已绑定方块"));
-        Inventory gui = Bukkit.createInventory(null, 54, guiTitle);
+        // 清理使用次数为0的方块
+        storage.deleteDepletedBindings(playerUUID);
+        Map<String, Map<String, Object>> bindings = storage.getPlayerBindings(playerUUID);
 
-        int slot = 0;
+        List<BindListGUI.Entry> entries = new ArrayList<>(bindings.size());
         for (Map.Entry<String, Map<String, Object>> entry : bindings.entrySet()) {
-            if (slot >= 54) break;
-
             String blockId = entry.getKey();
             Map<String, Object> blockData = entry.getValue();
 
@@ -385,83 +227,68 @@ public class BlockBindManager {
                 continue;
             }
 
-            Material material = Material.valueOf((String) blockData.get("material"));
+            Material material = Material.getMaterial((String) blockData.get("material"));
+            if (material == null) {
+                plugin.debug("绑定方块材质无效，已跳过: " + blockId + " -> " + blockData.get("material"));
+                continue;
+            }
 
-            // 尝试从玩家背包中找到对应的方块以获取实际使用次数
             int uses = (int) blockData.get("uses");
             int maxUses = (int) blockData.get("max_uses");
 
-            // 查找玩家背包中的对应方块
-            for (ItemStack item : player.getInventory().getContents()) {
-                if (item != null && plugin.getBlockManager().isMagicBlock(item) && isBlockBound(item)) {
-                    ItemMeta meta = item.getItemMeta();
-                    if (meta != null) {
-                        String itemBlockId = meta.getPersistentDataContainer().get(
-                            new NamespacedKey(plugin, "block_id"),
-                            PersistentDataType.STRING
-                        );
-                        if (blockId.equals(itemBlockId)) {
-                            // 使用实际的使用次数
-                            uses = plugin.getBlockManager().getUseTimes(item);
-                            maxUses = plugin.getBlockManager().getMaxUseTimes(item);
-
-                            // 更新数据
-                            if (databaseManager != null && databaseManager.isEnabled()) {
-                                databaseManager.updateBinding(playerUUID, blockId, material.name(), uses, maxUses);
-                            } else {
-                                String path = "bindings." + uuid + "." + blockId;
-                                bindConfig.set(path + ".uses", uses);
-                                bindConfig.set(path + ".max_uses", maxUses);
-                                saveBindConfig();
-                            }
-                            break;
-                        }
-                    }
-                }
+            // 背包中有对应方块时使用实际的使用次数，只在不一致时写回
+            int[] actual = inventoryUses.get(blockId);
+            if (actual != null && (actual[0] != uses || actual[1] != maxUses)) {
+                uses = actual[0];
+                maxUses = actual[1];
+                storage.updateBinding(playerUUID, blockId, material.name(), uses, maxUses);
             }
 
             // 如果使用次数为0，跳过这个方块
             if (uses <= 0) {
-                if (databaseManager != null && databaseManager.isEnabled()) {
-                    databaseManager.deleteBinding(playerUUID, blockId);
-                } else {
-                    removeZeroUsageBlocks(uuid, blockId);
-                }
+                storage.deleteBinding(playerUUID, blockId);
                 continue;
             }
 
-            ItemStack displayItem = new ItemStack(material, 1);
-            ItemMeta meta = displayItem.getItemMeta();
-            if (meta != null) {
-                meta.setDisplayName(ChatColor.AQUA + plugin.getMinecraftLangManager().getItemStackName(displayItem));
-                List<String> lore = new ArrayList<>();
-                lore.add(plugin.getMagicLore());
-                lore.add(getBindLorePrefix() + player.getName());
-                lore.add("");
-                String remainingUsesText = ChatColor.translateAlternateColorCodes('&',
-                    plugin.getConfig().getString("gui.text.remaining-uses", "剩余使用次数: "));
-                lore.add(ChatColor.GRAY + remainingUsesText + ChatColor.YELLOW + uses + ChatColor.GRAY + "/" + ChatColor.YELLOW + maxUses);
-                lore.add("");
-                // 使用配置文件中的提示文本
-                lore.add(ChatColor.translateAlternateColorCodes('&',
-                    plugin.getConfig().getString("gui.text.retrieve-block", "&a▸ &7左键点击取回此方块")));
-                lore.add(ChatColor.translateAlternateColorCodes('&',
-                    plugin.getConfig().getString("gui.text.remove-block", "&c▸ &7右键点击从列表中隐藏")));
-                lore.add(ChatColor.translateAlternateColorCodes('&',
-                    plugin.getConfig().getString("gui.text.remove-block-note", "&8• &7(仅从列表隐藏，绑定关系保持)")));
-                meta.setLore(lore);
-                meta.getPersistentDataContainer().set(bindKey, PersistentDataType.STRING, uuid);
-                meta.getPersistentDataContainer().set(
-                    new NamespacedKey(plugin, "block_id"),
-                    PersistentDataType.STRING,
-                    blockId
-                );
-                displayItem.setItemMeta(meta);
-            }
-            gui.setItem(slot++, displayItem);
+            entries.add(new BindListGUI.Entry(blockId, material, uses, maxUses));
         }
+        return Collections.unmodifiableList(entries);
+    }
 
-        player.openInventory(gui);
+    /**
+     * 创建绑定列表中的显示物品
+     */
+    public ItemStack createListItem(Player player, BindListGUI.Entry entry) {
+        ItemStack displayItem = new ItemStack(entry.getMaterial(), 1);
+        ItemMeta meta = displayItem.getItemMeta();
+        if (meta != null) {
+            meta.setDisplayName(ChatColor.AQUA + plugin.getMinecraftLangManager().getItemStackName(displayItem));
+            List<String> lore = new ArrayList<>();
+            lore.add(plugin.getMagicLore());
+            lore.add(getBindLorePrefix() + player.getName());
+            lore.add("");
+            String remainingUsesText = ChatColor.translateAlternateColorCodes('&',
+                plugin.getConfig().getString("gui.text.remaining-uses", "剩余使用次数: "));
+            lore.add(ChatColor.GRAY + remainingUsesText + ChatColor.YELLOW + entry.getUses()
+                + ChatColor.GRAY + "/" + ChatColor.YELLOW + entry.getMaxUses());
+            lore.add("");
+            // 使用配置文件中的提示文本
+            lore.add(ChatColor.translateAlternateColorCodes('&',
+                plugin.getConfig().getString("gui.text.retrieve-block", "&a▸ &7左键点击取回此方块")));
+            lore.add(ChatColor.translateAlternateColorCodes('&',
+                plugin.getConfig().getString("gui.text.remove-block", "&c▸ &7右键点击从列表中隐藏")));
+            lore.add(ChatColor.translateAlternateColorCodes('&',
+                plugin.getConfig().getString("gui.text.remove-block-note", "&8• &7(仅从列表隐藏，绑定关系保持)")));
+            meta.setLore(lore);
+            meta.getPersistentDataContainer().set(bindKey, PersistentDataType.STRING, player.getUniqueId().toString());
+            meta.getPersistentDataContainer().set(
+                new NamespacedKey(plugin, "block_id"),
+                PersistentDataType.STRING,
+                entry.getBlockId()
+            );
+            displayItem.setItemMeta(meta);
+        }
+        return displayItem;
     }
 
     public void retrieveBlock(Player player, ItemStack displayItem) {
@@ -484,81 +311,44 @@ public class BlockBindManager {
         if (blockId == null) return;
 
         Material blockType = displayItem.getType();
-        int uses;
-        int maxUses;
-
-        // 从数据库或配置文件获取使用次数信息
-        if (databaseManager != null && databaseManager.isEnabled()) {
-            Map<String, Object> blockData = databaseManager.getBlockBinding(blockId);
-            if (blockData == null) return;
-
-            uses = (int) blockData.get("uses");
-            maxUses = (int) blockData.get("max_uses");
-        } else {
-            String uuid = player.getUniqueId().toString();
-            String path = "bindings." + uuid + "." + blockId;
-            if (!bindConfig.contains(path)) return;
-
-            uses = bindConfig.getInt(path + ".uses");
-            maxUses = bindConfig.getInt(path + ".max_uses", uses);
-        }
+        UUID playerUUID = player.getUniqueId();
 
-        // 清理所有相同的绑定方块
-        // 1. 清理在线玩家背包中的方块
-        for (Player onlinePlayer : Bukkit.getOnlinePlayers()) {
-            ItemStack[] contents = onlinePlayer.getInventory().getContents();
-            for (int i = 0; i < contents.length; i++) {
-                ItemStack item = contents[i];
-                if (isSameBoundBlock(item, player.getUniqueId(), blockType)) {
-                    onlinePlayer.getInventory().setItem(i, null);
-                    if (!onlinePlayer.equals(player)) {
-                        plugin.sendMessage(onlinePlayer, "messages.block-removed-by-owner");
-                    }
-                }
+        // 存储查询在异步线程执行，完成后回到玩家线程给予方块
+        plugin.getFoliaLib().getScheduler().runAsync(task -> {
+            Map<String, Object> blockData;
+            try {
+                blockData = storage().getBinding(playerUUID, blockId);
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.SEVERE, "读取绑定数据失败: " + blockId, e);
+                return;
             }
-        }
+            if (blockData == null) return;
 
-        // 2. 清理掉落在地上的方块
-        player.getWorld().getEntities().stream()
-            .filter(entity -> entity instanceof org.bukkit.entity.Item)
-            .map(entity -> (org.bukkit.entity.Item) entity)
-            .forEach(item -> {
-                ItemStack itemStack = item.getItemStack();
-                if (isSameBoundBlock(itemStack, player.getUniqueId(), blockType)) {
-                    item.remove();
-                }
+            int uses = (int) blockData.get("uses");
+            int maxUses = (int) blockData.getOrDefault("max_uses", uses);
+            plugin.getFoliaLib().getScheduler().runAtEntity(player, t -> {
+                if (!player.isOnline()) return;
+                giveRetrievedBlock(player, blockId, blockType, uses, maxUses);
             });
+        });
+    }
 
-        // 3. 清理容器中的方块（箱子等）
-        for (Chunk chunk : player.getWorld().getLoadedChunks()) {
-            for (BlockState blockState : chunk.getTileEntities()) {
-                if (blockState instanceof Container) {
-                    Container container = (Container) blockState;
-                    ItemStack[] containerContents = container.getInventory().getContents();
-                    boolean updated = false;
-
-                    for (int i = 0; i < containerContents.length; i++) {
-                        ItemStack item = containerContents[i];
-                        if (isSameBoundBlock(item, player.getUniqueId(), blockType)) {
-                            container.getInventory().setItem(i, null);
-                            updated = true;
-                        }
-                    }
-
-                    if (updated) {
-                        container.update();
-                    }
-                }
-            }
-        }
+    /**
+     * 清理旧的同ID方块并给予玩家新方块，需在玩家所在线程调用
+     */
+    private void giveRetrievedBlock(Player player, String blockId, Material blockType, int uses, int maxUses) {
+        // 清理所有相同的绑定方块（只访问登记表中记录的位置）
+        removeTrackedCopies(player, blockId);
 
         // 创建新的方块并给予玩家
+        String nonce = UUID.randomUUID().toString();
         ItemStack newBlock = plugin.createMagicBlock();
         newBlock.setType(blockType);
         ItemMeta meta = newBlock.getItemMeta();
         if (meta != null) {
             // 设置绑定数据
             meta.getPersistentDataContainer().set(bindKey, PersistentDataType.STRING, player.getUniqueId().toString());
+            meta.getPersistentDataContainer().set(retrieveNonceKey, PersistentDataType.STRING, nonce);
             meta.getPersistentDataContainer().set(
                 new NamespacedKey(plugin, "block_id"),
                 PersistentDataType.STRING,
@@ -603,28 +393,104 @@ public class BlockBindManager {
         // 给予玩家新的方块
         HashMap<Integer, ItemStack> leftover = player.getInventory().addItem(newBlock);
         if (!leftover.isEmpty()) {
-            // 如果背包满了，掉落在玩家位置
+            // 如果背包满了，掉落在玩家位置（掉落物由 ItemSpawnEvent 登记）
             player.getWorld().dropItemNaturally(player.getLocation(), newBlock);
+        } else {
+            plugin.getBlockLocationRegistry().add(blockId, BlockLocationRegistry.Holder.player(player.getUniqueId()));
         }
 
         plugin.sendMessage(player, "messages.block-retrieved");
+
+        // 在后台分片扫描所有世界的已加载区块，清理登记表之外残留的方块（默认关闭，启动索引尚未完成时总是执行）
+        if (plugin.getConfig().getBoolean("performance.retrieve-purge.full-scan", false)
+                || !plugin.getBlockLocationRegistry().isWarm()) {
+            BindPurgeJob job = new BindPurgeJob(plugin, player, blockId, nonce);
+            BindPurgeJob previous = activePurges.put(blockId, job);
+            if (previous != null) {
+                previous.cancel();
+            }
+            job.start();
+        }
+    }
+
+    /**
+     * 清理任务完成时移除记录
+     */
+    void onPurgeComplete(BindPurgeJob job) {
+        activePurges.remove(job.getBlockId(), job);
     }
 
-    private boolean isSameBoundBlock(ItemStack item, UUID playerUUID, Material type) {
-        if (item == null || !plugin.getBlockManager().isMagicBlock(item) || !isBlockBound(item)) {
-            return false;
+    /**
+     * 移除登记表中记录的所有同ID方块，各位置的修改在其所属线程执行
+     */
+    private void removeTrackedCopies(Player owner, String blockId) {
+        BlockLocationRegistry registry = plugin.getBlockLocationRegistry();
+
+        for (BlockLocationRegistry.Holder holder : registry.getHolders(blockId)) {
+            switch (holder.getType()) {
+                case PLAYER: {
+                    Player target = Bukkit.getPlayer(holder.getEntityId());
+                    if (target == null) {
+                        registry.untrack(holder);
+                    } else if (target.equals(owner)) {
+                        // 当前即为玩家所在线程，必须在给予新方块之前同步移除
+                        removeFromInventory(target.getInventory(), blockId);
+                        registry.trackPlayer(target);
+                    } else {
+                        plugin.getFoliaLib().getScheduler().runAtEntity(target, task -> {
+                            if (removeFromInventory(target.getInventory(), blockId) > 0) {
+                                plugin.sendMessage(target, "messages.block-removed-by-owner");
+                            }
+                            registry.trackPlayer(target);
+                        });
+                    }
+                    break;
+                }
+                case CONTAINER: {
+                    Location location = holder.getLocation();
+                    if (location == null) break;
+                    plugin.getFoliaLib().getScheduler().runAtLocation(location, task -> {
+                        BlockState state = location.getBlock().getState();
+                        if (state instanceof Container) {
+                            Inventory inventory = ((Container) state).getInventory();
+                            removeFromInventory(inventory, blockId);
+                            registry.trackContainer(location, inventory);
+                        } else {
+                            registry.untrack(holder);
+                        }
+                    });
+                    break;
+                }
+                case ITEM: {
+                    Item item = registry.resolveItem(holder);
+                    if (item != null) {
+                        plugin.getFoliaLib().getScheduler().runAtEntity(item, task -> {
+                            item.remove();
+                            registry.untrack(holder);
+                        });
+                    }
+                    break;
+                }
+            }
         }
+    }
 
-        UUID boundPlayer = getBoundPlayer(item);
-        return boundPlayer != null &&
-               boundPlayer.equals(playerUUID) &&
-               item.getType() == type;
+    private int removeFromInventory(Inventory inventory, String blockId) {
+        int removed = 0;
+        ItemStack[] contents = inventory.getContents();
+        for (int i = 0; i < contents.length; i++) {
+            if (blockId.equals(plugin.getBlockLocationRegistry().getBlockId(contents[i]))) {
+                inventory.setItem(i, null);
+                removed++;
+            }
+        }
+        return removed;
     }
 
     public void removeBindings(Player player) {
-        String uuid = player.getUniqueId().toString();
-        bindConfig.set("bindings." + uuid, null);
-        saveBindConfig();
+        // 删除需要等待正在进行的批量写入，在异步线程执行
+        UUID playerUUID = player.getUniqueId();
+        plugin.getFoliaLib().getScheduler().runAsync(task -> storage().deletePlayerBindings(playerUUID));
     }
 
     public void cleanupBindings(ItemStack item) {
@@ -633,40 +499,16 @@ public class BlockBindManager {
         UUID boundUUID = getBoundPlayer(item);
         if (boundUUID == null) return;
 
-        String uuid = boundUUID.toString();
-        if (!bindConfig.contains("bindings." + uuid)) return;
-
-        // 遍历所有绑定的方块
-        Set<String> blocks = Objects.requireNonNull(bindConfig.getConfigurationSection("bindings." + uuid)).getKeys(false);
-        for (String blockId : blocks) {
-            String path = "bindings." + uuid + "." + blockId;
-            String material = bindConfig.getString(path + ".material");
-            if (material != null && material.equals(item.getType().name())) {
-                bindConfig.set(path, null);
-            }
-        }
-
-        // 如果该玩家没有绑定的方块了，删除整个节点
-        if (bindConfig.getConfigurationSection("bindings." + uuid).getKeys(false).isEmpty()) {
-            bindConfig.set("bindings." + uuid, null);
-        }
-
-        saveBindConfig();
-    }
-
-    // 检查并移除使用次数为0的方块
-    private void removeZeroUsageBlocks(String uuid, String blockId) {
-        String path = "bindings." + uuid + "." + blockId;
-        int uses = bindConfig.getInt(path + ".uses", 0);
-
-        if (uses <= 0) {
-            bindConfig.set(path, null);
-            // 如果该玩家没有绑定的方块了，删除整个节点
-            if (bindConfig.getConfigurationSection("bindings." + uuid).getKeys(false).isEmpty()) {
-                bindConfig.set("bindings." + uuid, null);
+        // 遍历所有绑定的方块，移除相同材质的绑定（存储访问在异步线程执行）
+        String materialName = item.getType().name();
+        plugin.getFoliaLib().getScheduler().runAsync(task -> {
+            DataStorage storage = storage();
+            for (Map.Entry<String, Map<String, Object>> entry : storage.getPlayerBindings(boundUUID).entrySet()) {
+                if (materialName.equals(entry.getValue().get("material"))) {
+                    storage.deleteBinding(boundUUID, entry.getKey());
+                }
             }
-            saveBindConfig();
-        }
+        });
     }
 
     // 处理绑定列表中的点击事件
@@ -695,9 +537,8 @@ public class BlockBindManager {
             // 双击确认，隐藏方块
             hideBlockFromList(player, blockId);
 
-            // 刷新界面
-            player.closeInventory();
-            openBindList(player);
+            // 从当前快照中移除并刷新界面，无需重新查询
+            plugin.getGuiManager().getBindListGUI().removeEntry(player, blockId);
 
             // 发送确认消息
             plugin.sendMessage(player, "messages.block-bind-removed");
@@ -713,14 +554,7 @@ public class BlockBindManager {
     }
 
     private void hideBlockFromList(Player player, String blockId) {
-        if (databaseManager != null && databaseManager.isEnabled()) {
-            databaseManager.setBlockHidden(player.getUniqueId(), blockId, true);
-        } else {
-            String uuid = player.getUniqueId().toString();
-            String path = "bindings." + uuid + "." + blockId + ".hidden";
-            bindConfig.set(path, true);
-            saveBindConfig();
-        }
+        storage().setBindingHidden(player.getUniqueId(), blockId, true);
     }
 
     public void handleDepleted(ItemStack item) {
@@ -741,18 +575,7 @@ public class BlockBindManager {
 
         // 如果配置为移除耗尽的方块
         if (plugin.getConfig().getBoolean("remove-depleted-blocks", false)) {
-            if (databaseManager != null && databaseManager.isEnabled()) {
-                // 从数据库中移除
-                databaseManager.deleteBinding(boundPlayer, blockId);
-            } else {
-                // 从文件中移除
-                String uuid = boundPlayer.toString();
-                if (!bindConfig.contains("bindings." + uuid)) return;
-
-                String path = "bindings." + uuid + "." + blockId;
-                bindConfig.set(path, null);
-                saveBindConfig();
-            }
+            storage().deleteBinding(boundPlayer, blockId);
         }
     }
 }
\ No newline at end of file
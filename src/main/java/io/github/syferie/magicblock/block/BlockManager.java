@@ -145,9 +145,8 @@ public class BlockManager extends AbstractMagicItem implements IMagicBlock {
 
     @Override
     protected List<String> getDecorativeLore(ItemStack item, Player owner) {
-        List<String> configLore = plugin.getConfig()
-            .getStringList("display.decorative-lore.lines");
-        return LoreUtil.processDecorativeLoreList(configLore, owner);
+        // 颜色代码已在配置快照中转换，只需处理变量
+        return LoreUtil.applyPlaceholders(plugin.getConfigCache().getDecorativeLoreLines(), owner);
     }
 
     @Override
@@ -155,6 +154,11 @@ public class BlockManager extends AbstractMagicItem implements IMagicBlock {
         return plugin.getUsageLorePrefix();
     }
 
+    @Override
+    protected LoreUtil.UsageTemplate getUsageTemplate() {
+        return plugin.getConfigCache().getUsageTemplate();
+    }
+
     @Override
     protected boolean shouldShowBinding() {
         return true; // 方块需要显示绑定信息
@@ -38,6 +38,7 @@ public class CommandManager implements CommandExecutor {
         register("settimes", new SetTimesCommand(plugin));
         register("addtimes", new AddTimesCommand(plugin));
         register("reload", new ReloadCommand(plugin));
+        register("stats", new StatsCommand(plugin));
     }
 
     /**
@@ -45,6 +45,7 @@ public class HelpCommand implements ICommand {
         helpMessages.add(ChatColor.YELLOW + "/mb settimes <times>" + ChatColor.GRAY + " - 设置手持方块使用次数");
         helpMessages.add(ChatColor.YELLOW + "/mb addtimes <times>" + ChatColor.GRAY + " - 增加手持方块使用次数");
         helpMessages.add(ChatColor.YELLOW + "/mb reload" + ChatColor.GRAY + " - 重载配置");
+        helpMessages.add(ChatColor.YELLOW + "/mb stats [place|eat] [minute|hour|day] [span]" + ChatColor.GRAY + " - 查看按时间统计的使用情况");
         helpMessages.add(ChatColor.GOLD + "================================");
 
         for (String message : helpMessages) {
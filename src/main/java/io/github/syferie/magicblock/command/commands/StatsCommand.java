@@ -0,0 +1,117 @@
+package io.github.syferie.magicblock.command.commands;
+
+import io.github.syferie.magicblock.MagicBlockPlugin;
+import io.github.syferie.magicblock.command.ICommand;
+import io.github.syferie.magicblock.util.UsageAnalytics;
+import io.github.syferie.magicblock.util.UsageAnalytics.EventType;
+import io.github.syferie.magicblock.util.UsageAnalytics.Window;
+import org.bukkit.command.CommandSender;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Stats 命令 - 查看按时间窗口统计的放置/食用次数
+ *
+ * 用法: /mb stats [place|eat] [minute|hour|day] [数量]
+ * 权限: magicblock.stats
+ *
+ * @author MagicBlock Team
+ * @version 2.0
+ */
+public class StatsCommand implements ICommand {
+
+    private static final int TOP_LIMIT = 5;
+
+    private final MagicBlockPlugin plugin;
+
+    public StatsCommand(MagicBlockPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void execute(CommandSender sender, String[] args) {
+        UsageAnalytics analytics = plugin.getUsageAnalytics();
+        if (analytics == null) {
+            plugin.sendMessage(sender, "commands.stats.disabled");
+            return;
+        }
+
+        EventType type;
+        Window window;
+        int span;
+        try {
+            type = args.length > 0 ? EventType.valueOf(args[0].toUpperCase(Locale.ROOT)) : EventType.PLACE;
+            window = args.length > 1 ? Window.valueOf(args[1].toUpperCase(Locale.ROOT)) : Window.HOUR;
+            span = args.length > 2 ? Integer.parseInt(args[2]) : window.getSize();
+        } catch (IllegalArgumentException e) {
+            plugin.sendMessage(sender, "commands.stats.usage");
+            return;
+        }
+        span = Math.max(1, Math.min(span, window.getSize()));
+
+        plugin.sendMessage(sender, "commands.stats.title",
+            type.name().toLowerCase(Locale.ROOT), span, window.name().toLowerCase(Locale.ROOT));
+        plugin.sendMessage(sender, "commands.stats.totals",
+            analytics.count(type, Window.MINUTE, 1),
+            analytics.count(type, Window.MINUTE, 60),
+            analytics.count(type, Window.HOUR, 24),
+            analytics.count(type, Window.DAY, 30),
+            analytics.count(type, window, span));
+
+        sendTop(sender, "commands.stats.top-materials", analytics.topMaterials(type, window, span, TOP_LIMIT));
+        sendTop(sender, "commands.stats.top-worlds", analytics.topWorlds(type, window, span, TOP_LIMIT));
+    }
+
+    private void sendTop(CommandSender sender, String titlePath, List<Map.Entry<String, Long>> entries) {
+        plugin.sendMessage(sender, titlePath);
+        if (entries.isEmpty()) {
+            plugin.sendMessage(sender, "commands.stats.no-data");
+            return;
+        }
+        for (Map.Entry<String, Long> entry : entries) {
+            plugin.sendMessage(sender, "commands.stats.entry", entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public boolean hasPermission(CommandSender sender) {
+        return sender.hasPermission(getPermissionNode());
+    }
+
+    @Override
+    public String getPermissionNode() {
+        return "magicblock.stats";
+    }
+
+    @Override
+    public String getUsage() {
+        return "/mb stats [place|eat] [minute|hour|day] [span]";
+    }
+
+    @Override
+    public String getDescription() {
+        return plugin.getMessage("commands.stats-description");
+    }
+
+    @Override
+    public List<String> tabComplete(CommandSender sender, String[] args) {
+        List<String> options;
+        if (args.length == 1) {
+            options = Arrays.stream(EventType.values()).map(Enum::name).collect(Collectors.toList());
+        } else if (args.length == 2) {
+            options = Arrays.stream(Window.values()).map(Enum::name).collect(Collectors.toList());
+        } else {
+            return Collections.emptyList();
+        }
+        String input = args[args.length - 1].toLowerCase(Locale.ROOT);
+        return options.stream()
+            .map(option -> option.toLowerCase(Locale.ROOT))
+            .filter(option -> option.startsWith(input))
+            .collect(Collectors.toList());
+    }
+}
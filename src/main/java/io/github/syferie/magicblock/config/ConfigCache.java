@@ -1,9 +1,14 @@
 package io.github.syferie.magicblock.config;
 
 import io.github.syferie.magicblock.MagicBlockPlugin;
+import io.github.syferie.magicblock.util.LoreUtil;
 import org.bukkit.ChatColor;
 import org.bukkit.configuration.file.FileConfiguration;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * 配置缓存类 - 性能优化的核心组件
  *
@@ -56,6 +61,10 @@ public class ConfigCache {
         final String magicLore;
         final String usageLorePrefix;
 
+        // Lore 模板（已转换颜色代码）
+        final List<String> decorativeLoreLines;
+        final LoreUtil.UsageTemplate usageTemplate;
+
         ConfigSnapshot(FileConfiguration config) {
             this.decorativeLoreEnabled = config.getBoolean("display.decorative-lore.enabled", true);
             this.showBoundPlayer = config.getBoolean("display.show-info.bound-player", true);
@@ -75,6 +84,13 @@ public class ConfigCache {
             this.magicLore = ChatColor.translateAlternateColorCodes('&',
                 config.getString("magic-lore", "&e⚡ &7MagicBlock"));
             this.usageLorePrefix = config.getString("usage-lore-prefix", "Total times:");
+
+            List<String> lines = new ArrayList<>();
+            for (String line : config.getStringList("display.decorative-lore.lines")) {
+                lines.add(ChatColor.translateAlternateColorCodes('&', line));
+            }
+            this.decorativeLoreLines = Collections.unmodifiableList(lines);
+            this.usageTemplate = LoreUtil.getUsageTemplate(usageLorePrefix);
         }
     }
 
@@ -141,4 +157,18 @@ public class ConfigCache {
     public String getUsageLorePrefix() {
         return snapshot.usageLorePrefix;
     }
+
+    /**
+     * 魔法方块的装饰性lore（已转换颜色代码，不可修改）
+     */
+    public List<String> getDecorativeLoreLines() {
+        return snapshot.decorativeLoreLines;
+    }
+
+    /**
+     * 魔法方块的使用次数文本模板
+     */
+    public LoreUtil.UsageTemplate getUsageTemplate() {
+        return snapshot.usageTemplate;
+    }
 }
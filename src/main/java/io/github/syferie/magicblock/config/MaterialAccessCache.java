@@ -0,0 +1,186 @@
+package io.github.syferie.magicblock.config;
+
+import io.github.syferie.magicblock.MagicBlockPlugin;
+import io.github.syferie.magicblock.util.MaterialSearchIndex;
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 玩家可用材料缓存
+ *
+ * 工作原理:
+ * - 加载/重载时把 allowed-materials 和每个 group.* 解析为不可变列表
+ * - 玩家拥有的权限组组成位图，相同位图的玩家共用同一份合并结果
+ * - 权限变化后位图随之变化，自然命中另一份结果，无需监听权限事件
+ * - 每份合并结果在首次搜索时建立搜索索引，重载时随快照一起丢弃
+ *
+ * 线程安全:
+ * - 解析结果为不可变快照，volatile 引用，reload() 原子性替换
+ * - 合并结果保存在 ConcurrentHashMap 中，可在任意区域线程读取
+ */
+public class MaterialAccessCache {
+
+    private final MagicBlockPlugin plugin;
+    private volatile Snapshot snapshot;
+
+    // 性能统计
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+
+    /**
+     * 某一组权限对应的可用材料
+     */
+    private static final class Access {
+        final List<Material> list;
+        final Set<Material> set;
+        private volatile MaterialSearchIndex searchIndex;
+
+        Access(List<Material> list) {
+            this.list = Collections.unmodifiableList(list);
+            this.set = list.isEmpty() ? EnumSet.noneOf(Material.class) : EnumSet.copyOf(list);
+        }
+
+        MaterialSearchIndex getSearchIndex(Function<Material, String> localizedName) {
+            MaterialSearchIndex index = searchIndex;
+            if (index == null) {
+                synchronized (this) {
+                    index = searchIndex;
+                    if (index == null) {
+                        index = new MaterialSearchIndex(list, localizedName);
+                        searchIndex = index;
+                    }
+                }
+            }
+            return index;
+        }
+    }
+
+    /**
+     * 不可变的解析结果
+     */
+    private static final class Snapshot {
+        final List<Material> baseMaterials;
+        final String[] groupPermissions;
+        final List<List<Material>> groupMaterials;
+        final Map<BitSet, Access> accessByGroups = new ConcurrentHashMap<>();
+
+        Snapshot(List<Material> baseMaterials, Map<String, List<Material>> groups) {
+            this.baseMaterials = Collections.unmodifiableList(new ArrayList<>(baseMaterials));
+            this.groupPermissions = new String[groups.size()];
+            this.groupMaterials = new ArrayList<>(groups.size());
+            int index = 0;
+            for (Map.Entry<String, List<Material>> entry : groups.entrySet()) {
+                groupPermissions[index++] = "magicblock.group." + entry.getKey();
+                groupMaterials.add(Collections.unmodifiableList(entry.getValue()));
+            }
+        }
+    }
+
+    public MaterialAccessCache(MagicBlockPlugin plugin, List<Material> baseMaterials) {
+        this.plugin = plugin;
+        reload(baseMaterials);
+    }
+
+    /**
+     * 重新解析权限组配置，丢弃所有合并结果
+     *
+     * @param baseMaterials 所有玩家都可用的材料 (allowed-materials)
+     */
+    public void reload(List<Material> baseMaterials) {
+        Map<String, List<Material>> groups = new LinkedHashMap<>();
+        ConfigurationSection section = plugin.getConfig().getConfigurationSection("group");
+        if (section != null) {
+            for (String key : section.getKeys(false)) {
+                List<Material> materials = new ArrayList<>();
+                for (String materialName : section.getStringList(key)) {
+                    Material material = Material.getMaterial(materialName);
+                    if (material != null) {
+                        materials.add(material);
+                    }
+                }
+                groups.put(key, materials);
+            }
+        }
+        this.snapshot = new Snapshot(baseMaterials, groups);
+        plugin.debug("可用材料缓存已重载 - 基础材料: " + baseMaterials.size() + ", 权限组: " + groups.size());
+    }
+
+    /**
+     * 获取玩家可用的材料（不可修改）
+     * 顺序为 allowed-materials 在前，各权限组按配置顺序追加
+     */
+    public List<Material> getMaterials(Player player) {
+        return getAccess(player).list;
+    }
+
+    public boolean isAllowed(Player player, Material material) {
+        return getAccess(player).set.contains(material);
+    }
+
+    /**
+     * 在玩家可用的材料中按英文名或本地化名称搜索，返回的列表不可修改
+     */
+    public List<Material> search(Player player, String query) {
+        return getAccess(player).getSearchIndex(material ->
+            plugin.getMinecraftLangManager().getItemStackName(new ItemStack(material))).search(query);
+    }
+
+    private Access getAccess(Player player) {
+        Snapshot current = snapshot;
+        BitSet groups = new BitSet(current.groupPermissions.length);
+        for (int i = 0; i < current.groupPermissions.length; i++) {
+            if (player.hasPermission(current.groupPermissions[i])) {
+                groups.set(i);
+            }
+        }
+
+        Access access = current.accessByGroups.get(groups);
+        if (access != null) {
+            hits.incrementAndGet();
+            return access;
+        }
+        misses.incrementAndGet();
+        return current.accessByGroups.computeIfAbsent(groups, key -> merge(current, key));
+    }
+
+    private static Access merge(Snapshot snapshot, BitSet groups) {
+        List<Material> materials = new ArrayList<>(snapshot.baseMaterials);
+        Set<Material> seen = snapshot.baseMaterials.isEmpty()
+                ? EnumSet.noneOf(Material.class) : EnumSet.copyOf(snapshot.baseMaterials);
+        for (int i = groups.nextSetBit(0); i >= 0; i = groups.nextSetBit(i + 1)) {
+            for (Material material : snapshot.groupMaterials.get(i)) {
+                if (seen.add(material)) {
+                    materials.add(material);
+                }
+            }
+        }
+        return new Access(materials);
+    }
+
+    /**
+     * 获取性能统计信息
+     */
+    public String getPerformanceStats() {
+        Snapshot current = snapshot;
+        long total = hits.get() + misses.get();
+        return String.format(
+            "可用材料缓存统计 - 权限组: %d, 组合数: %d, 命中: %d, 未命中: %d, 命中率: %.1f%%",
+            current.groupPermissions.length, current.accessByGroups.size(),
+            hits.get(), misses.get(), total == 0 ? 0.0 : hits.get() * 100.0 / total
+        );
+    }
+}
@@ -70,6 +70,13 @@ public abstract class AbstractMagicItem implements IMagicItem {
      */
     protected abstract String getUsageLorePrefix();
 
+    /**
+     * 获取编译后的使用次数文本模板，默认按前缀从 LoreUtil 获取
+     */
+    protected LoreUtil.UsageTemplate getUsageTemplate() {
+        return LoreUtil.getUsageTemplate(getUsageLorePrefix());
+    }
+
     /**
      * 是否应该显示绑定信息
      *
@@ -212,8 +219,7 @@ public abstract class AbstractMagicItem implements IMagicItem {
 
         // 4. 使用次数 (使用配置缓存)
         if (plugin.getConfigCache().isShowUsageCount()) {
-            lore.add(LoreUtil.generateUsageText(
-                getUsageLorePrefix(), remainingTimes, maxTimes, isInfinite));
+            lore.add(getUsageTemplate().format(remainingTimes, maxTimes, isInfinite));
         }
 
         // 5. 进度条 (非无限次数时，使用配置缓存)
@@ -0,0 +1,267 @@
+package io.github.syferie.magicblock.database;
+
+import io.github.syferie.magicblock.MagicBlockPlugin;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 玩家绑定数据缓存 (位于 DatabaseManager 之前的读穿透缓存)
+ *
+ * 工作原理:
+ * - 玩家加入时异步预加载其绑定数据，退出时移除
+ * - 超过容量时按 LRU 淘汰最久未访问的玩家
+ * - 写入时直接更新缓存条目，缓存中只保存未隐藏的绑定
+ * - 在线玩家打开绑定列表无需访问数据库
+ *
+ * 线程安全:
+ * - 所有访问通过 synchronized 保护
+ * - 返回的数据均为副本，调用方可以自由修改
+ * - 加载前记录写入计数，加载期间有写入或失效时丢弃结果，不缓存过期数据
+ */
+public class BindingCache implements Listener {
+
+    private final MagicBlockPlugin plugin;
+    private final DatabaseManager databaseManager;
+    private final int maxPlayers;
+
+    // accessOrder = true 实现 LRU
+    private final LinkedHashMap<UUID, Map<String, Map<String, Object>>> cache;
+
+    // 未缓存玩家的写入和失效计数，用于丢弃加载期间已过期的查询结果
+    private final AtomicLong uncachedWrites = new AtomicLong(0);
+
+    // 性能统计
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong evictions = new AtomicLong(0);
+
+    public BindingCache(MagicBlockPlugin plugin, DatabaseManager databaseManager, int maxPlayers) {
+        this.plugin = plugin;
+        this.databaseManager = databaseManager;
+        this.maxPlayers = Math.max(1, maxPlayers);
+        this.cache = new LinkedHashMap<UUID, Map<String, Map<String, Object>>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Map<String, Map<String, Object>>> eldest) {
+                if (size() > BindingCache.this.maxPlayers) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        UUID playerUUID = event.getPlayer().getUniqueId();
+        Player player = event.getPlayer();
+        plugin.getFoliaLib().getScheduler().runAsync(task -> {
+            // 先记录计数再检查在线，检查之后的退出会使本次加载不被缓存
+            long stamp = uncachedWrites.get();
+            if (player.isOnline() && !contains(playerUUID)) {
+                load(playerUUID, () -> databaseManager.loadPlayerBindings(playerUUID), stamp);
+            }
+        });
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        invalidate(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * 读取玩家绑定数据，未命中时通过 loader 加载并写入缓存
+     */
+    public Map<String, Map<String, Object>> get(UUID playerUUID, Supplier<Map<String, Map<String, Object>>> loader) {
+        synchronized (cache) {
+            Map<String, Map<String, Object>> cached = cache.get(playerUUID);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return copyOf(cached);
+            }
+        }
+        misses.incrementAndGet();
+        return copyOf(load(playerUUID, loader));
+    }
+
+    /**
+     * 读取单个绑定，未缓存时返回 null
+     */
+    public Map<String, Object> getBinding(UUID playerUUID, String blockId) {
+        synchronized (cache) {
+            Map<String, Map<String, Object>> cached = cache.get(playerUUID);
+            if (cached != null) {
+                Map<String, Object> blockData = cached.get(blockId);
+                if (blockData != null) {
+                    hits.incrementAndGet();
+                    return new HashMap<>(blockData);
+                }
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    private Map<String, Map<String, Object>> load(UUID playerUUID, Supplier<Map<String, Map<String, Object>>> loader) {
+        return load(playerUUID, loader, uncachedWrites.get());
+    }
+
+    /**
+     * @param stamp 开始加载前的写入计数，之后有写入或失效时不缓存结果
+     */
+    private Map<String, Map<String, Object>> load(UUID playerUUID, Supplier<Map<String, Map<String, Object>>> loader,
+                                                  long stamp) {
+        Map<String, Map<String, Object>> loaded = loader.get();
+        Map<String, Map<String, Object>> entry = copyOf(loaded);
+        synchronized (cache) {
+            Map<String, Map<String, Object>> existing = cache.get(playerUUID);
+            if (existing != null) {
+                return existing;
+            }
+            // 加载期间发生过写入或失效时不缓存，避免缓存过期数据或已退出的玩家
+            if (uncachedWrites.get() == stamp) {
+                cache.put(playerUUID, entry);
+            }
+        }
+        return entry;
+    }
+
+    public boolean contains(UUID playerUUID) {
+        synchronized (cache) {
+            return cache.containsKey(playerUUID);
+        }
+    }
+
+    /**
+     * 写入或更新缓存中的绑定数据
+     */
+    public void put(UUID playerUUID, String blockId, String material, int uses, int maxUses) {
+        synchronized (cache) {
+            Map<String, Map<String, Object>> cached = cache.get(playerUUID);
+            if (cached == null) {
+                uncachedWrites.incrementAndGet();
+                return;
+            }
+            Map<String, Object> blockData = cached.computeIfAbsent(blockId, k -> {
+                Map<String, Object> data = new HashMap<>();
+                data.put("hidden", false);
+                return data;
+            });
+            blockData.put("material", material);
+            blockData.put("uses", uses);
+            blockData.put("max_uses", maxUses);
+        }
+    }
+
+    /**
+     * 从缓存中移除单个绑定 (删除或隐藏时调用)
+     */
+    public void remove(UUID playerUUID, String blockId) {
+        synchronized (cache) {
+            Map<String, Map<String, Object>> cached = cache.get(playerUUID);
+            if (cached == null) {
+                uncachedWrites.incrementAndGet();
+                return;
+            }
+            cached.remove(blockId);
+        }
+    }
+
+    /**
+     * 移除缓存中使用次数为0的绑定
+     *
+     * @return 如果该玩家已缓存返回true
+     */
+    public boolean removeDepleted(UUID playerUUID) {
+        synchronized (cache) {
+            Map<String, Map<String, Object>> cached = cache.get(playerUUID);
+            if (cached == null) {
+                return false;
+            }
+            cached.values().removeIf(blockData -> (int) blockData.getOrDefault("uses", 0) <= 0);
+            return true;
+        }
+    }
+
+    /**
+     * 检查缓存中是否有使用次数为0的绑定
+     */
+    public boolean hasDepleted(UUID playerUUID) {
+        synchronized (cache) {
+            Map<String, Map<String, Object>> cached = cache.get(playerUUID);
+            if (cached == null) {
+                return true;
+            }
+            for (Map<String, Object> blockData : cached.values()) {
+                if ((int) blockData.getOrDefault("uses", 0) <= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public void invalidate(UUID playerUUID) {
+        synchronized (cache) {
+            cache.remove(playerUUID);
+            uncachedWrites.incrementAndGet();
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (cache) {
+            cache.clear();
+        }
+        uncachedWrites.incrementAndGet();
+    }
+
+    private static Map<String, Map<String, Object>> copyOf(Map<String, Map<String, Object>> source) {
+        Map<String, Map<String, Object>> copy = new HashMap<>();
+        for (Map.Entry<String, Map<String, Object>> entry : source.entrySet()) {
+            copy.put(entry.getKey(), new HashMap<>(entry.getValue()));
+        }
+        return copy;
+    }
+
+    /**
+     * 获取缓存命中率 (0-1)
+     */
+    public double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0.0 : (double) hits.get() / total;
+    }
+
+    /**
+     * 获取性能统计信息
+     */
+    public String getPerformanceStats() {
+        int size;
+        synchronized (cache) {
+            size = cache.size();
+        }
+        return String.format(
+            "绑定缓存统计 - 缓存玩家数: %d/%d, 命中: %d, 未命中: %d, 命中率: %.1f%%, 淘汰: %d",
+            size, maxPlayers, hits.get(), misses.get(), getHitRate() * 100, evictions.get()
+        );
+    }
+
+    /**
+     * 重置统计数据
+     */
+    public void resetStats() {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+}
@@ -3,12 +3,14 @@ package io.github.syferie.magicblock.database;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import io.github.syferie.magicblock.MagicBlockPlugin;
+import io.github.syferie.magicblock.storage.DataStorageFactory;
 import org.bukkit.Material;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
 /**
@@ -19,6 +21,79 @@ public class DatabaseManager {
     private HikariDataSource dataSource;
     private final String tablePrefix;
     private final String bindingsTable;
+    private final String favoritesTable;
+
+    // 写入合并队列：按 block_id 合并待写入的绑定数据，只保留最新值，定时批量刷新
+    private final Map<String, PendingBinding> pendingWrites = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+    private final boolean writeBatchEnabled;
+
+    // 玩家绑定数据读穿透缓存（为 null 表示禁用）
+    private BindingCache bindingCache;
+
+    /**
+     * 待写入的绑定数据
+     * playerName 不为空时以 upsert 写入，否则只更新已有行；
+     * hidden 不为空时修改隐藏状态，deleted 为删除标记
+     */
+    private static final class PendingBinding {
+        final UUID playerUUID;
+        final String playerName;
+        final String blockId;
+        final String material;
+        final int uses;
+        final int maxUses;
+        final boolean hasValues;
+        final Boolean hidden;
+        final boolean deleted;
+
+        PendingBinding(UUID playerUUID, String playerName, String blockId, String material, int uses, int maxUses) {
+            this(playerUUID, playerName, blockId, material, uses, maxUses, true, null, false);
+        }
+
+        private PendingBinding(UUID playerUUID, String playerName, String blockId, String material, int uses,
+                               int maxUses, boolean hasValues, Boolean hidden, boolean deleted) {
+            this.playerUUID = playerUUID;
+            this.playerName = playerName;
+            this.blockId = blockId;
+            this.material = material;
+            this.uses = uses;
+            this.maxUses = maxUses;
+            this.hasValues = hasValues;
+            this.hidden = hidden;
+            this.deleted = deleted;
+        }
+
+        static PendingBinding hide(UUID playerUUID, String blockId, boolean hidden) {
+            return new PendingBinding(playerUUID, null, blockId, null, 0, 0, false, hidden, false);
+        }
+
+        static PendingBinding delete(UUID playerUUID, String blockId) {
+            return new PendingBinding(playerUUID, null, blockId, null, 0, 0, false, null, true);
+        }
+
+        /**
+         * 与同一方块的旧条目合并，结果等同于先后执行两者
+         * 新值覆盖旧值，但保留尚未写入的 upsert 语义和隐藏状态
+         */
+        PendingBinding mergeFrom(PendingBinding older) {
+            if (deleted) {
+                return this;
+            }
+            if (older.deleted) {
+                // 删除后只有重新绑定有效，重新绑定的方块不隐藏
+                if (playerName == null) {
+                    return older;
+                }
+                return new PendingBinding(playerUUID, playerName, blockId, material, uses, maxUses, true,
+                        hidden != null ? hidden : Boolean.FALSE, false);
+            }
+            PendingBinding values = hasValues ? this : older;
+            return new PendingBinding(playerUUID, playerName != null ? playerName : older.playerName, blockId,
+                    values.material, values.uses, values.maxUses, values.hasValues,
+                    hidden != null ? hidden : older.hidden, false);
+        }
+    }
 
     /**
      * 构造函数
@@ -29,10 +104,26 @@ public class DatabaseManager {
         FileConfiguration config = plugin.getConfig();
         this.tablePrefix = config.getString("database.table-prefix", "mb_");
         this.bindingsTable = tablePrefix + "bindings";
+        this.favoritesTable = tablePrefix + "favorites";
+        // 写入队列由 StorageManager 的共享定时任务统一刷新
+        this.writeBatchEnabled = config.getBoolean("database.write-batch.enabled", true);
 
-        if (config.getBoolean("database.enabled", false)) {
+        // 只有选择 MySQL 存储时才连接数据库
+        if ("mysql".equals(DataStorageFactory.resolveType(config))) {
             setupDatabase();
         }
+
+        if (isEnabled() && config.getBoolean("database.cache.enabled", true)) {
+            this.bindingCache = new BindingCache(plugin, this, config.getInt("database.cache.max-players", 500));
+        }
+    }
+
+    /**
+     * 获取绑定数据缓存
+     * @return 绑定数据缓存，未启用时返回null
+     */
+    public BindingCache getBindingCache() {
+        return bindingCache;
     }
 
     /**
@@ -104,19 +195,93 @@ public class DatabaseManager {
                 "hidden BOOLEAN DEFAULT FALSE, " +
                 "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
                 "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, " +
-                "INDEX idx_player_uuid (player_uuid), " +
-                "INDEX idx_block_id (block_id)" +
+                "UNIQUE KEY uk_block_id (block_id), " +
+                "INDEX idx_player_hidden (player_uuid, hidden)" +
                 ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;";
 
+        String createFavoritesTable = "CREATE TABLE IF NOT EXISTS " + favoritesTable + " (" +
+                "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                "player_uuid VARCHAR(36) NOT NULL, " +
+                "material VARCHAR(50) NOT NULL, " +
+                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                "UNIQUE KEY unique_favorite (player_uuid, material), " +
+                "INDEX idx_player (player_uuid)" +
+                ")";
+
         try (Connection conn = getConnection();
              Statement stmt = conn.createStatement()) {
             stmt.execute(createBindingsTable);
+            migrateBindingsSchema(conn);
+            stmt.execute(createFavoritesTable);
             plugin.getLogger().info(plugin.getLanguageManager().getMessage("general.database-tables-created"));
         } catch (SQLException e) {
             plugin.getLogger().log(Level.SEVERE, plugin.getLanguageManager().getMessage("general.database-error", e.getMessage()), e);
         }
     }
 
+    /**
+     * 升级旧版本的绑定表结构
+     * 1. 清理重复的 block_id（保留最新的一行）并添加唯一键，使 saveBinding 成为幂等的 upsert
+     * 2. 添加 (player_uuid, hidden) 组合索引，匹配绑定列表查询
+     * 3. 移除被上述索引覆盖的旧索引
+     */
+    private void migrateBindingsSchema(Connection conn) throws SQLException {
+        Set<String> indexes = getTableIndexes(conn, bindingsTable);
+
+        try (Statement stmt = conn.createStatement()) {
+            if (!indexes.contains("uk_block_id")) {
+                int removed = stmt.executeUpdate("DELETE t1 FROM " + bindingsTable + " t1 " +
+                        "INNER JOIN " + bindingsTable + " t2 ON t1.block_id = t2.block_id AND t1.id < t2.id");
+                if (removed > 0) {
+                    plugin.getLogger().info("已清理 " + removed + " 条重复的绑定数据");
+                }
+                stmt.execute("ALTER TABLE " + bindingsTable + " ADD UNIQUE KEY uk_block_id (block_id)");
+                plugin.getLogger().info("绑定表已添加 block_id 唯一键");
+            }
+
+            if (!indexes.contains("idx_player_hidden")) {
+                stmt.execute("ALTER TABLE " + bindingsTable + " ADD INDEX idx_player_hidden (player_uuid, hidden)");
+                plugin.getLogger().info("绑定表已添加 (player_uuid, hidden) 索引");
+            }
+
+            // 旧索引已被唯一键和组合索引覆盖
+            if (indexes.contains("idx_block_id")) {
+                stmt.execute("ALTER TABLE " + bindingsTable + " DROP INDEX idx_block_id");
+            }
+            if (indexes.contains("idx_player_uuid")) {
+                stmt.execute("ALTER TABLE " + bindingsTable + " DROP INDEX idx_player_uuid");
+            }
+        }
+    }
+
+    /**
+     * 获取表上已有的索引名称
+     */
+    private Set<String> getTableIndexes(Connection conn, String table) throws SQLException {
+        Set<String> indexes = new HashSet<>();
+        String sql = "SELECT DISTINCT INDEX_NAME FROM information_schema.STATISTICS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, table);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    indexes.add(rs.getString(1));
+                }
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * 按 block_id 幂等写入绑定数据的 SQL
+     */
+    private String getUpsertSql() {
+        return "INSERT INTO " + bindingsTable +
+                " (player_uuid, player_name, block_id, material, uses, max_uses) VALUES (?, ?, ?, ?, ?, ?) " +
+                "ON DUPLICATE KEY UPDATE material = VALUES(material), uses = VALUES(uses), max_uses = VALUES(max_uses)";
+    }
+
     /**
      * 获取数据库连接
      * @return 数据库连接
@@ -150,10 +315,184 @@ public class DatabaseManager {
      */
     public void close() {
         if (dataSource != null && !dataSource.isClosed()) {
+            // 关闭前写入所有待写入数据
+            flushPendingWrites();
+            if (bindingCache != null) {
+                plugin.debug(bindingCache.getPerformanceStats());
+            }
             dataSource.close();
         }
     }
 
+    /**
+     * 将绑定数据加入写入队列 (upsert)
+     * 同一 block_id 的多次写入只保留最新值，由定时任务批量写入
+     */
+    public void queueBindingUpsert(UUID playerUUID, String playerName, String blockId, String material, int uses, int maxUses) {
+        if (!isEnabled()) return;
+        if (bindingCache != null) {
+            bindingCache.put(playerUUID, blockId, material, uses, maxUses);
+        }
+        if (!writeBatchEnabled) {
+            saveBinding(playerUUID, playerName, blockId, material, uses, maxUses);
+            return;
+        }
+        enqueue(new PendingBinding(playerUUID, playerName, blockId, material, uses, maxUses));
+    }
+
+    /**
+     * 将绑定数据更新加入写入队列
+     * 同一 block_id 的多次更新只保留最新值，由定时任务批量写入
+     */
+    public void queueBindingUpdate(UUID playerUUID, String blockId, String material, int uses, int maxUses) {
+        if (!isEnabled()) return;
+        if (bindingCache != null) {
+            bindingCache.put(playerUUID, blockId, material, uses, maxUses);
+        }
+        if (!writeBatchEnabled) {
+            updateBinding(playerUUID, blockId, material, uses, maxUses);
+            return;
+        }
+        enqueue(new PendingBinding(playerUUID, null, blockId, material, uses, maxUses));
+    }
+
+    private void enqueue(PendingBinding binding) {
+        pendingWrites.merge(binding.blockId, binding, (older, newer) -> newer.mergeFrom(older));
+    }
+
+    /**
+     * 批量写入所有待写入的绑定数据
+     * 删除、upsert、update、隐藏各使用一次 executeBatch，在同一事务中按此顺序提交
+     * 条目在提交成功后才移出队列，期间的查询仍能读到待写入的值；
+     * 提交期间被更新或删除的条目保留新值，等待下一次刷新
+     */
+    public void flushPendingWrites() {
+        if (!isEnabled() || pendingWrites.isEmpty()) return;
+
+        synchronized (flushLock) {
+            List<PendingBinding> batch = new ArrayList<>(pendingWrites.values());
+            if (batch.isEmpty()) return;
+            List<PendingBinding> deletes = new ArrayList<>();
+            List<PendingBinding> upserts = new ArrayList<>();
+            List<PendingBinding> updates = new ArrayList<>();
+            List<PendingBinding> hides = new ArrayList<>();
+            for (PendingBinding binding : batch) {
+                if (binding.deleted) {
+                    deletes.add(binding);
+                    continue;
+                }
+                if (binding.hasValues) {
+                    (binding.playerName != null ? upserts : updates).add(binding);
+                }
+                if (binding.hidden != null) {
+                    hides.add(binding);
+                }
+            }
+
+            String upsertSql = getUpsertSql();
+            String updateSql = "UPDATE " + bindingsTable +
+                    " SET material = ?, uses = ?, max_uses = ? " +
+                    "WHERE player_uuid = ? AND block_id = ?";
+
+            try (Connection conn = getConnection()) {
+                boolean autoCommit = conn.getAutoCommit();
+                conn.setAutoCommit(false);
+                try {
+                    if (!deletes.isEmpty()) {
+                        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM " + bindingsTable +
+                                " WHERE player_uuid = ? AND block_id = ?")) {
+                            for (PendingBinding binding : deletes) {
+                                stmt.setString(1, binding.playerUUID.toString());
+                                stmt.setString(2, binding.blockId);
+                                stmt.addBatch();
+                            }
+                            stmt.executeBatch();
+                        }
+                    }
+                    if (!upserts.isEmpty()) {
+                        try (PreparedStatement stmt = conn.prepareStatement(upsertSql)) {
+                            for (PendingBinding binding : upserts) {
+                                stmt.setString(1, binding.playerUUID.toString());
+                                stmt.setString(2, binding.playerName);
+                                stmt.setString(3, binding.blockId);
+                                stmt.setString(4, binding.material);
+                                stmt.setInt(5, binding.uses);
+                                stmt.setInt(6, binding.maxUses);
+                                stmt.addBatch();
+                            }
+                            stmt.executeBatch();
+                        }
+                    }
+                    if (!updates.isEmpty()) {
+                        try (PreparedStatement stmt = conn.prepareStatement(updateSql)) {
+                            for (PendingBinding binding : updates) {
+                                stmt.setString(1, binding.material);
+                                stmt.setInt(2, binding.uses);
+                                stmt.setInt(3, binding.maxUses);
+                                stmt.setString(4, binding.playerUUID.toString());
+                                stmt.setString(5, binding.blockId);
+                                stmt.addBatch();
+                            }
+                            stmt.executeBatch();
+                        }
+                    }
+                    if (!hides.isEmpty()) {
+                        try (PreparedStatement stmt = conn.prepareStatement("UPDATE " + bindingsTable +
+                                " SET hidden = ? WHERE player_uuid = ? AND block_id = ?")) {
+                            for (PendingBinding binding : hides) {
+                                stmt.setBoolean(1, binding.hidden);
+                                stmt.setString(2, binding.playerUUID.toString());
+                                stmt.setString(3, binding.blockId);
+                                stmt.addBatch();
+                            }
+                            stmt.executeBatch();
+                        }
+                    }
+                    conn.commit();
+                    for (PendingBinding binding : batch) {
+                        pendingWrites.remove(binding.blockId, binding);
+                    }
+                    plugin.debug("批量写入绑定数据: " + upserts.size() + " 条插入, " + updates.size() + " 条更新, " +
+                            hides.size() + " 条隐藏, " + deletes.size() + " 条删除");
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(autoCommit);
+                }
+            } catch (SQLException e) {
+                // 写入失败时条目仍在队列中，下一次刷新重试
+                plugin.getLogger().log(Level.SEVERE, plugin.getLanguageManager().getMessage("general.database-error", e.getMessage()), e);
+            }
+        }
+    }
+
+    /**
+     * 写入队列中是否还有数据
+     */
+    public boolean hasPendingWrites() {
+        return !pendingWrites.isEmpty();
+    }
+
+    /**
+     * 用队列中尚未写入的修改覆盖查询结果
+     * @return 覆盖后的数据，已标记删除时返回null
+     */
+    private Map<String, Object> applyPendingWrite(String blockId, Map<String, Object> blockData) {
+        PendingBinding pending = pendingWrites.get(blockId);
+        if (pending == null) return blockData;
+        if (pending.deleted) return null;
+        if (pending.hasValues) {
+            blockData.put("material", pending.material);
+            blockData.put("uses", pending.uses);
+            blockData.put("max_uses", pending.maxUses);
+        }
+        if (pending.hidden != null) {
+            blockData.put("hidden", pending.hidden);
+        }
+        return blockData;
+    }
+
     /**
      * 保存方块绑定数据到数据库
      * @param playerUUID 玩家UUID
@@ -167,21 +506,14 @@ public class DatabaseManager {
     public boolean saveBinding(UUID playerUUID, String playerName, String blockId, String material, int uses, int maxUses) {
         if (!isEnabled()) return false;
 
-        String sql = "INSERT INTO " + bindingsTable +
-                " (player_uuid, player_name, block_id, material, uses, max_uses) VALUES (?, ?, ?, ?, ?, ?) " +
-                "ON DUPLICATE KEY UPDATE material = ?, uses = ?, max_uses = ?";
-
         try (Connection conn = getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(getUpsertSql())) {
             stmt.setString(1, playerUUID.toString());
             stmt.setString(2, playerName);
             stmt.setString(3, blockId);
             stmt.setString(4, material);
             stmt.setInt(5, uses);
             stmt.setInt(6, maxUses);
-            stmt.setString(7, material);
-            stmt.setInt(8, uses);
-            stmt.setInt(9, maxUses);
 
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
@@ -222,15 +554,39 @@ public class DatabaseManager {
     }
 
     /**
-     * 获取玩家的所有绑定方块
+     * 获取玩家的所有绑定方块（优先从缓存读取）
      * @param playerUUID 玩家UUID
      * @return 绑定方块的Map，键为方块ID，值为方块数据
      */
     public Map<String, Map<String, Object>> getPlayerBindings(UUID playerUUID) {
         if (!isEnabled()) return new HashMap<>();
 
+        if (bindingCache != null) {
+            return bindingCache.get(playerUUID, () -> loadPlayerBindings(playerUUID));
+        }
+        return loadPlayerBindings(playerUUID);
+    }
+
+    /**
+     * 从数据库查询玩家的所有绑定方块（不经过缓存）
+     * @param playerUUID 玩家UUID
+     * @return 绑定方块的Map，键为方块ID，值为方块数据
+     */
+    public Map<String, Map<String, Object>> loadPlayerBindings(UUID playerUUID) {
+        if (!isEnabled()) return new HashMap<>();
+
+        // 队列中有取消隐藏的修改时，已隐藏的行也需要读出
+        boolean includeHidden = false;
+        for (PendingBinding pending : pendingWrites.values()) {
+            if (Boolean.FALSE.equals(pending.hidden) && pending.playerUUID.equals(playerUUID)) {
+                includeHidden = true;
+                break;
+            }
+        }
+
         Map<String, Map<String, Object>> bindings = new HashMap<>();
-        String sql = "SELECT * FROM " + bindingsTable + " WHERE player_uuid = ? AND hidden = FALSE";
+        String sql = "SELECT block_id, material, uses, max_uses, hidden FROM " + bindingsTable +
+                " WHERE player_uuid = ?" + (includeHidden ? "" : " AND hidden = FALSE");
 
         try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -245,16 +601,51 @@ public class DatabaseManager {
                     blockData.put("max_uses", rs.getInt("max_uses"));
                     blockData.put("hidden", rs.getBoolean("hidden"));
 
-                    bindings.put(blockId, blockData);
+                    blockData = applyPendingWrite(blockId, blockData);
+                    if (blockData != null && !(boolean) blockData.get("hidden")) {
+                        bindings.put(blockId, blockData);
+                    }
                 }
             }
         } catch (SQLException e) {
             plugin.getLogger().log(Level.SEVERE, plugin.getLanguageManager().getMessage("general.database-error", e.getMessage()), e);
         }
 
+        // 尚未写入数据库的新绑定
+        for (PendingBinding pending : pendingWrites.values()) {
+            if (pending.playerName != null && !pending.deleted && !Boolean.TRUE.equals(pending.hidden)
+                    && pending.playerUUID.equals(playerUUID) && !bindings.containsKey(pending.blockId)) {
+                Map<String, Object> blockData = new HashMap<>();
+                blockData.put("material", pending.material);
+                blockData.put("uses", pending.uses);
+                blockData.put("max_uses", pending.maxUses);
+                blockData.put("hidden", false);
+                bindings.put(pending.blockId, blockData);
+            }
+        }
+
         return bindings;
     }
 
+    /**
+     * 获取特定方块的绑定数据（已知所有者时优先从缓存读取）
+     * @param playerUUID 方块所有者UUID
+     * @param blockId 方块ID
+     * @return 方块数据的Map
+     */
+    public Map<String, Object> getBlockBinding(UUID playerUUID, String blockId) {
+        if (!isEnabled()) return null;
+
+        if (bindingCache != null) {
+            Map<String, Object> blockData = bindingCache.getBinding(playerUUID, blockId);
+            if (blockData != null) {
+                blockData.put("player_uuid", playerUUID);
+                return blockData;
+            }
+        }
+        return getBlockBinding(blockId);
+    }
+
     /**
      * 获取特定方块的绑定数据
      * @param blockId 方块ID
@@ -263,7 +654,8 @@ public class DatabaseManager {
     public Map<String, Object> getBlockBinding(String blockId) {
         if (!isEnabled()) return null;
 
-        String sql = "SELECT * FROM " + bindingsTable + " WHERE block_id = ?";
+        String sql = "SELECT player_uuid, player_name, material, uses, max_uses, hidden FROM " + bindingsTable +
+                " WHERE block_id = ?";
 
         try (Connection conn = getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -279,13 +671,26 @@ public class DatabaseManager {
                     blockData.put("max_uses", rs.getInt("max_uses"));
                     blockData.put("hidden", rs.getBoolean("hidden"));
 
-                    return blockData;
+                    return applyPendingWrite(blockId, blockData);
                 }
             }
         } catch (SQLException e) {
             plugin.getLogger().log(Level.SEVERE, plugin.getLanguageManager().getMessage("general.database-error", e.getMessage()), e);
         }
 
+        // 尚未写入数据库的新绑定
+        PendingBinding pending = pendingWrites.get(blockId);
+        if (pending != null && pending.playerName != null && !pending.deleted) {
+            Map<String, Object> blockData = new HashMap<>();
+            blockData.put("player_uuid", pending.playerUUID);
+            blockData.put("player_name", pending.playerName);
+            blockData.put("material", pending.material);
+            blockData.put("uses", pending.uses);
+            blockData.put("max_uses", pending.maxUses);
+            blockData.put("hidden", pending.hidden != null ? pending.hidden : false);
+            return blockData;
+        }
+
         return null;
     }
 
@@ -294,11 +699,26 @@ public class DatabaseManager {
      * @param playerUUID 玩家UUID
      * @param blockId 方块ID
      * @param hidden 是否隐藏
-     * @return 是否设置成功
+     * @return 是否设置成功（进入写入队列时返回true）
      */
     public boolean setBlockHidden(UUID playerUUID, String blockId, boolean hidden) {
         if (!isEnabled()) return false;
 
+        // 缓存只保存未隐藏的绑定
+        if (bindingCache != null) {
+            if (hidden) {
+                bindingCache.remove(playerUUID, blockId);
+            } else {
+                bindingCache.invalidate(playerUUID);
+            }
+        }
+
+        // 与绑定数据一起进入写入队列，批量提交时在 upsert 之后执行，不需要先刷新
+        if (writeBatchEnabled) {
+            enqueue(PendingBinding.hide(playerUUID, blockId, hidden));
+            return true;
+        }
+
         String sql = "UPDATE " + bindingsTable +
                 " SET hidden = ? " +
                 "WHERE player_uuid = ? AND block_id = ?";
@@ -320,11 +740,22 @@ public class DatabaseManager {
      * 删除方块绑定
      * @param playerUUID 玩家UUID
      * @param blockId 方块ID
-     * @return 是否删除成功
+     * @return 是否删除成功（进入写入队列时返回true）
      */
     public boolean deleteBinding(UUID playerUUID, String blockId) {
         if (!isEnabled()) return false;
 
+        if (bindingCache != null) {
+            bindingCache.remove(playerUUID, blockId);
+        }
+
+        // 删除标记进入写入队列并覆盖同一方块的旧条目；
+        // 正在提交的批次包含旧条目时，提交后标记仍留在队列中，下一次刷新删除
+        if (writeBatchEnabled) {
+            enqueue(PendingBinding.delete(playerUUID, blockId));
+            return true;
+        }
+
         String sql = "DELETE FROM " + bindingsTable +
                 " WHERE player_uuid = ? AND block_id = ?";
 
@@ -341,48 +772,210 @@ public class DatabaseManager {
     }
 
     /**
-     * 从文件配置迁移数据到数据库
-     * @param bindConfig 绑定配置
-     * @return 是否迁移成功
+     * 获取所有玩家的绑定数据（包括已隐藏的绑定）
+     * @return Map<玩家UUID, Map<方块ID, 方块数据>>
      */
-    public boolean migrateFromFile(FileConfiguration bindConfig) {
-        if (!isEnabled() || bindConfig == null) return false;
+    public Map<UUID, Map<String, Map<String, Object>>> getAllBindings() {
+        Map<UUID, Map<String, Map<String, Object>>> result = new HashMap<>();
+        if (!isEnabled()) return result;
 
-        plugin.getLogger().info(plugin.getLanguageManager().getMessage("general.database-migration-start"));
+        flushPendingWrites();
 
-        try {
-            if (bindConfig.contains("bindings")) {
-                for (String uuidStr : bindConfig.getConfigurationSection("bindings").getKeys(false)) {
-                    UUID playerUUID = UUID.fromString(uuidStr);
-                    String playerName = plugin.getServer().getOfflinePlayer(playerUUID).getName();
-                    if (playerName == null) playerName = "Unknown";
-
-                    for (String blockId : bindConfig.getConfigurationSection("bindings." + uuidStr).getKeys(false)) {
-                        String path = "bindings." + uuidStr + "." + blockId;
-                        String material = bindConfig.getString(path + ".material");
-                        int uses = bindConfig.getInt(path + ".uses");
-                        int maxUses = bindConfig.getInt(path + ".max_uses", uses);
-                        boolean hidden = bindConfig.getBoolean(path + ".hidden", false);
-
-                        // 保存到数据库
-                        saveBinding(playerUUID, playerName, blockId, material, uses, maxUses);
-
-                        // 设置隐藏状态
-                        if (hidden) {
-                            setBlockHidden(playerUUID, blockId, true);
+        String sql = "SELECT player_uuid, block_id, material, uses, max_uses, hidden FROM " + bindingsTable;
+
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                UUID playerUUID;
+                try {
+                    playerUUID = UUID.fromString(rs.getString("player_uuid"));
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+                Map<String, Object> blockData = new HashMap<>();
+                blockData.put("material", rs.getString("material"));
+                blockData.put("uses", rs.getInt("uses"));
+                blockData.put("max_uses", rs.getInt("max_uses"));
+                blockData.put("hidden", rs.getBoolean("hidden"));
+                result.computeIfAbsent(playerUUID, k -> new HashMap<>()).put(rs.getString("block_id"), blockData);
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, plugin.getLanguageManager().getMessage("general.database-error", e.getMessage()), e);
+        }
+
+        return result;
+    }
+
+    /**
+     * 删除玩家的所有绑定
+     * @param playerUUID 玩家UUID
+     */
+    public void deletePlayerBindings(UUID playerUUID) {
+        if (!isEnabled()) return;
+
+        // 持有刷新锁：等待正在提交的批次完成，避免删除后被重新写入（调用方在异步线程执行）
+        synchronized (flushLock) {
+            pendingWrites.values().removeIf(binding -> binding.playerUUID.equals(playerUUID));
+            if (bindingCache != null) {
+                bindingCache.invalidate(playerUUID);
+            }
+
+            String sql = "DELETE FROM " + bindingsTable + " WHERE player_uuid = ?";
+
+            try (Connection conn = getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, playerUUID.toString());
+                stmt.executeUpdate();
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, plugin.getLanguageManager().getMessage("general.database-error", e.getMessage()), e);
+            }
+        }
+    }
+
+    /**
+     * 覆盖保存玩家的收藏
+     * @param playerUUID 玩家UUID
+     * @param favorites 收藏的材料集合
+     */
+    public void saveFavorites(UUID playerUUID, Set<Material> favorites) {
+        if (!isEnabled()) return;
+
+        String deleteSql = "DELETE FROM " + favoritesTable + " WHERE player_uuid = ?";
+        String insertSql = "INSERT IGNORE INTO " + favoritesTable + " (player_uuid, material) VALUES (?, ?)";
+
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement deleteStmt = conn.prepareStatement(deleteSql);
+                 PreparedStatement insertStmt = conn.prepareStatement(insertSql)) {
+                deleteStmt.setString(1, playerUUID.toString());
+                deleteStmt.executeUpdate();
+                for (Material material : favorites) {
+                    insertStmt.setString(1, playerUUID.toString());
+                    insertStmt.setString(2, material.name());
+                    insertStmt.addBatch();
+                }
+                if (!favorites.isEmpty()) {
+                    insertStmt.executeBatch();
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "保存收藏到数据库失败", e);
+        }
+    }
+
+    /**
+     * 批量增量更新收藏，一个事务内逐条 INSERT IGNORE / DELETE
+     * @param changes Map<playerUUID, Map<材料, true为添加/false为移除>>
+     * @return 是否提交成功，失败时已回滚
+     */
+    public boolean updateFavorites(Map<UUID, Map<Material, Boolean>> changes) {
+        if (!isEnabled()) return false;
+        if (changes.isEmpty()) return true;
+
+        String insertSql = "INSERT IGNORE INTO " + favoritesTable + " (player_uuid, material) VALUES (?, ?)";
+        String deleteSql = "DELETE FROM " + favoritesTable + " WHERE player_uuid = ? AND material = ?";
+
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement insertStmt = conn.prepareStatement(insertSql);
+                 PreparedStatement deleteStmt = conn.prepareStatement(deleteSql)) {
+                boolean hasInsert = false, hasDelete = false;
+                for (Map.Entry<UUID, Map<Material, Boolean>> entry : changes.entrySet()) {
+                    String uuid = entry.getKey().toString();
+                    for (Map.Entry<Material, Boolean> change : entry.getValue().entrySet()) {
+                        PreparedStatement stmt = change.getValue() ? insertStmt : deleteStmt;
+                        stmt.setString(1, uuid);
+                        stmt.setString(2, change.getKey().name());
+                        stmt.addBatch();
+                        if (change.getValue()) {
+                            hasInsert = true;
+                        } else {
+                            hasDelete = true;
                         }
                     }
                 }
+                if (hasInsert) insertStmt.executeBatch();
+                if (hasDelete) deleteStmt.executeBatch();
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
-
-            plugin.getLogger().info(plugin.getLanguageManager().getMessage("general.database-migration-complete"));
-            return true;
-        } catch (Exception e) {
-            plugin.getLogger().log(Level.SEVERE, plugin.getLanguageManager().getMessage("general.database-error", e.getMessage()), e);
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "增量更新收藏失败", e);
             return false;
         }
     }
 
+    /**
+     * 加载玩家的收藏
+     * @param playerUUID 玩家UUID
+     * @return 收藏的材料集合
+     */
+    public Set<Material> loadFavorites(UUID playerUUID) {
+        Set<Material> favorites = EnumSet.noneOf(Material.class);
+        if (!isEnabled()) return favorites;
+
+        String sql = "SELECT material FROM " + favoritesTable + " WHERE player_uuid = ?";
+
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, playerUUID.toString());
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Material material = Material.matchMaterial(rs.getString("material"));
+                    if (material != null) {
+                        favorites.add(material);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "从数据库加载收藏失败", e);
+        }
+
+        return favorites;
+    }
+
+    /**
+     * 加载所有玩家的收藏
+     * @return Map<玩家UUID, 收藏的材料集合>
+     */
+    public Map<UUID, Set<Material>> getAllFavorites() {
+        Map<UUID, Set<Material>> result = new HashMap<>();
+        if (!isEnabled()) return result;
+
+        String sql = "SELECT player_uuid, material FROM " + favoritesTable;
+
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                Material material = Material.matchMaterial(rs.getString("material"));
+                if (material == null) continue;
+                try {
+                    UUID playerUUID = UUID.fromString(rs.getString("player_uuid"));
+                    result.computeIfAbsent(playerUUID, k -> EnumSet.noneOf(Material.class)).add(material);
+                } catch (IllegalArgumentException ignored) {
+                }
+            }
+            plugin.debug("从数据库加载了 " + result.size() + " 个玩家的收藏数据");
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "从数据库加载收藏失败", e);
+        }
+
+        return result;
+    }
+
     /**
      * 清理使用次数为0的方块
      * @param playerUUID 玩家UUID
@@ -392,6 +985,14 @@ public class DatabaseManager {
 
         // 如果配置为移除耗尽的方块
         if (plugin.getConfig().getBoolean("remove-depleted-blocks", false)) {
+            // 已缓存且没有耗尽的方块时无需访问数据库
+            if (bindingCache != null && !bindingCache.hasDepleted(playerUUID)) {
+                return;
+            }
+
+            // 先写入待写入数据，保证按最新使用次数清理
+            flushPendingWrites();
+
             String sql = "DELETE FROM " + bindingsTable +
                     " WHERE player_uuid = ? AND uses <= 0";
 
@@ -399,6 +1000,9 @@ public class DatabaseManager {
                  PreparedStatement stmt = conn.prepareStatement(sql)) {
                 stmt.setString(1, playerUUID.toString());
                 stmt.executeUpdate();
+                if (bindingCache != null) {
+                    bindingCache.removeDepleted(playerUUID);
+                }
             } catch (SQLException e) {
                 plugin.getLogger().log(Level.SEVERE, plugin.getLanguageManager().getMessage("general.database-error", e.getMessage()), e);
             }
@@ -273,9 +273,7 @@ public class FoodManager extends AbstractMagicItem implements Listener, IMagicFo
 
         // 应用食物效果
         applyFoodEffects(player, item.getType());
-        if (plugin.getStatistics() != null) {
-            plugin.getStatistics().logFoodUse(player, item);
-        }
+        plugin.logFoodUsage(player, item);
 
         // 减少使用次数 (基类处理)
         currentTimes = decrementUseTimes(item);
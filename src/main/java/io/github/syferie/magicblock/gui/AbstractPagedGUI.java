@@ -1,13 +1,10 @@
 package io.github.syferie.magicblock.gui;
 
 import io.github.syferie.magicblock.MagicBlockPlugin;
-import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
-import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.ItemMeta;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
@@ -23,6 +20,7 @@ public abstract class AbstractPagedGUI {
 
     protected final MagicBlockPlugin plugin;
     protected final GUIConfig guiConfig;
+    protected final DisplayItemCache displayItems;
 
     // 玩家GUI状态管理
     protected final Map<UUID, GUIState> playerStates = new ConcurrentHashMap<>();
@@ -35,6 +33,7 @@ public abstract class AbstractPagedGUI {
         ItemStack originalItem;
         long lastOpenTime;
         List<Material> displayMaterials;
+        RenderedInventory view;
 
         public GUIState() {
             this.lastOpenTime = System.currentTimeMillis();
@@ -61,6 +60,7 @@ public abstract class AbstractPagedGUI {
     public AbstractPagedGUI(MagicBlockPlugin plugin) {
         this.plugin = plugin;
         this.guiConfig = new GUIConfig(plugin);
+        this.displayItems = new DisplayItemCache(plugin, this::createTemplate);
     }
 
     // ==================== 模板方法 - 子类必须实现 ====================
@@ -76,9 +76,18 @@ public abstract class AbstractPagedGUI {
     protected abstract List<Material> getDisplayMaterials(Player player);
 
     /**
-     * 创建物品的lore
+     * 创建物品的lore，结果会作为模板缓存
+     *
+     * @param variant 由 getItemVariant 决定的变体编号
      */
-    protected abstract List<String> createItemLore(Material material, Player player);
+    protected abstract List<String> createItemLore(Material material, int variant);
+
+    /**
+     * 玩家相关的显示变体（例如收藏状态），默认只有一种
+     */
+    protected int getItemVariant(Material material, Player player) {
+        return 0;
+    }
 
     /**
      * 处理物品点击
@@ -93,7 +102,7 @@ public abstract class AbstractPagedGUI {
     /**
      * 添加自定义按钮 (可选)
      */
-    protected void addCustomButtons(Inventory gui, Player player) {
+    protected void addCustomButtons(ItemStack[] contents, Player player) {
         // 默认不添加，子类可以覆盖
     }
 
@@ -119,6 +128,7 @@ public abstract class AbstractPagedGUI {
 
     /**
      * 更新GUI显示
+     * 复用玩家的界面，只更新变化的槽位，玩家已在查看时不重新打开
      */
     public void updateInventory(Player player) {
         GUIState state = playerStates.get(player.getUniqueId());
@@ -126,98 +136,74 @@ public abstract class AbstractPagedGUI {
             return;
         }
 
-        // 创建GUI框架
-        Inventory gui = createGUIFrame(player, state);
+        GUIConfig.SlotLayout layout = guiConfig.getSlotLayout();
+        ItemStack[] contents = new ItemStack[layout.getSize()];
+        PageInfo pageInfo = calculatePagination(state.displayMaterials.size(), state.currentPage);
+
+        // 添加导航按钮
+        addNavigationButtons(contents, layout, state.currentPage, pageInfo.totalPages);
 
         // 填充物品
-        fillItems(gui, player, state);
+        fillItems(contents, layout, player, state, pageInfo);
 
         // 添加自定义按钮
-        addCustomButtons(gui, player);
-
-        // 打开GUI
-        player.openInventory(gui);
-    }
+        addCustomButtons(contents, player);
 
-    /**
-     * 创建GUI框架 (包含导航按钮)
-     */
-    private Inventory createGUIFrame(Player player, GUIState state) {
         String title = ChatColor.translateAlternateColorCodes('&', getGUITitle());
-        Inventory gui = Bukkit.createInventory(null, guiConfig.getSize(), title);
+        state.view = RenderedInventory.reuseOrCreate(state.view, layout.getSize(), title);
+        state.view.render(contents);
 
-        PageInfo pageInfo = calculatePagination(state.displayMaterials.size(), state.currentPage);
-
-        // 添加导航按钮
-        addNavigationButtons(gui, state.currentPage, pageInfo.totalPages);
-
-        return gui;
+        // 打开GUI
+        if (!state.view.isViewedBy(player)) {
+            player.openInventory(state.view.getInventory());
+        }
     }
 
     /**
      * 添加导航按钮
      */
-    private void addNavigationButtons(Inventory gui, int currentPage, int totalPages) {
-        // 上一页按钮
-        gui.setItem(guiConfig.getPreviousPageSlot(),
-            guiConfig.createPreviousPageButton(currentPage > 1));
-
-        // 下一页按钮
-        gui.setItem(guiConfig.getNextPageSlot(),
-            guiConfig.createNextPageButton(currentPage < totalPages));
-
-        // 页码显示
-        gui.setItem(guiConfig.getPageInfoSlot(),
-            guiConfig.createPageInfoButton(currentPage, totalPages));
+    private void addNavigationButtons(ItemStack[] contents, GUIConfig.SlotLayout layout,
+                                      int currentPage, int totalPages) {
+        for (int slot = 0; slot < contents.length; slot++) {
+            switch (layout.getNavigationAction(slot)) {
+                case GUIConfig.ACTION_PREVIOUS_PAGE:
+                    contents[slot] = guiConfig.createPreviousPageButton(currentPage > 1);
+                    break;
+                case GUIConfig.ACTION_NEXT_PAGE:
+                    contents[slot] = guiConfig.createNextPageButton(currentPage < totalPages);
+                    break;
+                case GUIConfig.ACTION_PAGE_INFO:
+                    contents[slot] = guiConfig.createPageInfoButton(currentPage, totalPages);
+                    break;
+                default:
+                    break;
+            }
+        }
     }
 
     /**
-     * 填充物品到GUI
+     * 填充物品到GUI（跳过导航按钮槽位）
      */
-    private void fillItems(Inventory gui, Player player, GUIState state) {
-        PageInfo pageInfo = calculatePagination(state.displayMaterials.size(), state.currentPage);
-
-        int slot = 0;
+    private void fillItems(ItemStack[] contents, GUIConfig.SlotLayout layout, Player player,
+                           GUIState state, PageInfo pageInfo) {
         for (int i = pageInfo.startIndex; i < pageInfo.endIndex; i++) {
             Material material = state.displayMaterials.get(i);
-
-            // 跳过导航按钮槽位
-            while (isNavigationSlot(slot)) {
-                slot++;
-            }
-
-            if (slot >= guiConfig.getSize()) {
-                break;
-            }
-
-            ItemStack displayItem = createDisplayItem(material, player);
-            gui.setItem(slot, displayItem);
-            slot++;
+            contents[layout.getNavigationContentSlot(i - pageInfo.startIndex)] = createDisplayItem(material, player);
         }
     }
 
     /**
-     * 创建显示物品
+     * 创建显示物品模板
      */
-    protected ItemStack createDisplayItem(Material material, Player player) {
-        ItemStack item = new ItemStack(material);
-        ItemMeta meta = item.getItemMeta();
-
-        if (meta != null) {
-            // 设置显示名称
-            String blockName = plugin.getMinecraftLangManager().getItemStackName(item);
-            String nameFormat = plugin.getConfig().getString("display.block-name-format", "&b✦ %s &b✦");
-            meta.setDisplayName(ChatColor.translateAlternateColorCodes('&',
-                String.format(nameFormat, blockName)));
-
-            // 设置lore (委托给子类)
-            List<String> lore = createItemLore(material, player);
-            meta.setLore(lore);
-
-            item.setItemMeta(meta);
-        }
+    private ItemStack createTemplate(Material material, int variant) {
+        return displayItems.createNamedItem(material, createItemLore(material, variant));
+    }
 
-        return item;
+    /**
+     * 创建显示物品 (从模板缓存复制)
+     */
+    protected ItemStack createDisplayItem(Material material, Player player) {
+        return displayItems.get(material, getItemVariant(material, player));
     }
 
     /**
@@ -236,10 +222,8 @@ public abstract class AbstractPagedGUI {
      * 计算每页物品数量
      */
     protected int calculateItemsPerPage() {
-        int totalSlots = guiConfig.getSize();
         // 保留槽位：上一页、下一页、页码显示
-        int reservedSlots = 3;
-        return totalSlots - reservedSlots;
+        return guiConfig.getSlotLayout().getNavigationContentSlotCount();
     }
 
     /**
@@ -251,9 +235,10 @@ public abstract class AbstractPagedGUI {
             return;
         }
 
-        synchronized (this) {
+        // 只锁定该玩家自己的状态，不同玩家互不竞争
+        synchronized (state) {
             // 处理导航按钮
-            if (handleNavigationClick(player, slot, clickedItem, state)) {
+            if (handleNavigationClick(player, slot, state)) {
                 return;
             }
 
@@ -269,45 +254,28 @@ public abstract class AbstractPagedGUI {
      *
      * @return true 表示是导航按钮，已处理
      */
-    private boolean handleNavigationClick(Player player, int slot, ItemStack item, GUIState state) {
-        PageInfo pageInfo = calculatePagination(state.displayMaterials.size(), state.currentPage);
-
-        // 上一页
-        if (slot == guiConfig.getPreviousPageSlot() &&
-            guiConfig.matchesPreviousPageButton(item)) {
-            if (state.currentPage > 1) {
-                state.currentPage--;
-                updateInventory(player);
-            }
-            return true;
-        }
-
-        // 下一页
-        if (slot == guiConfig.getNextPageSlot() &&
-            guiConfig.matchesNextPageButton(item)) {
-            if (state.currentPage < pageInfo.totalPages) {
-                state.currentPage++;
-                updateInventory(player);
+    private boolean handleNavigationClick(Player player, int slot, GUIState state) {
+        switch (guiConfig.getSlotLayout().getNavigationAction(slot)) {
+            case GUIConfig.ACTION_PREVIOUS_PAGE:
+                if (state.currentPage > 1) {
+                    state.currentPage--;
+                    updateInventory(player);
+                }
+                return true;
+            case GUIConfig.ACTION_NEXT_PAGE: {
+                PageInfo pageInfo = calculatePagination(state.displayMaterials.size(), state.currentPage);
+                if (state.currentPage < pageInfo.totalPages) {
+                    state.currentPage++;
+                    updateInventory(player);
+                }
+                return true;
             }
-            return true;
-        }
-
-        // 页码信息按钮（不执行任何操作，仅阻止后续处理）
-        if (slot == guiConfig.getPageInfoSlot() &&
-            guiConfig.matchesPageInfoButton(item)) {
-            return true;
+            case GUIConfig.ACTION_PAGE_INFO:
+                // 页码信息按钮（不执行任何操作，仅阻止后续处理）
+                return true;
+            default:
+                return false;
         }
-
-        return false;
-    }
-
-    /**
-     * 检查是否是导航槽位
-     */
-    private boolean isNavigationSlot(int slot) {
-        return slot == guiConfig.getPreviousPageSlot() ||
-               slot == guiConfig.getNextPageSlot() ||
-               slot == guiConfig.getPageInfoSlot();
     }
 
     /**
@@ -329,5 +297,6 @@ public abstract class AbstractPagedGUI {
      */
     public void reloadConfig() {
         guiConfig.loadConfig();
+        displayItems.clear();
     }
 }
@@ -0,0 +1,201 @@
+package io.github.syferie.magicblock.gui;
+
+import io.github.syferie.magicblock.MagicBlockPlugin;
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 绑定方块列表GUI
+ *
+ * 工作原理:
+ * - 打开时由 BlockBindManager 异步查询存储并与背包对账，得到不可变的绑定快照
+ * - 翻页和隐藏方块只在快照上操作，不再查询存储
+ * - 导航按钮布局与收藏GUI相同，绑定数量不再受单页54格限制
+ * - 复用玩家的界面，只更新变化的槽位
+ */
+public class BindListGUI {
+
+    /**
+     * 列表中的一个绑定方块
+     */
+    public static final class Entry {
+        private final String blockId;
+        private final Material material;
+        private final int uses;
+        private final int maxUses;
+
+        public Entry(String blockId, Material material, int uses, int maxUses) {
+            this.blockId = blockId;
+            this.material = material;
+            this.uses = uses;
+            this.maxUses = maxUses;
+        }
+
+        public String getBlockId() {
+            return blockId;
+        }
+
+        public Material getMaterial() {
+            return material;
+        }
+
+        public int getUses() {
+            return uses;
+        }
+
+        public int getMaxUses() {
+            return maxUses;
+        }
+    }
+
+    private final MagicBlockPlugin plugin;
+    private final GUIManager guiManager;
+    private final GUIConfig guiConfig;
+
+    public BindListGUI(MagicBlockPlugin plugin, GUIManager guiManager) {
+        this.plugin = plugin;
+        this.guiManager = guiManager;
+        this.guiConfig = new GUIConfig(plugin);
+    }
+
+    /**
+     * 用新的绑定快照打开第一页，需在玩家所在线程调用
+     *
+     * @param entries 不可修改的绑定列表
+     */
+    public void open(Player player, List<Entry> entries) {
+        GuiSession session = guiManager.getSession(player);
+        synchronized (session) {
+            session.bindEntries = entries;
+            session.bindPage = 1;
+            render(player, session);
+        }
+    }
+
+    /**
+     * 处理导航按钮点击
+     *
+     * @return true 表示是导航按钮，已处理
+     */
+    public boolean handleNavigationClick(Player player, int slot) {
+        GuiSession session = guiManager.findSession(player.getUniqueId());
+        if (session == null) {
+            return false;
+        }
+
+        synchronized (session) {
+            if (session.bindEntries == null) {
+                return false;
+            }
+            switch (guiConfig.getSlotLayout().getNavigationAction(slot)) {
+                case GUIConfig.ACTION_PREVIOUS_PAGE:
+                    if (session.bindPage > 1) {
+                        session.bindPage--;
+                        render(player, session);
+                    }
+                    return true;
+                case GUIConfig.ACTION_NEXT_PAGE:
+                    if (session.bindPage < getTotalPages(session.bindEntries.size())) {
+                        session.bindPage++;
+                        render(player, session);
+                    }
+                    return true;
+                case GUIConfig.ACTION_PAGE_INFO:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    /**
+     * 从快照中移除方块并刷新当前页（隐藏方块后调用）
+     */
+    public void removeEntry(Player player, String blockId) {
+        GuiSession session = guiManager.findSession(player.getUniqueId());
+        if (session == null) {
+            return;
+        }
+
+        synchronized (session) {
+            if (session.bindEntries == null) {
+                return;
+            }
+            List<Entry> remaining = new ArrayList<>(session.bindEntries.size());
+            for (Entry entry : session.bindEntries) {
+                if (!entry.blockId.equals(blockId)) {
+                    remaining.add(entry);
+                }
+            }
+            session.bindEntries = Collections.unmodifiableList(remaining);
+            session.bindPage = Math.min(session.bindPage, getTotalPages(remaining.size()));
+            render(player, session);
+        }
+    }
+
+    private int getTotalPages(int totalItems) {
+        int itemsPerPage = guiConfig.getSlotLayout().getNavigationContentSlotCount();
+        return Math.max(1, (int) Math.ceil(totalItems / (double) itemsPerPage));
+    }
+
+    /**
+     * 渲染当前页，调用方需持有该玩家会话的锁
+     */
+    private void render(Player player, GuiSession session) {
+        GUIConfig.SlotLayout layout = guiConfig.getSlotLayout();
+        ItemStack[] contents = new ItemStack[layout.getSize()];
+        List<Entry> entries = session.bindEntries;
+        int page = session.bindPage;
+
+        int itemsPerPage = layout.getNavigationContentSlotCount();
+        int totalPages = getTotalPages(entries.size());
+        int startIndex = (page - 1) * itemsPerPage;
+        int endIndex = Math.min(startIndex + itemsPerPage, entries.size());
+
+        for (int i = startIndex; i < endIndex; i++) {
+            contents[layout.getNavigationContentSlot(i - startIndex)] =
+                plugin.getBlockBindManager().createListItem(player, entries.get(i));
+        }
+
+        for (int slot = 0; slot < contents.length; slot++) {
+            switch (layout.getNavigationAction(slot)) {
+                case GUIConfig.ACTION_PREVIOUS_PAGE:
+                    contents[slot] = guiConfig.createPreviousPageButton(page > 1);
+                    break;
+                case GUIConfig.ACTION_NEXT_PAGE:
+                    contents[slot] = guiConfig.createNextPageButton(page < totalPages);
+                    break;
+                case GUIConfig.ACTION_PAGE_INFO:
+                    contents[slot] = guiConfig.createPageInfoButton(page, totalPages);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        String title = ChatColor.translateAlternateColorCodes('&',
+            plugin.getConfig().getString("gui.text.bound-blocks-title", "&8⚡ &b已绑定方块"));
+        RenderedInventory view = RenderedInventory.reuseOrCreate(session.bindView, layout.getSize(), title);
+        session.bindView = view;
+        int changed = view.render(contents);
+        plugin.debug("绑定列表更新 - 玩家: " + player.getName() + ", 页面: " + page + "/" + totalPages +
+                    ", 绑定数: " + entries.size() + ", 变化槽位: " + changed);
+
+        if (!view.isViewedBy(player)) {
+            player.openInventory(view.getInventory());
+        }
+    }
+
+    /**
+     * 重新加载GUI配置
+     */
+    public void reloadConfig() {
+        guiConfig.loadConfig();
+    }
+}
@@ -1,36 +1,29 @@
 package io.github.syferie.magicblock.gui;
 
 import io.github.syferie.magicblock.MagicBlockPlugin;
-import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.event.inventory.InventoryClickEvent;
-import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.ChatColor;
 
-import java.util.ArrayList;
-import java.util.EnumMap;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 
 public class BlockSelectionGUI {
     private final MagicBlockPlugin plugin;
     private final GUIConfig guiConfig;
-    private final Map<UUID, Integer> currentPage = new ConcurrentHashMap<>();
-    private final Map<UUID, List<Material>> searchResults = new ConcurrentHashMap<>();
-    private final Map<UUID, ItemStack> originalItems = new ConcurrentHashMap<>();
-    private final Map<UUID, Long> lastGuiOpenTime = new ConcurrentHashMap<>();
+    private final DisplayItemCache displayItems;
+    private final GUIManager guiManager;
     private static final long GUI_OPERATION_COOLDOWN = 500; // 0.5秒操作冷却时间
 
-    public BlockSelectionGUI(MagicBlockPlugin plugin) {
+    public BlockSelectionGUI(MagicBlockPlugin plugin, GUIManager guiManager) {
         this.plugin = plugin;
+        this.guiManager = guiManager;
         this.guiConfig = new GUIConfig(plugin);
+        this.displayItems = new DisplayItemCache(plugin, this::createMagicBlockTemplate);
     }
 
     public void openInventory(Player player) {
@@ -40,30 +33,44 @@ public class BlockSelectionGUI {
             return;
         }
         
-        // 记录原始物品
-        originalItems.put(player.getUniqueId(), player.getInventory().getItemInMainHand().clone());
-        // 重置搜索状态
-        searchResults.remove(player.getUniqueId());
-        // 重置页码
-        currentPage.put(player.getUniqueId(), 1);
-        // 记录打开时间
-        lastGuiOpenTime.put(player.getUniqueId(), System.currentTimeMillis());
-        // 打开界面
-        updateInventory(player);
+        GuiSession state = guiManager.getSession(player);
+        synchronized (state) {
+            // 记录原始物品
+            state.originalItem = player.getInventory().getItemInMainHand().clone();
+            // 重置搜索状态
+            state.searchResults = null;
+            // 重置页码
+            state.currentPage = 1;
+            // 记录打开时间
+            state.lastOpenTime = System.currentTimeMillis();
+            // 打开界面
+            updateInventory(player);
+        }
     }
 
     public void updateInventory(Player player) {
-        // 设置GUI更新标志，防止在更新时清理数据
-        GUIManager.setPlayerUpdatingGUI(player, true);
+        GuiSession state = guiManager.getSession(player);
+        synchronized (state) {
+            render(player, state);
+        }
+    }
 
-        Inventory gui = Bukkit.createInventory(null, guiConfig.getSize(), guiConfig.getTitle());
-        UUID playerId = player.getUniqueId();
-        int page = currentPage.getOrDefault(playerId, 1);
+    private List<Material> getDisplayMaterials(Player player, GuiSession state) {
+        return state.searchResults != null ? state.searchResults : plugin.getAllowedMaterialsForPlayer(player);
+    }
 
-        List<Material> materials = searchResults.getOrDefault(playerId, plugin.getAllowedMaterialsForPlayer(player));
+    /**
+     * 渲染当前页，调用方需持有该玩家状态的锁
+     */
+    private void render(Player player, GuiSession state) {
+        int page = state.currentPage;
+        GUIConfig.SlotLayout layout = guiConfig.getSlotLayout();
+        ItemStack[] contents = new ItemStack[layout.getSize()];
 
-        // 计算每页可显示的物品数量（排除按钮槽位）
-        int itemsPerPage = calculateItemsPerPage();
+        List<Material> materials = getDisplayMaterials(player, state);
+
+        // 每页可显示的物品数量（排除按钮槽位）
+        int itemsPerPage = layout.getContentSlotCount();
         int totalPages = (int) Math.ceil(materials.size() / (double) itemsPerPage);
 
         plugin.debug("GUI更新 - 玩家: " + player.getName() + ", 页面: " + page + "/" + totalPages +
@@ -73,85 +80,70 @@ public class BlockSelectionGUI {
         int endIndex = Math.min(startIndex + itemsPerPage, materials.size());
 
         // 添加物品到可用槽位
-        int currentSlot = 0;
         for (int i = startIndex; i < endIndex; i++) {
-            // 跳过按钮槽位（包括自定义材质槽位）
-            while (currentSlot < guiConfig.getSize() && guiConfig.isButtonSlot(currentSlot)) {
-                currentSlot++;
-            }
-
-            if (currentSlot < guiConfig.getSize()) {
-                Material material = materials.get(i);
-                gui.setItem(currentSlot, createMagicBlock(material, player));
-                currentSlot++;
-            } else {
-                // 如果没有更多可用槽位，停止添加物品
-                break;
-            }
+            contents[layout.getContentSlot(i - startIndex)] = createMagicBlock(materials.get(i), player);
         }
 
-        // 始终添加导航按钮（保持布局一致性），根据状态显示不同样式
-        gui.setItem(guiConfig.getPreviousPageSlot(), guiConfig.createPreviousPageButton(page > 1));
-        gui.setItem(guiConfig.getNextPageSlot(), guiConfig.createNextPageButton(page < totalPages));
-
-        // 添加页码信息
-        gui.setItem(guiConfig.getPageInfoSlot(), guiConfig.createPageInfoButton(page, totalPages));
-
-        // 添加搜索按钮
-        gui.setItem(guiConfig.getSearchSlot(), guiConfig.createSearchButton());
-
-        // 添加收藏按钮（如果启用）
-        if (guiConfig.isFavoritesEnabled()) {
-            gui.setItem(guiConfig.getFavoritesSlot(), guiConfig.createFavoritesButton());
-        }
-
-        // 添加关闭按钮
-        gui.setItem(guiConfig.getCloseSlot(), guiConfig.createCloseButton());
-
-        // 添加自定义材质
-        for (Map.Entry<String, GUIConfig.ButtonConfig> entry : guiConfig.getCustomMaterials().entrySet()) {
-            String customKey = entry.getKey();
-            GUIConfig.ButtonConfig config = entry.getValue();
-            ItemStack customItem = guiConfig.createCustomMaterial(customKey);
-            if (customItem != null && config.slot >= 0 && config.slot < guiConfig.getSize()) {
-                gui.setItem(config.slot, customItem);
-                plugin.debug("添加自定义材质: " + customKey + " -> 槽位 " + config.slot);
+        // 按槽位动作添加按钮，导航按钮始终显示（保持布局一致性），根据状态显示不同样式
+        for (int slot = 0; slot < contents.length; slot++) {
+            switch (layout.getAction(slot)) {
+                case GUIConfig.ACTION_PREVIOUS_PAGE:
+                    contents[slot] = guiConfig.createPreviousPageButton(page > 1);
+                    break;
+                case GUIConfig.ACTION_NEXT_PAGE:
+                    contents[slot] = guiConfig.createNextPageButton(page < totalPages);
+                    break;
+                case GUIConfig.ACTION_PAGE_INFO:
+                    contents[slot] = guiConfig.createPageInfoButton(page, totalPages);
+                    break;
+                case GUIConfig.ACTION_SEARCH:
+                    contents[slot] = guiConfig.createSearchButton();
+                    break;
+                case GUIConfig.ACTION_FAVORITES:
+                    contents[slot] = guiConfig.createFavoritesButton();
+                    break;
+                case GUIConfig.ACTION_CLOSE:
+                    contents[slot] = guiConfig.createCloseButton();
+                    break;
+                case GUIConfig.ACTION_CUSTOM:
+                    contents[slot] = guiConfig.createCustomMaterial(layout.getCustomKey(slot));
+                    break;
+                default:
+                    break;
             }
         }
 
-        player.openInventory(gui);
-
-        // 清除GUI更新标志
-        GUIManager.setPlayerUpdatingGUI(player, false);
+        // 复用玩家的界面，只更新变化的槽位
+        RenderedInventory view = RenderedInventory.reuseOrCreate(
+            state.view, layout.getSize(), guiConfig.getTitle());
+        state.view = view;
+        int changed = view.render(contents);
+        plugin.debug("GUI更新 - 玩家: " + player.getName() + ", 变化槽位: " + changed);
+
+        if (!view.isViewedBy(player)) {
+            // 设置GUI更新标志，防止打开时触发的关闭事件清理数据
+            state.updating = true;
+            player.openInventory(view.getInventory());
+            state.updating = false;
+        }
     }
 
     public void handleSearch(Player player, String query) {
-        UUID playerId = player.getUniqueId();
-        List<Material> allMaterials = plugin.getAllowedMaterialsForPlayer(player);
-        
-        if (query == null || query.trim().isEmpty()) {
-            searchResults.remove(playerId);
-        } else {
-            String lowercaseQuery = query.toLowerCase();
-            List<Material> results = allMaterials.stream()
-                .filter(material -> {
-                    String materialName = material.name().toLowerCase();
-                    String localizedName = plugin.getMinecraftLangManager().getItemStackName(new ItemStack(material));
-                    return materialName.contains(lowercaseQuery) || 
-                           localizedName.toLowerCase().contains(lowercaseQuery);
-                })
-                .collect(Collectors.toList());
-            
-            if (!results.isEmpty()) {
-                searchResults.put(playerId, results);
-            } else {
-                searchResults.remove(playerId);
+        List<Material> results = null;
+        if (query != null && !query.trim().isEmpty()) {
+            results = plugin.searchAllowedMaterials(player, query);
+            if (results.isEmpty()) {
+                results = null;
                 plugin.sendMessage(player, "messages.no-results");
             }
         }
-        
-        currentPage.put(playerId, 1);
-        updateInventory(player);
+
+        GuiSession state = guiManager.getSession(player);
+        synchronized (state) {
+            state.searchResults = results;
+            state.currentPage = 1;
+            render(player, state);
+        }
     }
 
     public void handleInventoryClick(InventoryClickEvent event, Player player) {
@@ -169,8 +161,8 @@ public class BlockSelectionGUI {
         
         // 检查冷却时间
         long currentTime = System.currentTimeMillis();
-        long openTime = lastGuiOpenTime.getOrDefault(player.getUniqueId(), 0L);
-        if (currentTime - openTime < GUI_OPERATION_COOLDOWN) {
+        GuiSession state = guiManager.findSession(player.getUniqueId());
+        if (state == null || currentTime - state.lastOpenTime < GUI_OPERATION_COOLDOWN) {
             return;
         }
 
@@ -185,73 +177,61 @@ public class BlockSelectionGUI {
             return;
         }
 
-        UUID playerId = player.getUniqueId();
-
-        // 使用synchronized块来确保线程安全
-        synchronized (this) {
-            // 在synchronized块内读取最新的页面状态
-            int page = currentPage.getOrDefault(playerId, 1);
-            List<Material> materials = searchResults.getOrDefault(playerId, plugin.getAllowedMaterialsForPlayer(player));
-            int itemsPerPage = calculateItemsPerPage();
-            int totalPages = Math.max(1, (int) Math.ceil(materials.size() / (double) itemsPerPage));
-
-            plugin.debug("按钮点击 - 玩家: " + player.getName() + ", 当前页: " + page + "/" + totalPages +
-                        ", 点击槽位: " + slot + ", 物品: " + clickedItem.getType());
-            plugin.debug("页面状态详情 - currentPage.get(" + playerId + ") = " + currentPage.get(playerId));
-
-            // 处理上一页按钮点击
-            if (slot == guiConfig.getPreviousPageSlot() && guiConfig.matchesPreviousPageButton(clickedItem)) {
-                if (page > 1) {
-                    currentPage.put(playerId, page - 1);
-                    updateInventory(player);
-                }
-                // 移除提示消息，用户可以通过按钮的视觉状态了解是否可以翻页
-                return;
-            }
-
-            // 处理下一页按钮点击
-            if (slot == guiConfig.getNextPageSlot() && guiConfig.matchesNextPageButton(clickedItem)) {
-                if (page < totalPages) {
-                    currentPage.put(playerId, page + 1);
-                    updateInventory(player);
+        // 只锁定该玩家自己的状态，不同玩家的点击可在各自的区域线程并行处理
+        synchronized (state) {
+            // 在锁内读取最新的页面状态
+            int page = state.currentPage;
+            GUIConfig.SlotLayout layout = guiConfig.getSlotLayout();
+            int action = layout.getAction(slot);
+
+            plugin.debug("按钮点击 - 玩家: " + player.getName() + ", 当前页: " + page +
+                        ", 点击槽位: " + slot + ", 动作: " + action + ", 物品: " + clickedItem.getType());
+
+            switch (action) {
+                case GUIConfig.ACTION_PREVIOUS_PAGE:
+                    if (page > 1) {
+                        state.currentPage = page - 1;
+                        render(player, state);
+                    }
+                    // 移除提示消息，用户可以通过按钮的视觉状态了解是否可以翻页
+                    return;
+                case GUIConfig.ACTION_NEXT_PAGE: {
+                    int itemsPerPage = layout.getContentSlotCount();
+                    int totalPages = Math.max(1, (int) Math.ceil(
+                        getDisplayMaterials(player, state).size() / (double) itemsPerPage));
+                    if (page < totalPages) {
+                        state.currentPage = page + 1;
+                        render(player, state);
+                    }
+                    return;
                 }
-                // 移除提示消息，用户可以通过按钮的视觉状态了解是否可以翻页
-                return;
-            }
-
-            // 处理关闭按钮点击
-            if (slot == guiConfig.getCloseSlot() && guiConfig.matchesCloseButton(clickedItem)) {
-                player.closeInventory();
-                return;
-            }
-
-            // 处理搜索按钮点击
-            if (slot == guiConfig.getSearchSlot() && guiConfig.matchesSearchButton(clickedItem)) {
-                player.closeInventory();
-                plugin.sendMessage(player, "messages.search-prompt");
-                GUIManager.setPlayerSearching(player, true);
-                return;
-            }
-
-            // 处理收藏按钮点击
-            if (guiConfig.isFavoritesEnabled() && slot == guiConfig.getFavoritesSlot() &&
-                guiConfig.matchesFavoritesButton(clickedItem)) {
-                // 打开收藏GUI
-                if (plugin.getFavoriteManager() != null) {
-                    plugin.getFavoriteGUI().openInventory(player);
-                } else {
-                    plugin.sendMessage(player, "messages.favorites-disabled");
-                }
-                return;
-            }
-
-            // 处理页码信息按钮点击（不执行任何操作，仅阻止替换）
-            if (slot == guiConfig.getPageInfoSlot() && guiConfig.matchesPageInfoButton(clickedItem)) {
-                return;
+                case GUIConfig.ACTION_CLOSE:
+                    player.closeInventory();
+                    return;
+                case GUIConfig.ACTION_SEARCH:
+                    // 先进入搜索状态，关闭界面时不清理选择状态
+                    state.searching = true;
+                    player.closeInventory();
+                    plugin.sendMessage(player, "messages.search-prompt");
+                    return;
+                case GUIConfig.ACTION_FAVORITES:
+                    // 打开收藏GUI
+                    if (plugin.getFavoriteManager() != null) {
+                        plugin.getFavoriteGUI().openInventory(player);
+                    } else {
+                        plugin.sendMessage(player, "messages.favorites-disabled");
+                    }
+                    return;
+                case GUIConfig.ACTION_PAGE_INFO:
+                case GUIConfig.ACTION_CUSTOM:
+                    // 页码信息和自定义材质不执行任何操作，仅阻止替换
+                    return;
+                default:
+                    break;
             }
 
             // 检查点击的物品是否在允许的材料列表中
-            if (!plugin.getAllowedMaterialsForPlayer(player).contains(clickedItem.getType())) {
+            if (!plugin.isMaterialAllowedForPlayer(player, clickedItem.getType())) {
                 return;
             }
 
@@ -262,7 +242,7 @@ public class BlockSelectionGUI {
                     String messageKey = isFavorited ? "messages.favorite-added" : "messages.favorite-removed";
                     plugin.sendMessage(player, messageKey,
                         plugin.getMinecraftLangManager().getItemStackName(clickedItem));
-                    updateInventory(player); // 刷新GUI显示收藏状态
+                    render(player, state); // 刷新GUI显示收藏状态
                 } else {
                     plugin.sendMessage(player, "messages.favorites-disabled");
                 }
@@ -270,7 +250,7 @@ public class BlockSelectionGUI {
             }
 
             // 替换方块（左键）
-            ItemStack originalItem = originalItems.get(playerId);
+            ItemStack originalItem = state.originalItem;
             if (originalItem != null && plugin.hasMagicLore(originalItem.getItemMeta())) {
                 ItemStack newItem = originalItem.clone();
                 newItem.setType(clickedItem.getType());
@@ -295,81 +275,66 @@ public class BlockSelectionGUI {
                 plugin.sendMessage(player, "messages.success-replace", plugin.getMinecraftLangManager().getItemStackName(clickedItem));
                 
                 // 清理记录
-                clearPlayerData(playerId);
+                clearPlayerData(player.getUniqueId());
                 player.closeInventory();
             }
         }
     }
 
-    /**
-     * 计算每页可显示的物品数量（排除按钮槽位）
-     */
-    private int calculateItemsPerPage() {
-        int totalSlots = guiConfig.getSize();
-        int availableSlots = 0;
-
-        // 计算实际可用的槽位数量
-        for (int i = 0; i < totalSlots; i++) {
-            if (!guiConfig.isButtonSlot(i)) {
-                availableSlots++;
-            }
-        }
-
-        return availableSlots;
-    }
-
-
-
     /**
      * 重新加载GUI配置
      */
     public void reloadConfig() {
         guiConfig.loadConfig();
+        displayItems.clear();
     }
 
+    /**
+     * 从模板缓存复制显示物品，只按玩家的收藏状态选择变体
+     */
     private ItemStack createMagicBlock(Material material, Player player) {
-        ItemStack block = new ItemStack(material);
-        ItemMeta meta = block.getItemMeta();
-        if (meta != null) {
-            String blockName = plugin.getMinecraftLangManager().getItemStackName(block);
-            // 在原有名称两侧添加装饰符号
-            String nameFormat = plugin.getConfig().getString("display.block-name-format", "&b✦ %s &b✦");
-            meta.setDisplayName(ChatColor.translateAlternateColorCodes('&',
-                String.format(nameFormat, blockName)));
-
-            // 创建lore列表
-            List<String> lore = new ArrayList<>();
+        boolean isFavorited = guiConfig.isFavoritesEnabled() && plugin.getFavoriteManager() != null
+                && plugin.getFavoriteManager().isFavorited(player, material);
+        return displayItems.get(material, isFavorited ? 1 : 0);
+    }
+
+    /**
+     * 创建显示物品模板
+     *
+     * @param variant 1 表示已收藏，0 表示未收藏
+     */
+    private ItemStack createMagicBlockTemplate(Material material, int variant) {
+        // 创建lore列表
+        List<String> lore = new ArrayList<>();
+        lore.add(ChatColor.translateAlternateColorCodes('&',
+            plugin.getConfig().getString("gui.text.select-block-left", "&7» 左键选择此方块")));
+
+        if (guiConfig.isFavoritesEnabled()) {
             lore.add(ChatColor.translateAlternateColorCodes('&',
-                plugin.getConfig().getString("gui.text.select-block-left", "&7» 左键选择此方块")));
-
-            if (guiConfig.isFavoritesEnabled()) {
-                lore.add(ChatColor.translateAlternateColorCodes('&',
-                    plugin.getConfig().getString("gui.text.select-block-right", "&7» 右键收藏/取消收藏")));
-                lore.add(""); // 空行
-
-                // 显示收藏状态（如果有玩家信息）
-                if (player != null && plugin.getFavoriteManager() != null) {
-                    boolean isFavorited = plugin.getFavoriteManager().isFavorited(player, material);
-                    String favoriteStatus = isFavorited ?
-                        plugin.getConfig().getString("gui.text.favorited", "&e⭐ 已收藏") :
-                        plugin.getConfig().getString("gui.text.not-favorited", "&8☆ 未收藏");
-                    lore.add(ChatColor.translateAlternateColorCodes('&', favoriteStatus));
-                }
-            } else {
-                lore.add(ChatColor.translateAlternateColorCodes('&',
-                    plugin.getConfig().getString("gui.text.select-block", "&7» 点击选择此方块")));
+                plugin.getConfig().getString("gui.text.select-block-right", "&7» 右键收藏/取消收藏")));
+            lore.add(""); // 空行
+
+            // 显示收藏状态
+            if (plugin.getFavoriteManager() != null) {
+                String favoriteStatus = variant == 1 ?
+                    plugin.getConfig().getString("gui.text.favorited", "&e⭐ 已收藏") :
+                    plugin.getConfig().getString("gui.text.not-favorited", "&8☆ 未收藏");
+                lore.add(ChatColor.translateAlternateColorCodes('&', favoriteStatus));
             }
-
-            meta.setLore(lore);
-            block.setItemMeta(meta);
+        } else {
+            lore.add(ChatColor.translateAlternateColorCodes('&',
+                plugin.getConfig().getString("gui.text.select-block", "&7» 点击选择此方块")));
         }
-        return block;
+
+        return displayItems.createNamedItem(material, lore);
     }
 
     public void clearPlayerData(UUID playerUUID) {
-        currentPage.remove(playerUUID);
-        searchResults.remove(playerUUID);
-        originalItems.remove(playerUUID);
-        lastGuiOpenTime.remove(playerUUID);
+        GuiSession state = guiManager.findSession(playerUUID);
+        if (state != null) {
+            synchronized (state) {
+                state.resetSelection();
+            }
+        }
     }
 }
@@ -0,0 +1,110 @@
+package io.github.syferie.magicblock.gui;
+
+import io.github.syferie.magicblock.MagicBlockPlugin;
+import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GUI 显示物品模板缓存
+ *
+ * 工作原理:
+ * - 按 (材料, 变体) 缓存已设置好名称和 lore 的模板，渲染时只做 clone
+ * - 变体由各 GUI 自行定义，例如收藏状态，玩家相关的部分通过选择变体叠加
+ * - 模板依赖方块名称翻译和 GUI 文本配置，语言变化或重载配置时整体清空
+ *
+ * 线程安全:
+ * - 模板保存在 ConcurrentHashMap 中，创建后不再修改，返回的都是副本
+ */
+public class DisplayItemCache {
+
+    /**
+     * 按材料和变体创建模板
+     */
+    @FunctionalInterface
+    public interface TemplateFactory {
+        ItemStack create(Material material, int variant);
+    }
+
+    private static final int VARIANT_BITS = 4;
+
+    private final MagicBlockPlugin plugin;
+    private final TemplateFactory factory;
+    private final Map<Integer, ItemStack> templates = new ConcurrentHashMap<>();
+    private volatile String language;
+
+    // 性能统计
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+
+    public DisplayItemCache(MagicBlockPlugin plugin, TemplateFactory factory) {
+        this.plugin = plugin;
+        this.factory = factory;
+    }
+
+    /**
+     * 获取显示物品的副本
+     *
+     * @param variant 变体编号 (0-15)
+     */
+    public ItemStack get(Material material, int variant) {
+        String currentLanguage = plugin.getMinecraftLangManager().getCurrentLanguage();
+        if (!Objects.equals(currentLanguage, language)) {
+            templates.clear();
+            language = currentLanguage;
+        }
+
+        int key = (material.ordinal() << VARIANT_BITS) | variant;
+        ItemStack template = templates.get(key);
+        if (template != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            template = templates.computeIfAbsent(key, k -> factory.create(material, variant));
+        }
+        return template.clone();
+    }
+
+    /**
+     * 创建带有配置名称格式和指定 lore 的物品
+     */
+    public ItemStack createNamedItem(Material material, List<String> lore) {
+        ItemStack item = new ItemStack(material);
+        ItemMeta meta = item.getItemMeta();
+        if (meta != null) {
+            String blockName = plugin.getMinecraftLangManager().getItemStackName(item);
+            // 在原有名称两侧添加装饰符号
+            String nameFormat = plugin.getConfig().getString("display.block-name-format", "&b✦ %s &b✦");
+            meta.setDisplayName(ChatColor.translateAlternateColorCodes('&',
+                String.format(nameFormat, blockName)));
+            meta.setLore(lore);
+            item.setItemMeta(meta);
+        }
+        return item;
+    }
+
+    /**
+     * 清空所有模板（重载配置时调用）
+     */
+    public void clear() {
+        templates.clear();
+    }
+
+    /**
+     * 获取性能统计信息
+     */
+    public String getPerformanceStats() {
+        long total = hits.get() + misses.get();
+        return String.format(
+            "显示物品缓存统计 - 模板数: %d, 命中: %d, 未命中: %d, 命中率: %.1f%%",
+            templates.size(), hits.get(), misses.get(), total == 0 ? 0.0 : hits.get() * 100.0 / total
+        );
+    }
+}
@@ -43,7 +43,7 @@ public class FavoriteGUI extends AbstractPagedGUI {
     }
 
     @Override
-    protected List<String> createItemLore(Material material, Player player) {
+    protected List<String> createItemLore(Material material, int variant) {
         List<String> lore = new ArrayList<>();
 
         lore.add(ChatColor.translateAlternateColorCodes('&',
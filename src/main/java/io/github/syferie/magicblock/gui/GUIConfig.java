@@ -16,6 +16,17 @@ import java.util.Map;
  * 负责从配置文件中读取GUI设置并创建相应的物品
  */
 public class GUIConfig {
+
+    // 槽位动作
+    public static final int ACTION_NONE = 0;
+    public static final int ACTION_PREVIOUS_PAGE = 1;
+    public static final int ACTION_NEXT_PAGE = 2;
+    public static final int ACTION_PAGE_INFO = 3;
+    public static final int ACTION_SEARCH = 4;
+    public static final int ACTION_FAVORITES = 5;
+    public static final int ACTION_CLOSE = 6;
+    public static final int ACTION_CUSTOM = 7;
+
     private final MagicBlockPlugin plugin;
     private final ItemCreator itemCreator;
     
@@ -41,6 +52,9 @@ public class GUIConfig {
     private String removeBlockText;
     private String removeBlockNoteText;
     private String remainingUsesText;
+
+    // 加载时预先计算的槽位布局
+    private volatile SlotLayout slotLayout;
     
     public GUIConfig(MagicBlockPlugin plugin) {
         this.plugin = plugin;
@@ -57,6 +71,7 @@ public class GUIConfig {
         if (guiSection == null) {
             plugin.getLogger().warning("GUI配置节不存在，使用默认配置");
             loadDefaultConfig();
+            this.slotLayout = buildSlotLayout();
             return;
         }
         
@@ -103,7 +118,50 @@ public class GUIConfig {
             loadDefaultTextConfigs();
         }
 
-        plugin.debug("GUI配置加载完成 - 标题: " + title + ", 行数: " + rows);
+        this.slotLayout = buildSlotLayout();
+
+        plugin.debug("GUI配置加载完成 - 标题: " + title + ", 行数: " + rows +
+            ", 物品槽位: " + slotLayout.contentSlots.length);
+    }
+
+    /**
+     * 根据按钮配置计算每个槽位的动作和剩余的物品槽位
+     * 按渲染顺序写入，槽位冲突时后写入的按钮生效
+     */
+    private SlotLayout buildSlotLayout() {
+        int size = getSize();
+        int[] actions = new int[size];
+        int[] navigationActions = new int[size];
+        String[] customKeys = new String[size];
+        boolean favoritesEnabled = plugin.getConfig().getBoolean("gui.buttons.favorites.enabled", true);
+
+        setAction(navigationActions, previousPageButton.slot, ACTION_PREVIOUS_PAGE);
+        setAction(navigationActions, nextPageButton.slot, ACTION_NEXT_PAGE);
+        setAction(navigationActions, pageInfoButton.slot, ACTION_PAGE_INFO);
+
+        System.arraycopy(navigationActions, 0, actions, 0, size);
+        setAction(actions, searchButton.slot, ACTION_SEARCH);
+        if (favoritesEnabled) {
+            setAction(actions, favoritesButton.slot, ACTION_FAVORITES);
+        }
+        setAction(actions, closeButton.slot, ACTION_CLOSE);
+        for (Map.Entry<String, ButtonConfig> entry : customMaterials.entrySet()) {
+            int slot = entry.getValue().slot;
+            if (setAction(actions, slot, ACTION_CUSTOM)) {
+                customKeys[slot] = entry.getKey();
+            }
+        }
+
+        return new SlotLayout(actions, navigationActions, customKeys, favoritesEnabled);
+    }
+
+    private boolean setAction(int[] actions, int slot, int action) {
+        if (slot < 0 || slot >= actions.length) {
+            plugin.debug("按钮槽位 " + slot + " 超出GUI范围，已忽略");
+            return false;
+        }
+        actions[slot] = action;
+        return true;
     }
     
     /**
@@ -349,52 +407,18 @@ public class GUIConfig {
         return favoritesButton.slot;
     }
     
-    // 检查物品是否匹配按钮（包括禁用状态）
-    public boolean matchesPreviousPageButton(ItemStack item) {
-        // 检查正常状态
-        if (itemCreator.matchesMaterial(item, previousPageButton.material)) {
-            return true;
-        }
-        // 检查禁用状态
-        if (previousPageButton.disabled != null) {
-            return itemCreator.matchesMaterial(item, previousPageButton.disabled.material);
-        }
-        return false;
-    }
-
-    public boolean matchesNextPageButton(ItemStack item) {
-        // 检查正常状态
-        if (itemCreator.matchesMaterial(item, nextPageButton.material)) {
-            return true;
-        }
-        // 检查禁用状态
-        if (nextPageButton.disabled != null) {
-            return itemCreator.matchesMaterial(item, nextPageButton.disabled.material);
-        }
-        return false;
-    }
-    
-    public boolean matchesSearchButton(ItemStack item) {
-        return itemCreator.matchesMaterial(item, searchButton.material);
-    }
-    
-    public boolean matchesCloseButton(ItemStack item) {
-        return itemCreator.matchesMaterial(item, closeButton.material);
-    }
-
-    public boolean matchesFavoritesButton(ItemStack item) {
-        return itemCreator.matchesMaterial(item, favoritesButton.material);
-    }
-
-    public boolean matchesPageInfoButton(ItemStack item) {
-        return itemCreator.matchesMaterial(item, pageInfoButton.material);
-    }
-
     /**
      * 检查收藏功能是否启用
      */
     public boolean isFavoritesEnabled() {
-        return plugin.getConfig().getBoolean("gui.buttons.favorites.enabled", true);
+        return slotLayout.favoritesEnabled;
+    }
+
+    /**
+     * 获取当前的槽位布局，重载配置后返回新的布局
+     */
+    public SlotLayout getSlotLayout() {
+        return slotLayout;
     }
 
     // GUI文本配置的getter方法
@@ -427,31 +451,6 @@ public class GUIConfig {
         return customMaterials;
     }
 
-    /**
-     * 检查指定槽位是否是按钮槽位（包括自定义材质）
-     */
-    public boolean isButtonSlot(int slot) {
-        // 检查标准按钮
-        if (slot == getPreviousPageSlot() || slot == getNextPageSlot() ||
-            slot == getPageInfoSlot() || slot == getSearchSlot() || slot == getCloseSlot()) {
-            return true;
-        }
-
-        // 检查收藏按钮（如果启用）
-        if (isFavoritesEnabled() && slot == getFavoritesSlot()) {
-            return true;
-        }
-
-        // 检查自定义材质槽位
-        for (ButtonConfig config : customMaterials.values()) {
-            if (config.slot == slot) {
-                return true;
-            }
-        }
-
-        return false;
-    }
-
     /**
      * 创建自定义材质物品
      */
@@ -463,6 +462,92 @@ public class GUIConfig {
         return null;
     }
     
+    /**
+     * 槽位布局
+     *
+     * 加载配置时计算一次，创建后不再修改:
+     * - 方块选择界面: 槽位 -> 动作，以及没有任何按钮的物品槽位
+     * - 分页界面（收藏等）: 只有导航按钮，其余槽位都用于放置物品
+     * 渲染和点击处理都只需按槽位取数组
+     */
+    public static final class SlotLayout {
+        private final int[] actions;
+        private final int[] navigationActions;
+        private final String[] customKeys;
+        private final int[] contentSlots;
+        private final int[] navigationContentSlots;
+        private final boolean favoritesEnabled;
+
+        SlotLayout(int[] actions, int[] navigationActions, String[] customKeys, boolean favoritesEnabled) {
+            this.actions = actions;
+            this.navigationActions = navigationActions;
+            this.customKeys = customKeys;
+            this.contentSlots = freeSlots(actions);
+            this.navigationContentSlots = freeSlots(navigationActions);
+            this.favoritesEnabled = favoritesEnabled;
+        }
+
+        private static int[] freeSlots(int[] actions) {
+            int count = 0;
+            for (int action : actions) {
+                if (action == ACTION_NONE) count++;
+            }
+            int[] slots = new int[count];
+            int index = 0;
+            for (int slot = 0; slot < actions.length; slot++) {
+                if (actions[slot] == ACTION_NONE) slots[index++] = slot;
+            }
+            return slots;
+        }
+
+        public int getSize() {
+            return actions.length;
+        }
+
+        /**
+         * 方块选择界面中槽位对应的动作，超出范围返回 ACTION_NONE
+         */
+        public int getAction(int slot) {
+            return slot >= 0 && slot < actions.length ? actions[slot] : ACTION_NONE;
+        }
+
+        /**
+         * 分页界面中槽位对应的导航动作，超出范围返回 ACTION_NONE
+         */
+        public int getNavigationAction(int slot) {
+            return slot >= 0 && slot < navigationActions.length ? navigationActions[slot] : ACTION_NONE;
+        }
+
+        /**
+         * ACTION_CUSTOM 槽位对应的自定义材质键
+         */
+        public String getCustomKey(int slot) {
+            return customKeys[slot];
+        }
+
+        public int getContentSlotCount() {
+            return contentSlots.length;
+        }
+
+        /**
+         * 第 index 个物品槽位（方块选择界面）
+         */
+        public int getContentSlot(int index) {
+            return contentSlots[index];
+        }
+
+        public int getNavigationContentSlotCount() {
+            return navigationContentSlots.length;
+        }
+
+        /**
+         * 第 index 个物品槽位（分页界面）
+         */
+        public int getNavigationContentSlot(int index) {
+            return navigationContentSlots[index];
+        }
+    }
+
     /**
      * 按钮配置类
      */
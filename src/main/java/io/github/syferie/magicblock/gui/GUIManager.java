@@ -11,6 +11,7 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryCloseEvent;
 import org.bukkit.event.player.AsyncPlayerChatEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.inventory.ItemStack;
 
 import java.util.List;
@@ -21,56 +22,71 @@ import java.util.Map;
 public class GUIManager implements Listener {
     private final MagicBlockPlugin plugin;
     private final BlockSelectionGUI blockSelectionGUI;
-    private static final Map<UUID, Boolean> searchingPlayers = new ConcurrentHashMap<>();
-    private static final Map<UUID, Boolean> updatingGUI = new ConcurrentHashMap<>();
+    private final BindListGUI bindListGUI;
+    // 每个玩家一个会话，首次打开GUI时创建，退出时移除
+    private final Map<UUID, GuiSession> sessions = new ConcurrentHashMap<>();
     private static final long GUI_CLICK_COOLDOWN = 300;
-    private static final Map<UUID, Long> lastSearchClickTime = new ConcurrentHashMap<>();
     private static final long SEARCH_CLICK_COOLDOWN = 600;
-    private static final Map<UUID, Long> lastGuiOpenTime = new ConcurrentHashMap<>();
     private static final long GUI_PROTECTION_TIME = 200;
     private final FoliaLib foliaLib;
 
     public GUIManager(MagicBlockPlugin plugin, List<Material> allowedMaterials) {
         this.plugin = plugin;
-        this.blockSelectionGUI = new BlockSelectionGUI(plugin);
+        this.blockSelectionGUI = new BlockSelectionGUI(plugin, this);
+        this.bindListGUI = new BindListGUI(plugin, this);
         this.foliaLib = plugin.getFoliaLib();
     }
 
-    public static void setPlayerSearching(Player player, boolean searching) {
-        if (searching) {
-            searchingPlayers.put(player.getUniqueId(), true);
-        } else {
-            searchingPlayers.remove(player.getUniqueId());
-        }
+    /**
+     * 获取玩家的GUI会话，不存在时创建
+     */
+    public GuiSession getSession(Player player) {
+        return sessions.computeIfAbsent(player.getUniqueId(), k -> new GuiSession());
     }
 
-    public static boolean isPlayerSearching(Player player) {
-        return searchingPlayers.getOrDefault(player.getUniqueId(), false);
+    /**
+     * 获取玩家的GUI会话，不存在时返回null
+     */
+    public GuiSession findSession(UUID playerUUID) {
+        return sessions.get(playerUUID);
     }
 
-    public static void setPlayerUpdatingGUI(Player player, boolean updating) {
-        if (updating) {
-            updatingGUI.put(player.getUniqueId(), true);
+    public void setPlayerSearching(Player player, boolean searching) {
+        if (searching) {
+            getSession(player).searching = true;
         } else {
-            updatingGUI.remove(player.getUniqueId());
+            GuiSession session = sessions.get(player.getUniqueId());
+            if (session != null) {
+                session.searching = false;
+            }
         }
     }
 
-    public static boolean isPlayerUpdatingGUI(Player player) {
-        return updatingGUI.getOrDefault(player.getUniqueId(), false);
+    public boolean isPlayerSearching(Player player) {
+        GuiSession session = sessions.get(player.getUniqueId());
+        return session != null && session.searching;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        sessions.remove(event.getPlayer().getUniqueId());
     }
 
     public BlockSelectionGUI getBlockSelectionGUI() {
         return blockSelectionGUI;
     }
 
+    public BindListGUI getBindListGUI() {
+        return bindListGUI;
+    }
+
     public void openBlockSelectionGUI(Player player) {
         ItemStack heldItem = player.getInventory().getItemInMainHand();
         if (!plugin.hasMagicLore(heldItem.getItemMeta())) {
             plugin.sendMessage(player, "messages.must-hold-magic-block");
             return;
         }
-        lastGuiOpenTime.put(player.getUniqueId(), System.currentTimeMillis());
+        getSession(player).lastGuiOpenTime = System.currentTimeMillis();
         blockSelectionGUI.openInventory(player);
     }
 
@@ -124,8 +140,8 @@ public class GUIManager implements Listener {
         // 立即取消事件，防止传播
         event.setCancelled(true);
             
-        // 使用computeIfAbsent来确保线程安全的获取上次打开时间
-        long openTime = lastGuiOpenTime.computeIfAbsent(player.getUniqueId(), k -> 0L);
+        GuiSession session = getSession(player);
+        long openTime = session.lastGuiOpenTime;
         long currentTime = System.currentTimeMillis();
             
         if (currentTime - openTime < GUI_PROTECTION_TIME) {
@@ -139,13 +155,11 @@ public class GUIManager implements Listener {
 
         // 检查是否是搜索按钮
         if (clickedItem.getType() == Material.COMPASS) {
-            // 使用原子操作检查冷却时间
-            Long lastClick = lastSearchClickTime.get(player.getUniqueId());
-            if (lastClick != null && currentTime - lastClick < SEARCH_CLICK_COOLDOWN) {
+            if (currentTime - session.lastSearchClickTime < SEARCH_CLICK_COOLDOWN) {
                 plugin.sendMessage(player, "messages.wait-cooldown");
                 return;
             }
-            lastSearchClickTime.put(player.getUniqueId(), currentTime);
+            session.lastSearchClickTime = currentTime;
         }
             
         // 使用FoliaLib确保在主线程执行GUI操作
@@ -155,7 +169,7 @@ public class GUIManager implements Listener {
                 if (isBlockSelectionGUI) {
                     blockSelectionGUI.handleInventoryClick(event, player);
                 } else if (isFavoritesGUI) {
-                    plugin.getFavoriteGUI().handleClick(player, event.getSlot(),
+                    plugin.getFavoriteGUI().handleClick(player, event.getRawSlot(),
                         event.getCurrentItem(), event.isRightClick());
                 }
             }
@@ -174,10 +188,12 @@ public class GUIManager implements Listener {
         String favoritesTitle = ChatColor.stripColor(ChatColor.translateAlternateColorCodes('&',
             plugin.getConfig().getString("gui.text.favorites-title", "&8⚡ &b我的收藏")));
 
-        if (guiTitle.equals(blockSelectionTitle) && !isPlayerSearching(player) && !isPlayerUpdatingGUI(player)) {
+        GuiSession session = sessions.get(player.getUniqueId());
+        boolean updating = session != null && session.updating;
+        if (guiTitle.equals(blockSelectionTitle) && !isPlayerSearching(player) && !updating) {
             // 只有在不是因为搜索或GUI更新而关闭GUI时才清理数据
             blockSelectionGUI.clearPlayerData(player.getUniqueId());
-        } else if (guiTitle.equals(favoritesTitle) && !isPlayerUpdatingGUI(player)) {
+        } else if (guiTitle.equals(favoritesTitle) && !updating) {
             // 清理收藏GUI数据
             plugin.getFavoriteGUI().clearPlayerData(player.getUniqueId());
         }
@@ -0,0 +1,74 @@
+package io.github.syferie.magicblock.gui;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.List;
+
+/**
+ * 玩家的GUI会话
+ *
+ * 设计目的:
+ * - 把搜索、更新、冷却和方块选择界面的状态集中到一个对象，每个事件只需一次查找
+ * - 首次打开GUI时创建，玩家退出时移除，内存占用不超过在线玩家数
+ *
+ * 线程安全:
+ * - 标志和时间戳为 volatile，可在异步聊天线程读取
+ * - 方块选择界面的状态只在持有该会话的锁时读写，不同玩家互不竞争
+ */
+public final class GuiSession {
+
+    // 等待玩家在聊天中输入搜索内容
+    volatile boolean searching;
+    // 正在重新打开界面，期间的关闭事件不清理数据
+    volatile boolean updating;
+    // GUIManager: 打开保护和搜索按钮冷却
+    volatile long lastGuiOpenTime;
+    volatile long lastSearchClickTime;
+    // Shift+左键打开GUI的冷却
+    volatile long lastInteractOpenTime;
+
+    // 方块选择界面状态
+    int currentPage = 1;
+    List<Material> searchResults; // null 表示未搜索
+    ItemStack originalItem;
+    long lastOpenTime;
+    RenderedInventory view;
+
+    // 绑定列表界面状态
+    List<BindListGUI.Entry> bindEntries; // null 表示未打开
+    int bindPage = 1;
+    RenderedInventory bindView;
+
+    /**
+     * 关闭方块选择界面时清理界面状态，保留冷却时间
+     */
+    void resetSelection() {
+        currentPage = 1;
+        searchResults = null;
+        originalItem = null;
+        lastOpenTime = 0L;
+        view = null;
+    }
+
+    public boolean isSearching() {
+        return searching;
+    }
+
+    public void setSearching(boolean searching) {
+        this.searching = searching;
+    }
+
+    /**
+     * 检查并记录Shift+左键打开GUI的冷却
+     *
+     * @return 冷却已结束返回true
+     */
+    public boolean tryInteractOpen(long now, long cooldownMs) {
+        if (now - lastInteractOpenTime < cooldownMs) {
+            return false;
+        }
+        lastInteractOpenTime = now;
+        return true;
+    }
+}
@@ -0,0 +1,69 @@
+package io.github.syferie.magicblock.gui;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.Objects;
+
+/**
+ * 每个玩家复用的GUI界面
+ *
+ * 工作原理:
+ * - 翻页、搜索、收藏切换时复用同一个 Inventory，只写入与上次渲染不同的槽位
+ * - 玩家正在查看该界面时不重新打开，避免关闭/打开数据包和闪烁
+ * - 大小或标题变化（重载配置）时才创建新的界面
+ */
+final class RenderedInventory {
+
+    private final Inventory inventory;
+    private final String title;
+    private final ItemStack[] rendered;
+
+    private RenderedInventory(int size, String title) {
+        this.inventory = Bukkit.createInventory(null, size, title);
+        this.title = title;
+        this.rendered = new ItemStack[size];
+    }
+
+    /**
+     * 大小和标题未变化时复用上次的界面，否则创建新界面
+     */
+    static RenderedInventory reuseOrCreate(RenderedInventory previous, int size, String title) {
+        if (previous != null && previous.rendered.length == size && previous.title.equals(title)) {
+            return previous;
+        }
+        return new RenderedInventory(size, title);
+    }
+
+    Inventory getInventory() {
+        return inventory;
+    }
+
+    /**
+     * 写入新的界面内容，只更新变化的槽位
+     *
+     * @param contents 长度与界面大小相同，null 表示空槽位
+     * @return 实际更新的槽位数量
+     */
+    int render(ItemStack[] contents) {
+        int changed = 0;
+        for (int slot = 0; slot < rendered.length; slot++) {
+            ItemStack item = contents[slot];
+            if (!Objects.equals(rendered[slot], item)) {
+                inventory.setItem(slot, item);
+                rendered[slot] = item;
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * 玩家当前是否正在查看该界面
+     */
+    boolean isViewedBy(Player player) {
+        return player.getOpenInventory().getTopInventory() == inventory;
+    }
+}
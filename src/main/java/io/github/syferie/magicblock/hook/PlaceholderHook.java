@@ -1,7 +1,9 @@
 package io.github.syferie.magicblock.hook;
 
 import io.github.syferie.magicblock.MagicBlockPlugin;
+import io.github.syferie.magicblock.util.UsageAnalytics;
 import me.clip.placeholderapi.expansion.PlaceholderExpansion;
+import org.bukkit.Material;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.inventory.ItemStack;
 import org.jetbrains.annotations.NotNull;
@@ -43,6 +45,12 @@ public class PlaceholderHook extends PlaceholderExpansion {
             return String.valueOf(plugin.getPlayerUsage(player.getUniqueId()));
         }
 
+        // 按时间窗口的使用分析:
+        // analytics_<place|eat>_<minute|hour|day>[_数量[_material_<材质>|_world_<世界>]]
+        if (params.toLowerCase().startsWith("analytics_")) {
+            return getAnalytics(params.substring("analytics_".length()));
+        }
+
         // 魔法食物 - 手持物品的剩余使用次数
         if (params.equalsIgnoreCase("magicfood_remaining_uses")) {
             try {
@@ -227,4 +235,28 @@ public class PlaceholderHook extends PlaceholderExpansion {
 
         return null;
     }
-}
\ No newline at end of file
+
+    private String getAnalytics(String query) {
+        UsageAnalytics analytics = plugin.getUsageAnalytics();
+        if (analytics == null) return "0";
+
+        // 世界名可能包含下划线，最多拆分为5段
+        String[] parts = query.split("_", 5);
+        try {
+            UsageAnalytics.EventType type = UsageAnalytics.EventType.valueOf(parts[0].toUpperCase());
+            UsageAnalytics.Window window = UsageAnalytics.Window.valueOf(parts[1].toUpperCase());
+            int span = parts.length > 2 ? Integer.parseInt(parts[2]) : 1;
+
+            if (parts.length == 5 && parts[3].equalsIgnoreCase("material")) {
+                Material material = Material.matchMaterial(parts[4]);
+                return material != null ? String.valueOf(analytics.count(type, material, window, span)) : "0";
+            }
+            if (parts.length == 5 && parts[3].equalsIgnoreCase("world")) {
+                return String.valueOf(analytics.count(type, parts[4], window, span));
+            }
+            return String.valueOf(analytics.count(type, window, span));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            return "0";
+        }
+    }
+}
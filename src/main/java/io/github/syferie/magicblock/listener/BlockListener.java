@@ -81,6 +81,9 @@ public class BlockListener implements Listener {
         if (guiManager != null && guiManager.getBlockSelectionGUI() != null) {
             guiManager.getBlockSelectionGUI().reloadConfig();
         }
+        if (guiManager != null) {
+            guiManager.getBindListGUI().reloadConfig();
+        }
     }
 
     /**
@@ -135,6 +135,12 @@ public class BlockContainerHandler extends BaseListener {
         }
 
         event.setCancelled(true);
+
+        // 翻页按钮
+        if (plugin.getGuiManager().getBindListGUI().handleNavigationClick(player, event.getRawSlot())) {
+            return;
+        }
+
         ItemStack clickedItem = event.getCurrentItem();
 
         if (clickedItem == null || clickedItem.getType() == Material.AIR) {
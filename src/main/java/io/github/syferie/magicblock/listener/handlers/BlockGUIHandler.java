@@ -37,7 +37,7 @@ public class BlockGUIHandler extends BaseListener {
     public void onPlayerChat(AsyncPlayerChatEvent event) {
         Player player = event.getPlayer();
 
-        if (!GUIManager.isPlayerSearching(player)) {
+        if (!guiManager.isPlayerSearching(player)) {
             return;
         }
 
@@ -46,7 +46,7 @@ public class BlockGUIHandler extends BaseListener {
 
         // 处理取消搜索
         if (input.equalsIgnoreCase("cancel")) {
-            GUIManager.setPlayerSearching(player, false);
+            guiManager.setPlayerSearching(player, false);
             plugin.getServer().getScheduler().runTask(plugin, () -> {
                 guiManager.getBlockSelectionGUI().openInventory(player);
             });
@@ -56,7 +56,7 @@ public class BlockGUIHandler extends BaseListener {
         // 处理搜索
         plugin.getServer().getScheduler().runTask(plugin, () -> {
             guiManager.getBlockSelectionGUI().handleSearch(player, input);
-            GUIManager.setPlayerSearching(player, false);
+            guiManager.setPlayerSearching(player, false);
         });
     }
 
@@ -67,7 +67,7 @@ public class BlockGUIHandler extends BaseListener {
     public void onPlayerItemHeld(PlayerItemHeldEvent event) {
         Player player = event.getPlayer();
 
-        if (!GUIManager.isPlayerSearching(player)) {
+        if (!guiManager.isPlayerSearching(player)) {
             return;
         }
 
@@ -77,7 +77,7 @@ public class BlockGUIHandler extends BaseListener {
 
         // 如果切换到非魔法方块，退出搜索模式
         if (!hasSpecialLore) {
-            GUIManager.setPlayerSearching(player, false);
+            guiManager.setPlayerSearching(player, false);
             player.sendMessage(plugin.getMessage("messages.item-changed"));
         }
     }
@@ -13,8 +13,6 @@ import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.inventory.EquipmentSlot;
 import org.bukkit.inventory.ItemStack;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -32,7 +30,6 @@ import java.util.UUID;
 public class BlockInteractionHandler extends BaseListener {
 
     private static final long GUI_OPEN_COOLDOWN = 300; // 毫秒
-    private final Map<UUID, Long> lastGuiOpenTime = new HashMap<>();
     private final GUIManager guiManager;
 
     public BlockInteractionHandler(MagicBlockPlugin plugin, GUIManager guiManager) {
@@ -149,15 +146,8 @@ public class BlockInteractionHandler extends BaseListener {
      * 检查冷却时间
      */
     private boolean checkCooldown(Player player) {
-        long currentTime = System.currentTimeMillis();
-        Long lastTime = lastGuiOpenTime.get(player.getUniqueId());
-
-        if (lastTime != null && currentTime - lastTime < GUI_OPEN_COOLDOWN) {
-            return false;
-        }
-
-        lastGuiOpenTime.put(player.getUniqueId(), currentTime);
-        return true;
+        // 冷却时间保存在玩家的GUI会话中，退出时随会话移除
+        return guiManager.getSession(player).tryInteractOpen(System.currentTimeMillis(), GUI_OPEN_COOLDOWN);
     }
 
     /**
@@ -98,7 +98,6 @@ public class BlockPlacementHandler extends BaseListener {
         }
 
         // 7. 记录使用统计
-        plugin.incrementPlayerUsage(player.getUniqueId());
         plugin.logUsage(player, item);
     }
 
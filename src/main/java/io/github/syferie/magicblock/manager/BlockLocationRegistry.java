@@ -0,0 +1,598 @@
+package io.github.syferie.magicblock.manager;
+
+import io.github.syferie.magicblock.MagicBlockPlugin;
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.Container;
+import org.bukkit.block.DoubleChest;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Item;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.entity.EntityPickupItemEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.EntitiesLoadEvent;
+import org.bukkit.event.entity.ItemDespawnEvent;
+import org.bukkit.event.entity.ItemSpawnEvent;
+import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
+import org.bukkit.event.inventory.InventoryPickupItemEvent;
+import org.bukkit.event.player.PlayerDropItemEvent;
+import org.bukkit.event.player.PlayerItemHeldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 魔法方块位置登记表
+ * 记录每个 block_id 当前所在的位置（玩家背包 / 容器 / 掉落物实体），
+ * 由背包、拾取、丢弃和容器事件维护，取回方块时只需访问已知位置，无需扫描整个世界
+ *
+ * 区块加载时索引其中的容器和掉落物；启动时在各区域线程索引已加载的区块，
+ * 完成前登记表视为未预热（isWarm 返回false），取回方块时需要额外扫描
+ */
+public class BlockLocationRegistry implements Listener {
+
+    /**
+     * 方块所在位置的类型
+     */
+    public enum HolderType {
+        PLAYER, CONTAINER, ITEM
+    }
+
+    /**
+     * 方块所在位置：玩家/掉落物以实体UUID标识，容器以方块坐标标识
+     */
+    public static final class Holder {
+        private final HolderType type;
+        private final UUID entityId;
+        private final UUID worldId;
+        private final int x;
+        private final int y;
+        private final int z;
+
+        private Holder(HolderType type, UUID entityId, UUID worldId, int x, int y, int z) {
+            this.type = type;
+            this.entityId = entityId;
+            this.worldId = worldId;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        public static Holder player(UUID playerId) {
+            return new Holder(HolderType.PLAYER, playerId, null, 0, 0, 0);
+        }
+
+        public static Holder item(Item item) {
+            Location loc = item.getLocation();
+            return new Holder(HolderType.ITEM, item.getUniqueId(), loc.getWorld().getUID(),
+                    loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
+        }
+
+        public static Holder container(Location loc) {
+            return new Holder(HolderType.CONTAINER, null, loc.getWorld().getUID(),
+                    loc.getBlockX(), loc.getBlockY(), loc.getBlockZ());
+        }
+
+        public HolderType getType() {
+            return type;
+        }
+
+        public UUID getEntityId() {
+            return entityId;
+        }
+
+        /**
+         * 容器的方块坐标，掉落物为最后记录的位置；世界已卸载时返回null
+         */
+        public Location getLocation() {
+            if (worldId == null) return null;
+            World world = Bukkit.getWorld(worldId);
+            return world != null ? new Location(world, x, y, z) : null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Holder)) return false;
+            Holder other = (Holder) o;
+            if (type != other.type) return false;
+            // 掉落物会移动，只按实体UUID比较
+            if (type != HolderType.CONTAINER) return entityId.equals(other.entityId);
+            return x == other.x && y == other.y && z == other.z && worldId.equals(other.worldId);
+        }
+
+        @Override
+        public int hashCode() {
+            return type != HolderType.CONTAINER
+                    ? Objects.hash(type, entityId)
+                    : Objects.hash(type, worldId, x, y, z);
+        }
+
+        @Override
+        public String toString() {
+            return type == HolderType.CONTAINER
+                    ? type + "(" + worldId + "," + x + "," + y + "," + z + ")"
+                    : type + "(" + entityId + ")";
+        }
+    }
+
+    private final MagicBlockPlugin plugin;
+    private final NamespacedKey blockIdKey;
+
+    // block_id -> 所在位置
+    private final Map<String, Set<Holder>> holdersByBlock = new ConcurrentHashMap<>();
+    // 位置 -> 其中的 block_id，用于整体替换某个位置的内容
+    private final Map<Holder, Set<String>> blocksByHolder = new ConcurrentHashMap<>();
+    // block_id -> 版本号，用于判断方块的持有情况是否发生变化
+    private final Map<String, Long> blockVersions = new ConcurrentHashMap<>();
+    private final AtomicLong versionSequence = new AtomicLong(0);
+    // 已安排在下一tick重新索引的位置
+    private final Set<Holder> pendingReindex = ConcurrentHashMap.newKeySet();
+
+    // 启动时尚未完成索引的区块数，额外的1在全部派发后释放
+    private final AtomicInteger warmupPending = new AtomicInteger(1);
+    private volatile boolean warm;
+
+    // 性能统计
+    private final AtomicLong lookups = new AtomicLong(0);
+    private final AtomicLong reindexes = new AtomicLong(0);
+
+    public BlockLocationRegistry(MagicBlockPlugin plugin) {
+        this.plugin = plugin;
+        this.blockIdKey = new NamespacedKey(plugin, "block_id");
+
+        // 重载插件时为已在线玩家建立索引
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            plugin.getFoliaLib().getScheduler().runAtEntity(player, task -> trackPlayer(player));
+        }
+
+        // 索引已加载的区块，之后加载的区块由 ChunkLoadEvent 索引
+        for (World world : Bukkit.getWorlds()) {
+            for (Chunk chunk : world.getLoadedChunks()) {
+                int chunkX = chunk.getX();
+                int chunkZ = chunk.getZ();
+                warmupPending.incrementAndGet();
+                Location location = new Location(world, (chunkX << 4) + 8, 64, (chunkZ << 4) + 8);
+                plugin.getFoliaLib().getScheduler().runAtLocation(location, task -> {
+                    try {
+                        if (world.isChunkLoaded(chunkX, chunkZ)) {
+                            Chunk loaded = world.getChunkAt(chunkX, chunkZ);
+                            indexContainers(loaded);
+                            indexItems(loaded.getEntities());
+                        }
+                    } finally {
+                        finishWarmup();
+                    }
+                });
+            }
+        }
+        finishWarmup();
+    }
+
+    private void finishWarmup() {
+        if (warmupPending.decrementAndGet() == 0) {
+            warm = true;
+            plugin.debug("方块位置登记表预热完成 - 已登记方块: " + holdersByBlock.size());
+        }
+    }
+
+    /**
+     * 启动时的区块索引是否已全部完成
+     * 未完成时登记表可能缺少容器和掉落物中的方块
+     */
+    public boolean isWarm() {
+        return warm;
+    }
+
+    /**
+     * 获取方块当前所有已知位置的快照
+     */
+    public Set<Holder> getHolders(String blockId) {
+        lookups.incrementAndGet();
+        Set<Holder> holders = holdersByBlock.get(blockId);
+        return holders != null ? new HashSet<>(holders) : Collections.emptySet();
+    }
+
+    /**
+     * 重新索引玩家背包，需在玩家所在线程调用
+     */
+    public void trackPlayer(Player player) {
+        if (!player.isOnline()) return;
+        replace(Holder.player(player.getUniqueId()), collectBlockIds(player.getInventory()));
+    }
+
+    /**
+     * 重新索引容器，需在容器所在区域线程调用
+     */
+    public void trackContainer(Location location, Inventory inventory) {
+        replace(Holder.container(location), collectBlockIds(inventory));
+    }
+
+    /**
+     * 记录一个方块出现在指定位置（不影响该位置的其他方块）
+     */
+    public synchronized void add(String blockId, Holder holder) {
+        if (blockId == null) return;
+        blocksByHolder.computeIfAbsent(holder, k -> ConcurrentHashMap.newKeySet()).add(blockId);
+        if (holdersByBlock.computeIfAbsent(blockId, k -> ConcurrentHashMap.newKeySet()).add(holder)) {
+            bumpVersion(blockId);
+        }
+    }
+
+    /**
+     * 获取方块的背包版本号：任何持有该方块的位置被重新索引时都会变化
+     */
+    public long getVersion(String blockId) {
+        return blockVersions.getOrDefault(blockId, 0L);
+    }
+
+    private void bumpVersion(String blockId) {
+        blockVersions.put(blockId, versionSequence.incrementAndGet());
+    }
+
+    /**
+     * 移除某个位置的全部记录
+     */
+    public void untrack(Holder holder) {
+        replace(holder, Collections.emptySet());
+    }
+
+    /**
+     * 获取物品的 block_id，没有则返回null
+     */
+    public String getBlockId(ItemStack item) {
+        if (item == null || item.getType().isAir() || !item.hasItemMeta()) return null;
+        ItemMeta meta = item.getItemMeta();
+        return meta != null ? meta.getPersistentDataContainer().get(blockIdKey, PersistentDataType.STRING) : null;
+    }
+
+    /**
+     * 用新的内容整体替换某个位置的记录
+     */
+    private synchronized void replace(Holder holder, Set<String> blockIds) {
+        reindexes.incrementAndGet();
+        Set<String> previous = blockIds.isEmpty()
+                ? blocksByHolder.remove(holder)
+                : blocksByHolder.put(holder, blockIds);
+
+        if (previous != null) {
+            for (String blockId : previous) {
+                if (!blockIds.contains(blockId)) {
+                    bumpVersion(blockId);
+                    removeHolder(blockId, holder);
+                }
+            }
+        }
+        for (String blockId : blockIds) {
+            holdersByBlock.computeIfAbsent(blockId, k -> ConcurrentHashMap.newKeySet()).add(holder);
+            bumpVersion(blockId);
+        }
+    }
+
+    private void removeHolder(String blockId, Holder holder) {
+        holdersByBlock.computeIfPresent(blockId, (k, holders) -> {
+            holders.remove(holder);
+            if (holders.isEmpty()) {
+                blockVersions.remove(blockId);
+                return null;
+            }
+            return holders;
+        });
+    }
+
+    private Set<String> collectBlockIds(Inventory inventory) {
+        Set<String> blockIds = ConcurrentHashMap.newKeySet();
+        for (ItemStack item : inventory.getContents()) {
+            String blockId = getBlockId(item);
+            if (blockId != null) {
+                blockIds.add(blockId);
+            }
+        }
+        return blockIds;
+    }
+
+    /**
+     * 获取容器库存对应的方块坐标（大箱子取左半边）
+     */
+    private Location getContainerLocation(InventoryHolder holder) {
+        if (holder instanceof DoubleChest) {
+            InventoryHolder left = ((DoubleChest) holder).getLeftSide();
+            return left instanceof Container ? ((Container) left).getLocation() : null;
+        }
+        if (holder instanceof Container) {
+            return ((Container) holder).getLocation();
+        }
+        return null;
+    }
+
+    private void trackInventory(Inventory inventory) {
+        Location location = getContainerLocation(inventory.getHolder());
+        if (location != null) {
+            trackContainer(location, inventory);
+        }
+    }
+
+    /**
+     * 索引区块中含有魔法方块的容器，需在区块所在区域线程调用
+     */
+    private void indexContainers(Chunk chunk) {
+        for (BlockState state : chunk.getTileEntities()) {
+            if (!(state instanceof Container)) continue;
+            Inventory inventory = ((Container) state).getInventory();
+            Set<String> blockIds = collectBlockIds(inventory);
+            if (blockIds.isEmpty()) continue;
+            Location location = getContainerLocation(inventory.getHolder());
+            replace(Holder.container(location != null ? location : state.getLocation()), blockIds);
+        }
+    }
+
+    /**
+     * 索引魔法方块掉落物，需在实体所在区域线程调用
+     */
+    private void indexItems(Entity[] entities) {
+        for (Entity entity : entities) {
+            if (entity instanceof Item) {
+                String blockId = getBlockId(((Item) entity).getItemStack());
+                if (blockId != null) {
+                    add(blockId, Holder.item((Item) entity));
+                }
+            }
+        }
+    }
+
+    /**
+     * 在下一tick于玩家所在线程重新索引其背包，同一tick内的多次请求只执行一次
+     */
+    public void scheduleReindex(Player player) {
+        Holder holder = Holder.player(player.getUniqueId());
+        if (pendingReindex.add(holder)) {
+            plugin.getFoliaLib().getScheduler().runAtEntity(player, task -> {
+                pendingReindex.remove(holder);
+                trackPlayer(player);
+            });
+        }
+    }
+
+    /**
+     * 在下一tick于容器所在区域线程重新索引容器，非容器库存直接忽略
+     */
+    public void scheduleReindex(Inventory inventory) {
+        Location location = getContainerLocation(inventory.getHolder());
+        if (location == null) return;
+
+        Holder holder = Holder.container(location);
+        if (pendingReindex.add(holder)) {
+            plugin.getFoliaLib().getScheduler().runAtLocation(location, task -> {
+                pendingReindex.remove(holder);
+                trackContainer(location, inventory);
+            });
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        if (!event.isNewChunk()) {
+            indexContainers(event.getChunk());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onEntitiesLoad(EntitiesLoadEvent event) {
+        List<Entity> entities = event.getEntities();
+        indexItems(entities.toArray(new Entity[0]));
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        trackPlayer(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        untrack(Holder.player(event.getPlayer().getUniqueId()));
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onInventoryClose(InventoryCloseEvent event) {
+        if (event.getPlayer() instanceof Player) {
+            trackPlayer((Player) event.getPlayer());
+        }
+        trackInventory(event.getInventory());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryClick(InventoryClickEvent event) {
+        if (!(event.getWhoClicked() instanceof Player)) return;
+        Player player = (Player) event.getWhoClicked();
+
+        // 只有涉及带ID的魔法方块时才需要重新索引
+        boolean involvesBlock = getBlockId(event.getCurrentItem()) != null || getBlockId(event.getCursor()) != null;
+        if (!involvesBlock && event.getHotbarButton() >= 0) {
+            involvesBlock = getBlockId(player.getInventory().getItem(event.getHotbarButton())) != null;
+        }
+        if (involvesBlock) {
+            scheduleReindex(player);
+            scheduleReindex(event.getView().getTopInventory());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryDrag(InventoryDragEvent event) {
+        if (!(event.getWhoClicked() instanceof Player)) return;
+        if (getBlockId(event.getOldCursor()) != null) {
+            scheduleReindex((Player) event.getWhoClicked());
+            scheduleReindex(event.getView().getTopInventory());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerItemHeld(PlayerItemHeldEvent event) {
+        // 切换到魔法方块时补充索引（命令给予等不经过背包事件的来源）
+        String blockId = getBlockId(event.getPlayer().getInventory().getItem(event.getNewSlot()));
+        if (blockId != null) {
+            add(blockId, Holder.player(event.getPlayer().getUniqueId()));
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerDropItem(PlayerDropItemEvent event) {
+        Item item = event.getItemDrop();
+        String blockId = getBlockId(item.getItemStack());
+        if (blockId == null) return;
+
+        add(blockId, Holder.item(item));
+        // 背包中可能还有其他副本，下一tick重新索引
+        scheduleReindex(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemSpawn(ItemSpawnEvent event) {
+        Item item = event.getEntity();
+        String blockId = getBlockId(item.getItemStack());
+        if (blockId != null) {
+            add(blockId, Holder.item(item));
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemDespawn(ItemDespawnEvent event) {
+        if (getBlockId(event.getEntity().getItemStack()) != null) {
+            untrack(Holder.item(event.getEntity()));
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityPickupItem(EntityPickupItemEvent event) {
+        String blockId = getBlockId(event.getItem().getItemStack());
+        if (blockId == null) return;
+
+        untrack(Holder.item(event.getItem()));
+        if (event.getEntity() instanceof Player) {
+            add(blockId, Holder.player(event.getEntity().getUniqueId()));
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryPickupItem(InventoryPickupItemEvent event) {
+        String blockId = getBlockId(event.getItem().getItemStack());
+        if (blockId == null) return;
+
+        untrack(Holder.item(event.getItem()));
+        Location location = getContainerLocation(event.getInventory().getHolder());
+        if (location != null) {
+            add(blockId, Holder.container(location));
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryMoveItem(InventoryMoveItemEvent event) {
+        String blockId = getBlockId(event.getItem());
+        if (blockId == null) return;
+
+        Location destination = getContainerLocation(event.getDestination().getHolder());
+        if (destination != null) {
+            add(blockId, Holder.container(destination));
+        }
+        // 移动完成后重新索引来源容器
+        Inventory source = event.getSource();
+        Location sourceLocation = getContainerLocation(source.getHolder());
+        if (sourceLocation != null) {
+            plugin.getFoliaLib().getScheduler().runAtLocation(sourceLocation,
+                    task -> trackContainer(sourceLocation, source));
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event) {
+        BlockState state = event.getBlock().getState();
+        if (!(state instanceof Container)) return;
+
+        // 容器内物品会以掉落物形式生成，由 ItemSpawnEvent 重新记录
+        untrack(Holder.container(state.getLocation()));
+        InventoryHolder holder = ((Container) state).getInventory().getHolder();
+        if (holder instanceof DoubleChest) {
+            // 大箱子拆开后剩下的一半在下一tick重新索引
+            DoubleChest doubleChest = (DoubleChest) holder;
+            for (InventoryHolder side : new InventoryHolder[]{doubleChest.getLeftSide(), doubleChest.getRightSide()}) {
+                if (!(side instanceof Container)) continue;
+                Location location = ((Container) side).getLocation();
+                untrack(Holder.container(location));
+                plugin.getFoliaLib().getScheduler().runAtLocation(location, task -> {
+                    BlockState remaining = location.getBlock().getState();
+                    if (remaining instanceof Container) {
+                        trackInventory(((Container) remaining).getInventory());
+                    }
+                });
+            }
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerDeath(PlayerDeathEvent event) {
+        if (!event.getKeepInventory()) {
+            // 掉落物由 ItemSpawnEvent 记录
+            untrack(Holder.player(event.getEntity().getUniqueId()));
+        }
+    }
+
+    /**
+     * 检查掉落物记录是否仍然有效：实体存在返回实体；所在区块已加载但实体不存在时清除记录
+     */
+    public Item resolveItem(Holder holder) {
+        Entity entity = Bukkit.getEntity(holder.getEntityId());
+        if (entity instanceof Item && entity.isValid()) {
+            return (Item) entity;
+        }
+        Location last = holder.getLocation();
+        if (last == null || last.getWorld().isChunkLoaded(last.getBlockX() >> 4, last.getBlockZ() >> 4)) {
+            untrack(holder);
+        }
+        return null;
+    }
+
+    /**
+     * 获取性能统计信息
+     */
+    public String getPerformanceStats() {
+        return String.format(
+            "方块位置登记表 - 已登记方块: %d, 位置数: %d, 查询次数: %d, 重建索引次数: %d, 已预热: %s",
+            holdersByBlock.size(), blocksByHolder.size(), lookups.get(), reindexes.get(), warm
+        );
+    }
+
+    /**
+     * 清空所有记录（插件关闭时调用）
+     */
+    public void clear() {
+        holdersByBlock.clear();
+        blocksByHolder.clear();
+        blockVersions.clear();
+    }
+}
@@ -1,292 +1,271 @@
 package io.github.syferie.magicblock.manager;
 
 import io.github.syferie.magicblock.MagicBlockPlugin;
-import io.github.syferie.magicblock.database.DatabaseManager;
+import io.github.syferie.magicblock.storage.DataStorage;
+import io.github.syferie.magicblock.storage.DirtyTracker;
+import io.github.syferie.magicblock.storage.StorageParticipant;
+import org.bukkit.Bukkit;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.*;
-import java.util.logging.Level;
-
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 收藏管理器
  * 负责管理玩家的方块收藏功能
+ * 数据通过 StorageManager 的统一落盘任务异步写入存储
+ * - 每个玩家的收藏保存为不可变的 EnumSet 快照（按位存储），修改时整体替换
+ * - 读取方直接使用快照，不需要加锁，也不会读到修改了一半的集合
+ * - 只缓存在线玩家：登录前异步加载，退出时移出缓存，未写入的修改在下次落盘后释放
+ * - 读取时未加载则触发异步加载，先按空收藏显示，不在调用线程访问存储
+ * - 只记录变化的材料，落盘时合并所有玩家的修改批量增量写入，点击GUI时不访问存储
  */
-public class FavoriteManager {
+public class FavoriteManager implements StorageParticipant, Listener {
     private final MagicBlockPlugin plugin;
-    private final DatabaseManager databaseManager;
-    private final Gson gson;
-    private final File favoritesFile;
-    
-    // 内存缓存
+
+    // 内存缓存，值为不可变快照
     private final Map<UUID, Set<Material>> playerFavorites;
-    
+
+    // 已退出、修改可能尚未写入的玩家，落盘后移除
+    private final Map<UUID, Set<Material>> evictedFavorites = new ConcurrentHashMap<>();
+
+    // 待写入的增量修改：true 为添加，false 为移除，同一材料只保留最后一次
+    private final Map<UUID, Map<Material, Boolean>> pendingChanges = new ConcurrentHashMap<>();
+
+    // 收藏有变化、等待写入的玩家
+    private final DirtyTracker<UUID> dirtyPlayers;
+
+    // 正在异步加载的玩家，避免重复加载
+    private final Set<UUID> loading = ConcurrentHashMap.newKeySet();
+
     public FavoriteManager(MagicBlockPlugin plugin) {
         this.plugin = plugin;
-        this.databaseManager = plugin.getDatabaseManager();
-        this.gson = new GsonBuilder()
-            .setPrettyPrinting()
-            .serializeNulls()
-            .disableHtmlEscaping()
-            .create();
-        this.favoritesFile = new File(plugin.getDataFolder(), "favorites.json");
-        this.playerFavorites = new HashMap<>();
+        this.playerFavorites = new ConcurrentHashMap<>();
+        this.dirtyPlayers = new DirtyTracker<>(
+            plugin.getConfig().getInt("storage.batch-threshold", 50),
+            plugin.getConfig().getLong("storage.max-delay", 5000L));
 
-        initializeStorage();
-        loadAllFavorites();
+        // 重载插件时为已在线的玩家加载
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            UUID playerUUID = player.getUniqueId();
+            plugin.getFoliaLib().getScheduler().runAsync(task -> load(playerUUID));
+        }
     }
-    
-    /**
-     * 初始化存储
-     */
-    private void initializeStorage() {
-        if (databaseManager != null && databaseManager.isEnabled()) {
-            // 数据库存储 - 创建收藏表
-            createFavoritesTable();
-        } else {
-            // JSON文件存储 - 确保文件存在
-            if (!favoritesFile.exists()) {
-                try {
-                    favoritesFile.createNewFile();
-                    // 写入空的JSON对象
-                    try (FileWriter writer = new FileWriter(favoritesFile)) {
-                        writer.write("{}");
-                    }
-                } catch (IOException e) {
-                    plugin.getLogger().log(Level.SEVERE, "无法创建收藏文件", e);
-                }
-            }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            load(event.getUniqueId());
         }
     }
-    
-    /**
-     * 创建收藏表
-     */
-    private void createFavoritesTable() {
-        if (databaseManager == null || !databaseManager.isEnabled()) return;
-        
-        String sql = "CREATE TABLE IF NOT EXISTS " + databaseManager.getTablePrefix() + "favorites (" +
-                "id INT AUTO_INCREMENT PRIMARY KEY, " +
-                "player_uuid VARCHAR(36) NOT NULL, " +
-                "material VARCHAR(50) NOT NULL, " +
-                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
-                "UNIQUE KEY unique_favorite (player_uuid, material), " +
-                "INDEX idx_player (player_uuid)" +
-                ")";
-        
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.executeUpdate();
-            plugin.debug("收藏表创建成功");
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "创建收藏表失败", e);
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerLogin(PlayerLoginEvent event) {
+        // 预加载后登录仍可能被白名单、封禁等拒绝
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            evict(event.getPlayer().getUniqueId());
         }
     }
-    
-    /**
-     * 加载所有收藏数据
-     */
-    private void loadAllFavorites() {
-        if (databaseManager != null && databaseManager.isEnabled()) {
-            loadFavoritesFromDatabase();
-        } else {
-            loadFavoritesFromJson();
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        Player player = event.getPlayer();
+        if (playerFavorites.containsKey(player.getUniqueId())) {
+            return;
         }
+        plugin.getFoliaLib().getScheduler().runAsync(task -> {
+            if (player.isOnline()) {
+                load(player.getUniqueId());
+            }
+        });
     }
-    
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        evict(event.getPlayer().getUniqueId());
+    }
+
     /**
-     * 从数据库加载收藏
+     * 加载玩家收藏到缓存，已缓存时直接返回
+     * 会访问存储，应在异步线程调用
      */
-    private void loadFavoritesFromDatabase() {
-        String sql = "SELECT player_uuid, material FROM " + databaseManager.getTablePrefix() + "favorites";
-        
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            
-            while (rs.next()) {
-                UUID playerUUID = UUID.fromString(rs.getString("player_uuid"));
-                Material material = Material.valueOf(rs.getString("material"));
-                
-                playerFavorites.computeIfAbsent(playerUUID, k -> new HashSet<>()).add(material);
-            }
-            
-            plugin.debug("从数据库加载了 " + playerFavorites.size() + " 个玩家的收藏数据");
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "从数据库加载收藏失败", e);
+    private Set<Material> load(UUID playerUUID) {
+        Set<Material> cached = playerFavorites.get(playerUUID);
+        if (cached != null) {
+            return cached;
         }
+        // 刚退出又重新登录时，未写入的修改仍在这里
+        Set<Material> favorites = evictedFavorites.get(playerUUID);
+        if (favorites == null) {
+            favorites = snapshotOf(plugin.getStorageManager().getStorage().loadFavorites(playerUUID));
+        }
+        Set<Material> existing = playerFavorites.putIfAbsent(playerUUID, favorites);
+        return existing != null ? existing : favorites;
     }
-    
+
     /**
-     * 从JSON文件加载收藏
+     * 移出缓存，先放入待写入表再移除，保证落盘任务总能找到未写入的数据
      */
-    private void loadFavoritesFromJson() {
-        if (!favoritesFile.exists()) return;
-        
-        try (FileReader reader = new FileReader(favoritesFile)) {
-            TypeToken<Map<String, Set<String>>> typeToken = new TypeToken<Map<String, Set<String>>>() {};
-            Map<String, Set<String>> data = gson.fromJson(reader, typeToken.getType());
-            
-            if (data != null) {
-                for (Map.Entry<String, Set<String>> entry : data.entrySet()) {
-                    try {
-                        UUID playerUUID = UUID.fromString(entry.getKey());
-                        Set<Material> materials = new HashSet<>();
-                        
-                        for (String materialName : entry.getValue()) {
-                            try {
-                                materials.add(Material.valueOf(materialName));
-                            } catch (IllegalArgumentException e) {
-                                plugin.debug("跳过无效材质: " + materialName);
-                            }
-                        }
-                        
-                        if (!materials.isEmpty()) {
-                            playerFavorites.put(playerUUID, materials);
-                        }
-                    } catch (IllegalArgumentException e) {
-                        plugin.debug("跳过无效UUID: " + entry.getKey());
-                    }
-                }
-            }
-            
-            plugin.debug("从JSON文件加载了 " + playerFavorites.size() + " 个玩家的收藏数据");
-        } catch (IOException e) {
-            plugin.getLogger().log(Level.SEVERE, "从JSON文件加载收藏失败", e);
+    private void evict(UUID playerUUID) {
+        Set<Material> favorites = playerFavorites.get(playerUUID);
+        if (favorites == null) {
+            return;
         }
+        evictedFavorites.put(playerUUID, favorites);
+        playerFavorites.remove(playerUUID);
     }
-    
+
     /**
-     * 保存收藏到JSON文件
+     * 获取缓存中的收藏；未加载时触发异步加载，并返回空集合作为占位
      */
-    private void saveFavoritesToJson() {
-        Map<String, Set<String>> data = new HashMap<>();
-        
-        for (Map.Entry<UUID, Set<Material>> entry : playerFavorites.entrySet()) {
-            Set<String> materialNames = new HashSet<>();
-            for (Material material : entry.getValue()) {
-                materialNames.add(material.name());
-            }
-            data.put(entry.getKey().toString(), materialNames);
+    private Set<Material> getOrLoad(UUID playerUUID) {
+        Set<Material> favorites = playerFavorites.get(playerUUID);
+        if (favorites != null) {
+            return favorites;
         }
-        
-        try (FileWriter writer = new FileWriter(favoritesFile)) {
-            gson.toJson(data, writer);
-        } catch (IOException e) {
-            plugin.getLogger().log(Level.SEVERE, "保存收藏到JSON文件失败", e);
+        if (loading.add(playerUUID)) {
+            plugin.debug("收藏数据未预加载，异步加载: " + playerUUID);
+            plugin.getFoliaLib().getScheduler().runAsync(task -> {
+                try {
+                    if (Bukkit.getPlayer(playerUUID) != null) {
+                        load(playerUUID);
+                    }
+                } finally {
+                    loading.remove(playerUUID);
+                }
+            });
         }
+        return Collections.emptySet();
     }
-    
+
     /**
      * 切换收藏状态
+     * 收藏尚未加载时界面按空收藏显示，此时的点击视为添加，在加载完成后写入
      */
     public boolean toggleFavorite(Player player, Material material) {
         UUID playerUUID = player.getUniqueId();
-        Set<Material> favorites = playerFavorites.computeIfAbsent(playerUUID, k -> new HashSet<>());
-        
-        boolean isFavorited;
-        if (favorites.contains(material)) {
-            favorites.remove(material);
-            isFavorited = false;
-            removeFavoriteFromStorage(playerUUID, material);
-        } else {
-            favorites.add(material);
-            isFavorited = true;
-            addFavoriteToStorage(playerUUID, material);
+        Boolean isFavorited = updateFavorite(playerUUID, material, null);
+        if (isFavorited != null) {
+            return isFavorited;
         }
-        
-        return isFavorited;
+
+        plugin.getFoliaLib().getScheduler().runAsync(task -> {
+            if (player.isOnline()) {
+                load(playerUUID);
+                updateFavorite(playerUUID, material, true);
+            }
+        });
+        return true;
     }
-    
+
     /**
-     * 添加收藏到存储
+     * 修改已缓存玩家的收藏并记录增量
+     * 快照替换、增量记录和标记待写入都在同一个 compute 中完成，
+     * 同一玩家的并发切换依次执行，缓存与待写入的增量不会不一致
+     *
+     * @param favorited 目标状态，null 表示切换
+     * @return 修改后是否收藏；玩家未加载时返回null
      */
-    private void addFavoriteToStorage(UUID playerUUID, Material material) {
-        if (databaseManager != null && databaseManager.isEnabled()) {
-            addFavoriteToDatabase(playerUUID, material);
-        } else {
-            saveFavoritesToJson();
-        }
+    private Boolean updateFavorite(UUID playerUUID, Material material, Boolean favorited) {
+        Boolean[] result = new Boolean[1];
+        playerFavorites.computeIfPresent(playerUUID, (uuid, current) -> {
+            boolean add = favorited != null ? favorited : !current.contains(material);
+            result[0] = add;
+            if (current.contains(material) == add) {
+                return current;
+            }
+
+            // 复制-修改-替换，读取方持有的旧快照不受影响
+            EnumSet<Material> updated = current.isEmpty()
+                    ? EnumSet.noneOf(Material.class) : EnumSet.copyOf(current);
+            if (add) {
+                updated.add(material);
+            } else {
+                updated.remove(material);
+            }
+            pendingChanges.compute(uuid, (k, changes) -> {
+                Map<Material, Boolean> merged = changes != null ? changes : new EnumMap<>(Material.class);
+                merged.put(material, add);
+                return merged;
+            });
+            dirtyPlayers.markDirty(uuid);
+            return Collections.unmodifiableSet(updated);
+        });
+        return result[0];
     }
-    
-    /**
-     * 从存储移除收藏
-     */
-    private void removeFavoriteFromStorage(UUID playerUUID, Material material) {
-        if (databaseManager != null && databaseManager.isEnabled()) {
-            removeFavoriteFromDatabase(playerUUID, material);
-        } else {
-            saveFavoritesToJson();
-        }
+
+    private static Set<Material> snapshotOf(Collection<Material> materials) {
+        return Collections.unmodifiableSet(materials.isEmpty()
+                ? EnumSet.noneOf(Material.class) : EnumSet.copyOf(materials));
     }
-    
-    /**
-     * 添加收藏到数据库
-     */
-    private void addFavoriteToDatabase(UUID playerUUID, Material material) {
-        String sql = "INSERT IGNORE INTO " + databaseManager.getTablePrefix() + "favorites " +
-                "(player_uuid, material) VALUES (?, ?)";
-        
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, playerUUID.toString());
-            stmt.setString(2, material.name());
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "添加收藏到数据库失败", e);
+
+    @Override
+    public void flush(DataStorage storage, boolean force) {
+        if (dirtyPlayers.shouldFlush(force)) {
+            Map<UUID, Map<Material, Boolean>> changes = new HashMap<>();
+            for (UUID playerUUID : dirtyPlayers.drain()) {
+                Map<Material, Boolean> playerChanges = pendingChanges.remove(playerUUID);
+                if (playerChanges != null && !playerChanges.isEmpty()) {
+                    changes.put(playerUUID, playerChanges);
+                }
+            }
+            if (!changes.isEmpty() && !storage.updateFavorites(changes)) {
+                restore(changes);
+            }
         }
+        // 已写入（或无需写入）的退出玩家可以释放
+        evictedFavorites.keySet().removeIf(playerUUID -> !dirtyPlayers.isDirty(playerUUID));
     }
-    
+
     /**
-     * 从数据库移除收藏
+     * 写入失败时把增量合并回待写入表并重新标记，之后的新修改优先
      */
-    private void removeFavoriteFromDatabase(UUID playerUUID, Material material) {
-        String sql = "DELETE FROM " + databaseManager.getTablePrefix() + "favorites " +
-                "WHERE player_uuid = ? AND material = ?";
-        
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, playerUUID.toString());
-            stmt.setString(2, material.name());
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "从数据库移除收藏失败", e);
+    private void restore(Map<UUID, Map<Material, Boolean>> failed) {
+        for (Map.Entry<UUID, Map<Material, Boolean>> entry : failed.entrySet()) {
+            pendingChanges.merge(entry.getKey(), entry.getValue(), (newer, older) -> {
+                older.putAll(newer);
+                return older;
+            });
+            dirtyPlayers.markDirty(entry.getKey());
         }
+        plugin.debug("收藏写入失败，" + failed.size() + " 个玩家的修改将在下次落盘时重试");
     }
-    
+
     /**
      * 检查是否收藏
      */
     public boolean isFavorited(Player player, Material material) {
-        Set<Material> favorites = playerFavorites.get(player.getUniqueId());
-        return favorites != null && favorites.contains(material);
+        return getOrLoad(player.getUniqueId()).contains(material);
     }
     
+    /**
+     * 获取玩家收藏的不可变快照
+     * 尚未加载时返回空集合并触发异步加载，加载完成后再次调用即可得到实际数据
+     */
+    public Set<Material> getFavoritesSnapshot(UUID playerUUID) {
+        return getOrLoad(playerUUID);
+    }
+
     /**
      * 获取玩家的收藏列表（过滤只显示允许的材质）
      */
     public List<Material> getPlayerFavorites(Player player) {
-        Set<Material> favorites = playerFavorites.get(player.getUniqueId());
-        if (favorites == null || favorites.isEmpty()) {
+        Set<Material> favorites = getOrLoad(player.getUniqueId());
+        if (favorites.isEmpty()) {
             return new ArrayList<>();
         }
 
         // 过滤只显示在允许列表中的材质（包括权限组材质）
-        List<Material> allowedMaterials = plugin.getAllowedMaterialsForPlayer(player);
         return favorites.stream()
-                .filter(allowedMaterials::contains)
+                .filter(material -> plugin.isMaterialAllowedForPlayer(player, material))
                 .sorted(Comparator.comparing(Material::name))
                 .collect(ArrayList::new, (list, item) -> list.add(item), ArrayList::addAll);
     }
@@ -295,6 +274,6 @@ public class FavoriteManager {
      * 清理玩家数据
      */
     public void clearPlayerData(UUID playerUUID) {
-        playerFavorites.remove(playerUUID);
+        evict(playerUUID);
     }
 }
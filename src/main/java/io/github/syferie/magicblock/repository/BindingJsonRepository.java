@@ -0,0 +1,26 @@
+package io.github.syferie.magicblock.repository;
+
+import com.google.gson.reflect.TypeToken;
+
+import java.io.File;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * 绑定数据 JSON 仓库 (bindings.json)
+ * 键为玩家UUID字符串，值为 blockId -> 绑定记录
+ *
+ * @author MagicBlock Team
+ * @version 2.0
+ */
+public class BindingJsonRepository extends JsonFileRepository<String, Map<String, BindingRecord>> {
+
+    public BindingJsonRepository(File dataFile, Logger logger) {
+        super(dataFile, logger);
+    }
+
+    @Override
+    protected TypeToken<Map<String, Map<String, BindingRecord>>> getTypeToken() {
+        return new TypeToken<Map<String, Map<String, BindingRecord>>>() {};
+    }
+}
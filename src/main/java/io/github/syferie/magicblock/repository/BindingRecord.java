@@ -0,0 +1,55 @@
+package io.github.syferie.magicblock.repository;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * 单个方块绑定的持久化记录 (bindings.json 中的一项)
+ *
+ * @author MagicBlock Team
+ * @version 2.0
+ */
+public class BindingRecord {
+
+    private String material;
+    private int uses;
+    @SerializedName("max_uses")
+    private int maxUses;
+    private boolean hidden;
+
+    public BindingRecord(String material, int uses, int maxUses, boolean hidden) {
+        this.material = material;
+        this.uses = uses;
+        this.maxUses = maxUses;
+        this.hidden = hidden;
+    }
+
+    public String getMaterial() {
+        return material;
+    }
+
+    public int getUses() {
+        return uses;
+    }
+
+    public int getMaxUses() {
+        return maxUses;
+    }
+
+    public boolean isHidden() {
+        return hidden;
+    }
+
+    /**
+     * 返回修改了使用数据的副本
+     */
+    public BindingRecord withValues(String material, int uses, int maxUses) {
+        return new BindingRecord(material, uses, maxUses, hidden);
+    }
+
+    /**
+     * 返回修改了隐藏状态的副本
+     */
+    public BindingRecord withHidden(boolean hidden) {
+        return new BindingRecord(material, uses, maxUses, hidden);
+    }
+}
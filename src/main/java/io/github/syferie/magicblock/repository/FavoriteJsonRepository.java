@@ -0,0 +1,27 @@
+package io.github.syferie.magicblock.repository;
+
+import com.google.gson.reflect.TypeToken;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * 收藏数据 JSON 仓库 (favorites.json)
+ * 键为玩家UUID字符串，值为收藏的材料名称集合
+ *
+ * @author MagicBlock Team
+ * @version 2.0
+ */
+public class FavoriteJsonRepository extends JsonFileRepository<String, Set<String>> {
+
+    public FavoriteJsonRepository(File dataFile, Logger logger) {
+        super(dataFile, logger);
+    }
+
+    @Override
+    protected TypeToken<Map<String, Set<String>>> getTypeToken() {
+        return new TypeToken<Map<String, Set<String>>>() {};
+    }
+}
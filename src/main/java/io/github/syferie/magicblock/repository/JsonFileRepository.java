@@ -5,13 +5,21 @@ import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
 
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 /**
@@ -21,7 +29,9 @@ import java.util.logging.Logger;
  * - 为JSON文件存储提供通用实现
  * - 子类只需指定TypeToken即可使用
  * - 内置内存缓存，减少磁盘IO
- * - 异步保存机制，避免阻塞主线程
+ * - 延迟批量保存：修改后等待静默期（或达到最大延迟）再在后台线程写入，
+ *   一个窗口内的多次修改只写一次文件
+ * - 先写临时文件再原子替换，写入中途崩溃不会损坏原文件
  *
  * 使用示例:
  * <pre>
@@ -49,10 +59,32 @@ public abstract class JsonFileRepository<K, V> implements DataRepository<K, V> {
 
     private volatile boolean dirty = false; // 数据是否已修改
 
+    // 延迟保存
+    private static final long DEFAULT_QUIET_PERIOD_MS = 1000; // 最后一次修改后的静默期
+    private static final long DEFAULT_MAX_DELAY_MS = 5000;    // 第一次修改后最多等待的时间
+    private final long quietPeriodMs;
+    private final long maxDelayMs;
+    private final ScheduledExecutorService saveExecutor;
+    private final Object saveLock = new Object();
+    private ScheduledFuture<?> pendingSave;
+    private long firstChangeTime = 0;
+    private long lastChangeTime = 0;
+
     public JsonFileRepository(File dataFile, Logger logger) {
+        this(dataFile, logger, DEFAULT_QUIET_PERIOD_MS, DEFAULT_MAX_DELAY_MS);
+    }
+
+    public JsonFileRepository(File dataFile, Logger logger, long quietPeriodMs, long maxDelayMs) {
         this.dataFile = dataFile;
         this.logger = logger;
         this.gson = new GsonBuilder().setPrettyPrinting().create();
+        this.quietPeriodMs = Math.max(0L, quietPeriodMs);
+        this.maxDelayMs = Math.max(this.quietPeriodMs, maxDelayMs);
+        this.saveExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "MagicBlock-JsonSave-" + dataFile.getName());
+            thread.setDaemon(true);
+            return thread;
+        });
 
         // 加载数据
         loadAll();
@@ -110,7 +142,7 @@ public abstract class JsonFileRepository<K, V> implements DataRepository<K, V> {
             return;
         }
 
-        try (FileReader reader = new FileReader(dataFile)) {
+        try (Reader reader = Files.newBufferedReader(dataFile.toPath(), StandardCharsets.UTF_8)) {
             Map<K, V> data = gson.fromJson(reader, getTypeToken().getType());
             if (data != null) {
                 cache.putAll(data);
@@ -122,41 +154,93 @@ public abstract class JsonFileRepository<K, V> implements DataRepository<K, V> {
 
     /**
      * 延迟保存 (批量保存优化)
+     * 静默期内没有新的修改，或距第一次修改已超过最大延迟时，在后台线程写入
      */
     private void scheduleSave() {
-        // TODO: 可以实现延迟批量保存，目前简化为立即保存
-        if (dirty) {
-            forceSave();
+        synchronized (saveLock) {
+            long now = System.currentTimeMillis();
+            if (firstChangeTime == 0) {
+                firstChangeTime = now;
+            }
+            lastChangeTime = now;
+            if (pendingSave == null && !saveExecutor.isShutdown()) {
+                pendingSave = saveExecutor.schedule(this::saveIfQuiet, quietPeriodMs, TimeUnit.MILLISECONDS);
+            }
         }
     }
 
+    private void saveIfQuiet() {
+        synchronized (saveLock) {
+            long now = System.currentTimeMillis();
+            long dueAt = Math.min(lastChangeTime + quietPeriodMs, firstChangeTime + maxDelayMs);
+            if (now < dueAt) {
+                // 静默期内又有修改，推迟到下一个时间点
+                pendingSave = saveExecutor.schedule(this::saveIfQuiet, dueAt - now, TimeUnit.MILLISECONDS);
+                return;
+            }
+            pendingSave = null;
+            firstChangeTime = 0;
+        }
+        forceSave();
+    }
+
     /**
      * 强制立即保存
      */
-    public void forceSave() {
+    public synchronized void forceSave() {
         if (!dirty) {
             return;
         }
 
+        // 先清除标记，写入期间的新修改会重新标记并再次保存
+        dirty = false;
+        Map<K, V> snapshot = new HashMap<>(cache);
+        File tempFile = new File(dataFile.getPath() + ".tmp");
+
         try {
             // 确保父目录存在
             if (!dataFile.getParentFile().exists()) {
                 dataFile.getParentFile().mkdirs();
             }
 
-            // 写入JSON文件
-            try (FileWriter writer = new FileWriter(dataFile)) {
-                gson.toJson(cache, writer);
+            // 写入临时文件后原子替换
+            try (Writer writer = Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8)) {
+                gson.toJson(snapshot, writer);
+            }
+            try {
+                Files.move(tempFile.toPath(), dataFile.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile.toPath(), dataFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
             }
-
-            dirty = false;
         } catch (IOException e) {
+            dirty = true;
             logger.severe("保存JSON文件失败: " + dataFile.getName() + " - " + e.getMessage());
         }
     }
 
+    /**
+     * 是否有尚未写入文件的修改
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
     @Override
     public void close() {
+        synchronized (saveLock) {
+            if (pendingSave != null) {
+                pendingSave.cancel(false);
+                pendingSave = null;
+            }
+            firstChangeTime = 0;
+        }
+        saveExecutor.shutdown();
+        try {
+            saveExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
         forceSave(); // 关闭前确保保存
     }
 }
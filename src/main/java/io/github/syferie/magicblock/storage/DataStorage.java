@@ -1,19 +1,25 @@
 package io.github.syferie.magicblock.storage;
 
+import org.bukkit.Material;
+
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 /**
  * 数据存储接口 - 统一所有存储实现
  *
  * 设计目的:
- * - 抽象存储层，支持多种存储后端 (YAML, JSON, MySQL)
+ * - 抽象存储层，支持多种存储后端 (YAML, JSON, MySQL, SQLite, H2)
  * - 消除代码中大量的 if (databaseManager != null) 判断
- * - 使用策略模式，可在运行时切换存储方式
+ * - 使用策略模式，可在运行时切换存储方式 (见 StorageManager)
  *
  * 实现类:
- * - JsonDataStorage (JSON文件存储)
- * - DatabaseDataStorage (MySQL数据库存储)
+ * - FileDataStorage (JSON文件存储)
+ * - MySqlDataStorage (MySQL数据库存储)
+ * - SqliteDataStorage / H2DataStorage (嵌入式数据库存储)
  *
  * @author MagicBlock Team
  * @version 2.0
@@ -51,20 +57,53 @@ public interface DataStorage {
     void deleteBinding(UUID player, String blockId);
 
     /**
-     * 获取玩家的所有绑定
+     * 设置方块绑定是否在绑定列表中隐藏
+     *
+     * @param player 玩家UUID
+     * @param blockId 方块ID
+     * @param hidden 是否隐藏
+     */
+    void setBindingHidden(UUID player, String blockId, boolean hidden);
+
+    /**
+     * 获取玩家在绑定列表中可见（未隐藏）的绑定
      *
      * @param player 玩家UUID
-     * @return 绑定数据 Map<blockId, Map<"material"|"uses"|"maxUses", Object>>
+     * @return 绑定数据 Map<blockId, Map<"material"|"uses"|"max_uses"|"hidden", Object>>
      */
     Map<String, Map<String, Object>> getPlayerBindings(UUID player);
 
     /**
-     * 获取所有玩家的绑定数据
+     * 获取单个绑定
+     *
+     * @param player 玩家UUID
+     * @param blockId 方块ID
+     * @return 绑定数据，不存在时返回null
+     */
+    default Map<String, Object> getBinding(UUID player, String blockId) {
+        return getPlayerBindings(player).get(blockId);
+    }
+
+    /**
+     * 获取所有玩家的绑定数据（包括已隐藏的绑定）
      *
      * @return 所有绑定数据 Map<playerUUID, Map<blockId, binding>>
      */
     Map<UUID, Map<String, Map<String, Object>>> getAllBindings();
 
+    /**
+     * 删除玩家使用次数为0的绑定
+     *
+     * @param player 玩家UUID
+     */
+    default void deleteDepletedBindings(UUID player) {
+        for (Map.Entry<String, Map<String, Object>> entry : getPlayerBindings(player).entrySet()) {
+            if ((int) entry.getValue().getOrDefault("uses", 0) <= 0) {
+                deleteBinding(player, entry.getKey());
+            }
+        }
+    }
+
     /**
      * 删除玩家的所有绑定
      *
@@ -78,7 +117,7 @@ public interface DataStorage {
      * @param player 玩家UUID
      * @param favorites 收藏的材料集合
      */
-    void saveFavorites(UUID player, java.util.Set<org.bukkit.Material> favorites);
+    void saveFavorites(UUID player, Set<Material> favorites);
 
     /**
      * 加载收藏数据
@@ -86,7 +125,66 @@ public interface DataStorage {
      * @param player 玩家UUID
      * @return 收藏的材料集合
      */
-    java.util.Set<org.bukkit.Material> loadFavorites(UUID player);
+    Set<Material> loadFavorites(UUID player);
+
+    /**
+     * 加载所有玩家的收藏数据
+     *
+     * @return 收藏数据 Map<playerUUID, 收藏的材料集合>
+     */
+    Map<UUID, Set<Material>> getAllFavorites();
+
+    /**
+     * 添加单个收藏
+     *
+     * @param player 玩家UUID
+     * @param material 材料
+     */
+    default void addFavorite(UUID player, Material material) {
+        updateFavorites(Collections.singletonMap(player, Collections.singletonMap(material, true)));
+    }
+
+    /**
+     * 移除单个收藏
+     *
+     * @param player 玩家UUID
+     * @param material 材料
+     */
+    default void removeFavorite(UUID player, Material material) {
+        updateFavorites(Collections.singletonMap(player, Collections.singletonMap(material, false)));
+    }
+
+    /**
+     * 批量增量更新收藏，只写入变化的材料
+     * 默认实现按玩家读取后整体覆盖，数据库存储应覆盖为逐条插入/删除
+     *
+     * @param changes Map<playerUUID, Map<材料, true为添加/false为移除>>
+     * @return 写入成功（或已进入写入队列）返回true，失败时调用方应保留修改以便重试
+     */
+    default boolean updateFavorites(Map<UUID, Map<Material, Boolean>> changes) {
+        for (Map.Entry<UUID, Map<Material, Boolean>> entry : changes.entrySet()) {
+            Set<Material> favorites = EnumSet.noneOf(Material.class);
+            favorites.addAll(loadFavorites(entry.getKey()));
+            for (Map.Entry<Material, Boolean> change : entry.getValue().entrySet()) {
+                if (change.getValue()) {
+                    favorites.add(change.getKey());
+                } else {
+                    favorites.remove(change.getKey());
+                }
+            }
+            saveFavorites(entry.getKey(), favorites);
+        }
+        return true;
+    }
+
+    /**
+     * 立即提交尚未写入的数据
+     *
+     * @return 提交成功返回true
+     */
+    default boolean flush() {
+        return true;
+    }
 
     /**
      * 关闭存储连接
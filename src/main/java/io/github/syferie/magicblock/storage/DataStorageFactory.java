@@ -0,0 +1,75 @@
+package io.github.syferie.magicblock.storage;
+
+import io.github.syferie.magicblock.MagicBlockPlugin;
+import io.github.syferie.magicblock.database.DatabaseManager;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.io.File;
+import java.util.Locale;
+
+/**
+ * 根据配置创建存储后端
+ *
+ * 存储类型:
+ * - file   - JSON 文件存储（默认）
+ * - sqlite - SQLite 嵌入式数据库
+ * - h2     - H2 嵌入式数据库
+ * - mysql  - MySQL 数据库（database.enabled 为 true 时始终使用）
+ *
+ * @author MagicBlock Team
+ * @version 2.0
+ */
+public final class DataStorageFactory {
+
+    private DataStorageFactory() {
+    }
+
+    /**
+     * 读取配置中的存储类型
+     */
+    public static String resolveType(FileConfiguration config) {
+        if (config.getBoolean("database.enabled", false)) {
+            return "mysql";
+        }
+        return config.getString("storage.type", "file").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 创建并初始化存储
+     *
+     * @return 初始化成功的存储；类型未知或初始化失败时返回 null
+     */
+    public static DataStorage create(MagicBlockPlugin plugin, String type) {
+        FileConfiguration config = plugin.getConfig();
+        String fileName = config.getString("storage.file", "magicblock");
+        String tablePrefix = config.getString("database.table-prefix", "mb_");
+
+        switch (type) {
+            case "file":
+                return new FileDataStorage(plugin);
+            case "mysql": {
+                DatabaseManager databaseManager = new DatabaseManager(plugin);
+                if (!databaseManager.isEnabled()) {
+                    plugin.getLogger().warning("MySQL 存储初始化失败");
+                    return null;
+                }
+                return new MySqlDataStorage(plugin, databaseManager);
+            }
+            case "sqlite":
+                return initialize(plugin, new SqliteDataStorage(plugin, new File(plugin.getDataFolder(), fileName + ".db"), tablePrefix));
+            case "h2":
+                return initialize(plugin, new H2DataStorage(plugin, new File(plugin.getDataFolder(), fileName), tablePrefix));
+            default:
+                plugin.getLogger().warning("未知的存储类型: " + type);
+                return null;
+        }
+    }
+
+    private static DataStorage initialize(MagicBlockPlugin plugin, EmbeddedDataStorage storage) {
+        if (!storage.initialize()) {
+            plugin.getLogger().warning(storage.getTypeName() + " 存储初始化失败");
+            return null;
+        }
+        return storage;
+    }
+}
@@ -0,0 +1,88 @@
+package io.github.syferie.magicblock.storage;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 统一的脏数据跟踪策略
+ *
+ * - 记录自上次落盘以来被修改的键
+ * - 达到修改数量阈值或超过最大延迟时才需要落盘，避免频繁写入
+ * - 落盘失败时可将键放回，下次重试
+ *
+ * @param <K> 键类型 (如玩家UUID)
+ * @author MagicBlock Team
+ * @version 2.0
+ */
+public class DirtyTracker<K> {
+
+    private final Set<K> dirtyKeys = ConcurrentHashMap.newKeySet();
+    private volatile int changeThreshold;
+    private volatile long maxDelayMs;
+    private volatile long firstDirtyTime = 0;
+
+    /**
+     * @param changeThreshold 脏键数量达到该值时立即落盘
+     * @param maxDelayMs 数据变脏后最多等待的时间（毫秒）
+     */
+    public DirtyTracker(int changeThreshold, long maxDelayMs) {
+        setPolicy(changeThreshold, maxDelayMs);
+    }
+
+    public void setPolicy(int changeThreshold, long maxDelayMs) {
+        this.changeThreshold = Math.max(1, changeThreshold);
+        this.maxDelayMs = Math.max(0L, maxDelayMs);
+    }
+
+    public void markDirty(K key) {
+        if (dirtyKeys.add(key) && firstDirtyTime == 0) {
+            firstDirtyTime = System.currentTimeMillis();
+        }
+    }
+
+    public boolean isDirty() {
+        return !dirtyKeys.isEmpty();
+    }
+
+    public boolean isDirty(K key) {
+        return dirtyKeys.contains(key);
+    }
+
+    /**
+     * 按策略判断是否需要落盘
+     *
+     * @param force 关闭或切换存储时为true，忽略阈值和延迟
+     */
+    public boolean shouldFlush(boolean force) {
+        if (dirtyKeys.isEmpty()) {
+            return false;
+        }
+        return force
+                || dirtyKeys.size() >= changeThreshold
+                || System.currentTimeMillis() - firstDirtyTime >= maxDelayMs;
+    }
+
+    /**
+     * 取出并清空当前的脏键
+     */
+    public Set<K> drain() {
+        firstDirtyTime = 0;
+        Set<K> drained = new HashSet<>();
+        for (K key : dirtyKeys) {
+            if (dirtyKeys.remove(key)) {
+                drained.add(key);
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * 落盘失败时放回脏键
+     */
+    public void restore(Set<K> keys) {
+        for (K key : keys) {
+            markDirty(key);
+        }
+    }
+}
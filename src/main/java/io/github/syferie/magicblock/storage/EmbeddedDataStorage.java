@@ -0,0 +1,761 @@
+package io.github.syferie.magicblock.storage;
+
+import io.github.syferie.magicblock.MagicBlockPlugin;
+import org.bukkit.Material;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 嵌入式数据库存储抽象基类 (SQLite / H2)
+ *
+ * 设计目的:
+ * - 无需 MySQL 的服务器也能使用带索引、带事务的存储，不再整文件重写
+ * - 单连接 + 预编译语句缓存，所有数据库访问在提交锁下串行执行
+ * - 写入按 block_id 合并，只持有对象锁；定时以 JDBC 批处理在一个事务中提交，
+ *   提交前在对象锁下换出待写入数据，事务期间不阻塞写入
+ * - 读取时在查询结果上叠加待写入数据，读到自己的写入但不触发提交
+ *
+ * 子类只需提供连接、连接初始化和 upsert 语句的方言差异
+ *
+ * @author MagicBlock Team
+ * @version 2.0
+ */
+public abstract class EmbeddedDataStorage implements DataStorage {
+
+    protected final Logger logger;
+    private final Consumer<String> debugLogger;
+    protected final File dataFile;
+    protected final String bindingsTable;
+    protected final String favoritesTable;
+
+    // 保护连接和语句缓存；需要同时持有对象锁时先取提交锁
+    private final Object commitLock = new Object();
+    private volatile Connection connection;
+    private final Map<String, PreparedStatement> statementCache = new HashMap<>();
+
+    // 待写入数据：按 block_id / 玩家合并，只保留最终状态，由对象锁保护
+    private Map<String, PendingRow> pendingBindings = new LinkedHashMap<>();
+    private Map<UUID, Set<Material>> pendingFavorites = new LinkedHashMap<>();
+    // 增量收藏修改：true 为添加，false 为移除；整体覆盖的玩家不会出现在这里
+    private Map<UUID, Map<Material, Boolean>> pendingFavoriteChanges = new LinkedHashMap<>();
+
+    /**
+     * 某个方块合并后的待写入状态
+     */
+    private static final class PendingRow {
+        UUID playerUUID;
+        String material;
+        int uses;
+        int maxUses;
+        boolean hasValues;   // 是否需要写入 material/uses/max_uses
+        boolean insert;      // 是否允许插入新行
+        Boolean hidden;      // null 表示不修改
+        boolean deleted;
+    }
+
+    protected EmbeddedDataStorage(MagicBlockPlugin plugin, File dataFile, String tablePrefix) {
+        this(plugin.getLogger(), plugin::debug, dataFile, tablePrefix);
+    }
+
+    /**
+     * 不依赖插件实例的构造方法，供测试使用
+     */
+    protected EmbeddedDataStorage(Logger logger, Consumer<String> debugLogger, File dataFile, String tablePrefix) {
+        this.logger = logger;
+        this.debugLogger = debugLogger;
+        this.dataFile = dataFile;
+        this.bindingsTable = tablePrefix + "bindings";
+        this.favoritesTable = tablePrefix + "favorites";
+    }
+
+    /**
+     * 打开数据库连接
+     */
+    protected abstract Connection openConnection() throws SQLException;
+
+    /**
+     * 连接建立后的初始化 (PRAGMA 等)
+     */
+    protected void configureConnection(Connection conn) throws SQLException {
+    }
+
+    /**
+     * 按 block_id 插入或更新绑定的语句
+     * 参数顺序: player_uuid, block_id, material, uses, max_uses
+     */
+    protected abstract String getUpsertBindingSql();
+
+    /**
+     * 插入收藏、已存在时忽略的语句
+     * 参数顺序: player_uuid, material
+     */
+    protected abstract String getInsertIgnoreFavoriteSql();
+
+    /**
+     * 存储类型名称，用于日志
+     */
+    public abstract String getTypeName();
+
+    /**
+     * 打开连接并创建表
+     *
+     * @return 初始化成功返回true
+     */
+    public boolean initialize() {
+        synchronized (commitLock) {
+            try {
+                File parent = dataFile.getParentFile();
+                if (parent != null && !parent.exists()) {
+                    parent.mkdirs();
+                }
+                connection = openConnection();
+                configureConnection(connection);
+                createTables();
+                logger.info(getTypeName() + " 存储已启用: " + dataFile.getName());
+                return true;
+            } catch (SQLException e) {
+                logger.log(Level.SEVERE, "无法初始化 " + getTypeName() + " 存储: " + e.getMessage(), e);
+                closeConnection();
+                return false;
+            }
+        }
+    }
+
+    private void createTables() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS " + bindingsTable + " (" +
+                    "block_id VARCHAR(36) NOT NULL PRIMARY KEY, " +
+                    "player_uuid VARCHAR(36) NOT NULL, " +
+                    "material VARCHAR(64) NOT NULL, " +
+                    "uses INT NOT NULL, " +
+                    "max_uses INT NOT NULL, " +
+                    "hidden BOOLEAN NOT NULL DEFAULT FALSE)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_" + bindingsTable + "_player_hidden ON " +
+                    bindingsTable + " (player_uuid, hidden)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS " + favoritesTable + " (" +
+                    "player_uuid VARCHAR(36) NOT NULL, " +
+                    "material VARCHAR(64) NOT NULL, " +
+                    "PRIMARY KEY (player_uuid, material))");
+        }
+    }
+
+    /**
+     * 获取缓存的预编译语句
+     */
+    private PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement stmt = statementCache.get(sql);
+        if (stmt == null || stmt.isClosed()) {
+            stmt = connection.prepareStatement(sql);
+            statementCache.put(sql, stmt);
+        }
+        return stmt;
+    }
+
+    @Override
+    public synchronized void saveBinding(UUID player, String blockId, String material, int uses, int maxUses) {
+        PendingRow row = pendingBindings.remove(blockId);
+        if (row == null) {
+            row = new PendingRow();
+        }
+        if (row.deleted) {
+            // 删除后重新绑定，视为新行
+            row = new PendingRow();
+            row.hidden = false;
+        }
+        row.playerUUID = player;
+        row.material = material;
+        row.uses = uses;
+        row.maxUses = maxUses;
+        row.hasValues = true;
+        row.insert = true;
+        pendingBindings.put(blockId, row);
+    }
+
+    @Override
+    public synchronized void updateBinding(UUID player, String blockId, String material, int uses, int maxUses) {
+        PendingRow row = pendingBindings.get(blockId);
+        if (row == null) {
+            row = new PendingRow();
+            pendingBindings.put(blockId, row);
+        } else if (row.deleted) {
+            return;
+        }
+        row.playerUUID = player;
+        row.material = material;
+        row.uses = uses;
+        row.maxUses = maxUses;
+        row.hasValues = true;
+    }
+
+    /**
+     * 设置绑定在列表中是否隐藏
+     */
+    @Override
+    public synchronized void setBindingHidden(UUID player, String blockId, boolean hidden) {
+        PendingRow row = pendingBindings.get(blockId);
+        if (row == null) {
+            row = new PendingRow();
+            row.playerUUID = player;
+            pendingBindings.put(blockId, row);
+        } else if (row.deleted) {
+            return;
+        }
+        row.hidden = hidden;
+    }
+
+    @Override
+    public synchronized void deleteBinding(UUID player, String blockId) {
+        PendingRow row = new PendingRow();
+        row.playerUUID = player;
+        row.deleted = true;
+        pendingBindings.remove(blockId);
+        pendingBindings.put(blockId, row);
+    }
+
+    @Override
+    public Map<String, Map<String, Object>> getPlayerBindings(UUID player) {
+        Map<String, Map<String, Object>> result = loadMergedBindings(player);
+        result.values().removeIf(blockData -> (boolean) blockData.get("hidden"));
+        return result;
+    }
+
+    @Override
+    public Map<String, Object> getBinding(UUID player, String blockId) {
+        synchronized (commitLock) {
+            if (connection == null) {
+                return null;
+            }
+            Map<String, Object> committed = null;
+            try {
+                PreparedStatement stmt = prepare("SELECT material, uses, max_uses, hidden FROM " +
+                        bindingsTable + " WHERE block_id = ? AND player_uuid = ?");
+                stmt.setString(1, blockId);
+                stmt.setString(2, player.toString());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        committed = readBinding(rs);
+                    }
+                }
+            } catch (SQLException e) {
+                logger.log(Level.SEVERE, "读取绑定数据失败: " + e.getMessage(), e);
+                return null;
+            }
+            synchronized (this) {
+                PendingRow row = pendingBindings.get(blockId);
+                return row == null ? committed : applyPending(row, player, committed);
+            }
+        }
+    }
+
+    @Override
+    public void deleteDepletedBindings(UUID player) {
+        // 删除同样进入待写入队列，随下次提交一起执行
+        for (Map.Entry<String, Map<String, Object>> entry : loadMergedBindings(player).entrySet()) {
+            if ((int) entry.getValue().get("uses") <= 0) {
+                deleteBinding(player, entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * 读取玩家的全部绑定（含隐藏的），并叠加尚未提交的修改，不触发提交
+     * 持有提交锁，查询和叠加之间不会有事务把待写入数据换出
+     */
+    private Map<String, Map<String, Object>> loadMergedBindings(UUID player) {
+        Map<String, Map<String, Object>> result = new HashMap<>();
+        synchronized (commitLock) {
+            if (connection == null) {
+                return result;
+            }
+            try {
+                PreparedStatement stmt = prepare("SELECT block_id, material, uses, max_uses, hidden FROM " +
+                        bindingsTable + " WHERE player_uuid = ?");
+                stmt.setString(1, player.toString());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        result.put(rs.getString("block_id"), readBinding(rs));
+                    }
+                }
+            } catch (SQLException e) {
+                logger.log(Level.SEVERE, "读取玩家绑定数据失败: " + e.getMessage(), e);
+                return result;
+            }
+            synchronized (this) {
+                for (Map.Entry<String, PendingRow> entry : pendingBindings.entrySet()) {
+                    Map<String, Object> merged = applyPending(entry.getValue(), player, result.get(entry.getKey()));
+                    if (merged == null) {
+                        result.remove(entry.getKey());
+                    } else {
+                        result.put(entry.getKey(), merged);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 在已提交的绑定上叠加待写入的修改，结果与提交后再查询一致
+     *
+     * @param committed 数据库中该玩家的绑定，不存在时为null
+     * @return 合并后的绑定，提交后不存在时返回null
+     */
+    private static Map<String, Object> applyPending(PendingRow row, UUID player, Map<String, Object> committed) {
+        if (row.deleted) {
+            return null;
+        }
+        Map<String, Object> blockData = committed;
+        if (blockData == null) {
+            // 只有属于该玩家、允许插入的新行才会在提交后出现
+            if (!row.insert || !player.equals(row.playerUUID)) {
+                return null;
+            }
+            blockData = new HashMap<>();
+            blockData.put("hidden", false);
+        }
+        if (row.hasValues) {
+            blockData.put("material", row.material);
+            blockData.put("uses", row.uses);
+            blockData.put("max_uses", row.maxUses);
+        }
+        if (row.hidden != null) {
+            blockData.put("hidden", row.hidden);
+        }
+        return blockData;
+    }
+
+    @Override
+    public Map<UUID, Map<String, Map<String, Object>>> getAllBindings() {
+        Map<UUID, Map<String, Map<String, Object>>> result = new HashMap<>();
+        synchronized (commitLock) {
+            if (!flush()) {
+                return result;
+            }
+            try {
+                PreparedStatement stmt = prepare("SELECT player_uuid, block_id, material, uses, max_uses, hidden FROM " +
+                        bindingsTable);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        UUID playerUUID;
+                        try {
+                            playerUUID = UUID.fromString(rs.getString("player_uuid"));
+                        } catch (IllegalArgumentException e) {
+                            continue;
+                        }
+                        result.computeIfAbsent(playerUUID, k -> new HashMap<>())
+                                .put(rs.getString("block_id"), readBinding(rs));
+                    }
+                }
+            } catch (SQLException e) {
+                logger.log(Level.SEVERE, "读取全部绑定数据失败: " + e.getMessage(), e);
+            }
+        }
+        return result;
+    }
+
+    private Map<String, Object> readBinding(ResultSet rs) throws SQLException {
+        Map<String, Object> blockData = new HashMap<>();
+        blockData.put("material", rs.getString("material"));
+        blockData.put("uses", rs.getInt("uses"));
+        blockData.put("max_uses", rs.getInt("max_uses"));
+        blockData.put("hidden", rs.getBoolean("hidden"));
+        return blockData;
+    }
+
+    @Override
+    public void deletePlayerBindings(UUID player) {
+        synchronized (commitLock) {
+            synchronized (this) {
+                pendingBindings.values().removeIf(row -> player.equals(row.playerUUID));
+            }
+            if (connection == null) {
+                return;
+            }
+            try {
+                PreparedStatement stmt = prepare("DELETE FROM " + bindingsTable + " WHERE player_uuid = ?");
+                stmt.setString(1, player.toString());
+                stmt.executeUpdate();
+            } catch (SQLException e) {
+                logger.log(Level.SEVERE, "删除玩家绑定数据失败: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void saveFavorites(UUID player, Set<Material> favorites) {
+        Set<Material> copy = EnumSet.noneOf(Material.class);
+        copy.addAll(favorites);
+        pendingFavorites.put(player, copy);
+        pendingFavoriteChanges.remove(player);
+    }
+
+    @Override
+    public synchronized boolean updateFavorites(Map<UUID, Map<Material, Boolean>> changes) {
+        for (Map.Entry<UUID, Map<Material, Boolean>> entry : changes.entrySet()) {
+            // 已有整体覆盖时直接修改覆盖内容
+            Set<Material> replaced = pendingFavorites.get(entry.getKey());
+            if (replaced != null) {
+                applyChanges(replaced, entry.getValue());
+                continue;
+            }
+            pendingFavoriteChanges.computeIfAbsent(entry.getKey(), k -> new EnumMap<>(Material.class))
+                    .putAll(entry.getValue());
+        }
+        return true;
+    }
+
+    private static void applyChanges(Set<Material> favorites, Map<Material, Boolean> changes) {
+        for (Map.Entry<Material, Boolean> change : changes.entrySet()) {
+            if (change.getValue()) {
+                favorites.add(change.getKey());
+            } else {
+                favorites.remove(change.getKey());
+            }
+        }
+    }
+
+    @Override
+    public Set<Material> loadFavorites(UUID player) {
+        Set<Material> favorites = EnumSet.noneOf(Material.class);
+        synchronized (commitLock) {
+            if (connection != null) {
+                try {
+                    PreparedStatement stmt = prepare("SELECT material FROM " + favoritesTable + " WHERE player_uuid = ?");
+                    stmt.setString(1, player.toString());
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            Material material = Material.matchMaterial(rs.getString("material"));
+                            if (material != null) {
+                                favorites.add(material);
+                            }
+                        }
+                    }
+                } catch (SQLException e) {
+                    logger.log(Level.SEVERE, "读取收藏数据失败: " + e.getMessage(), e);
+                }
+            }
+            synchronized (this) {
+                Set<Material> pending = pendingFavorites.get(player);
+                if (pending != null) {
+                    favorites.clear();
+                    favorites.addAll(pending);
+                    return favorites;
+                }
+                Map<Material, Boolean> changes = pendingFavoriteChanges.get(player);
+                if (changes != null) {
+                    applyChanges(favorites, changes);
+                }
+            }
+        }
+        return favorites;
+    }
+
+    @Override
+    public Map<UUID, Set<Material>> getAllFavorites() {
+        Map<UUID, Set<Material>> result = new HashMap<>();
+        synchronized (commitLock) {
+            if (!flush()) {
+                return result;
+            }
+            try {
+                PreparedStatement stmt = prepare("SELECT player_uuid, material FROM " + favoritesTable);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Material material = Material.matchMaterial(rs.getString("material"));
+                        if (material == null) {
+                            continue;
+                        }
+                        try {
+                            UUID playerUUID = UUID.fromString(rs.getString("player_uuid"));
+                            result.computeIfAbsent(playerUUID, k -> EnumSet.noneOf(Material.class)).add(material);
+                        } catch (IllegalArgumentException ignored) {
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                logger.log(Level.SEVERE, "读取全部收藏数据失败: " + e.getMessage(), e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 是否有待写入的数据
+     */
+    public synchronized boolean hasPendingWrites() {
+        return !pendingBindings.isEmpty() || !pendingFavorites.isEmpty() || !pendingFavoriteChanges.isEmpty();
+    }
+
+    /**
+     * 在一个事务中批量提交所有待写入数据
+     * 对象锁下只换出待写入数据，事务在提交锁下执行，期间的写入进入新的队列；
+     * 失败时回滚，换出的数据合并回队列，保留到下次提交
+     *
+     * @return 提交成功（或无需提交）返回true
+     */
+    @Override
+    public boolean flush() {
+        synchronized (commitLock) {
+            if (connection == null) {
+                return false;
+            }
+            Map<String, PendingRow> bindings;
+            Map<UUID, Set<Material>> favorites;
+            Map<UUID, Map<Material, Boolean>> favoriteChanges;
+            synchronized (this) {
+                if (pendingBindings.isEmpty() && pendingFavorites.isEmpty() && pendingFavoriteChanges.isEmpty()) {
+                    return true;
+                }
+                bindings = pendingBindings;
+                favorites = pendingFavorites;
+                favoriteChanges = pendingFavoriteChanges;
+                pendingBindings = new LinkedHashMap<>();
+                pendingFavorites = new LinkedHashMap<>();
+                pendingFavoriteChanges = new LinkedHashMap<>();
+            }
+            if (commit(bindings, favorites, favoriteChanges)) {
+                return true;
+            }
+            synchronized (this) {
+                restore(bindings, favorites, favoriteChanges);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 执行提交事务，需持有提交锁
+     */
+    private boolean commit(Map<String, PendingRow> bindings, Map<UUID, Set<Material>> favorites,
+                           Map<UUID, Map<Material, Boolean>> favoriteChanges) {
+        long start = System.nanoTime();
+        try {
+            connection.setAutoCommit(false);
+
+            PreparedStatement delete = prepare("DELETE FROM " + bindingsTable + " WHERE block_id = ?");
+            PreparedStatement upsert = prepare(getUpsertBindingSql());
+            PreparedStatement update = prepare("UPDATE " + bindingsTable +
+                    " SET material = ?, uses = ?, max_uses = ? WHERE block_id = ?");
+            PreparedStatement hide = prepare("UPDATE " + bindingsTable + " SET hidden = ? WHERE block_id = ?");
+            boolean hasDelete = false, hasUpsert = false, hasUpdate = false, hasHide = false;
+
+            for (Map.Entry<String, PendingRow> entry : bindings.entrySet()) {
+                String blockId = entry.getKey();
+                PendingRow row = entry.getValue();
+                if (row.deleted) {
+                    delete.setString(1, blockId);
+                    delete.addBatch();
+                    hasDelete = true;
+                    continue;
+                }
+                if (row.hasValues && row.insert) {
+                    upsert.setString(1, row.playerUUID.toString());
+                    upsert.setString(2, blockId);
+                    upsert.setString(3, row.material);
+                    upsert.setInt(4, row.uses);
+                    upsert.setInt(5, row.maxUses);
+                    upsert.addBatch();
+                    hasUpsert = true;
+                } else if (row.hasValues) {
+                    update.setString(1, row.material);
+                    update.setInt(2, row.uses);
+                    update.setInt(3, row.maxUses);
+                    update.setString(4, blockId);
+                    update.addBatch();
+                    hasUpdate = true;
+                }
+                if (row.hidden != null) {
+                    hide.setBoolean(1, row.hidden);
+                    hide.setString(2, blockId);
+                    hide.addBatch();
+                    hasHide = true;
+                }
+            }
+
+            if (hasDelete) delete.executeBatch();
+            if (hasUpsert) upsert.executeBatch();
+            if (hasUpdate) update.executeBatch();
+            if (hasHide) hide.executeBatch();
+
+            if (!favorites.isEmpty()) {
+                PreparedStatement clearFavorites = prepare("DELETE FROM " + favoritesTable + " WHERE player_uuid = ?");
+                PreparedStatement insertFavorite = prepare("INSERT INTO " + favoritesTable +
+                        " (player_uuid, material) VALUES (?, ?)");
+                boolean hasInsert = false;
+                for (Map.Entry<UUID, Set<Material>> entry : favorites.entrySet()) {
+                    String uuid = entry.getKey().toString();
+                    clearFavorites.setString(1, uuid);
+                    clearFavorites.addBatch();
+                    for (Material material : entry.getValue()) {
+                        insertFavorite.setString(1, uuid);
+                        insertFavorite.setString(2, material.name());
+                        insertFavorite.addBatch();
+                        hasInsert = true;
+                    }
+                }
+                clearFavorites.executeBatch();
+                if (hasInsert) insertFavorite.executeBatch();
+            }
+
+            if (!favoriteChanges.isEmpty()) {
+                PreparedStatement addFavorite = prepare(getInsertIgnoreFavoriteSql());
+                PreparedStatement removeFavorite = prepare("DELETE FROM " + favoritesTable +
+                        " WHERE player_uuid = ? AND material = ?");
+                boolean hasAdd = false, hasRemove = false;
+                for (Map.Entry<UUID, Map<Material, Boolean>> entry : favoriteChanges.entrySet()) {
+                    String uuid = entry.getKey().toString();
+                    for (Map.Entry<Material, Boolean> change : entry.getValue().entrySet()) {
+                        PreparedStatement stmt = change.getValue() ? addFavorite : removeFavorite;
+                        stmt.setString(1, uuid);
+                        stmt.setString(2, change.getKey().name());
+                        stmt.addBatch();
+                        if (change.getValue()) {
+                            hasAdd = true;
+                        } else {
+                            hasRemove = true;
+                        }
+                    }
+                }
+                if (hasAdd) addFavorite.executeBatch();
+                if (hasRemove) removeFavorite.executeBatch();
+            }
+
+            connection.commit();
+            debugLogger.accept(getTypeName() + " 批量写入完成: " + bindings.size() + " 个方块, " +
+                    (favorites.size() + favoriteChanges.size()) + " 个玩家收藏, 耗时 " +
+                    (System.nanoTime() - start) / 1_000_000 + "ms");
+            return true;
+        } catch (SQLException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackError) {
+                logger.log(Level.WARNING, "回滚 " + getTypeName() + " 事务失败", rollbackError);
+            }
+            logger.log(Level.SEVERE, getTypeName() + " 批量写入失败: " + e.getMessage(), e);
+            return false;
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+
+    /**
+     * 提交失败后把换出的数据合并回队列，需持有对象锁
+     * 事务期间产生的新写入比失败的数据新，合并时以新写入为准
+     */
+    private void restore(Map<String, PendingRow> bindings, Map<UUID, Set<Material>> favorites,
+                         Map<UUID, Map<Material, Boolean>> favoriteChanges) {
+        Map<String, PendingRow> merged = new LinkedHashMap<>();
+        for (Map.Entry<String, PendingRow> entry : bindings.entrySet()) {
+            PendingRow newer = pendingBindings.remove(entry.getKey());
+            merged.put(entry.getKey(), newer == null ? entry.getValue() : mergeRows(entry.getValue(), newer));
+        }
+        merged.putAll(pendingBindings);
+        pendingBindings = merged;
+
+        for (Map.Entry<UUID, Set<Material>> entry : favorites.entrySet()) {
+            if (pendingFavorites.containsKey(entry.getKey())) {
+                // 之后又整体覆盖过，失败的数据已无意义
+                continue;
+            }
+            Set<Material> restored = entry.getValue();
+            Map<Material, Boolean> newerChanges = pendingFavoriteChanges.remove(entry.getKey());
+            if (newerChanges != null) {
+                applyChanges(restored, newerChanges);
+            }
+            pendingFavorites.put(entry.getKey(), restored);
+        }
+        for (Map.Entry<UUID, Map<Material, Boolean>> entry : favoriteChanges.entrySet()) {
+            if (pendingFavorites.containsKey(entry.getKey())) {
+                continue;
+            }
+            Map<Material, Boolean> restored = entry.getValue();
+            Map<Material, Boolean> newerChanges = pendingFavoriteChanges.get(entry.getKey());
+            if (newerChanges != null) {
+                restored.putAll(newerChanges);
+            }
+            pendingFavoriteChanges.put(entry.getKey(), restored);
+        }
+    }
+
+    /**
+     * 把提交失败的行与之后的新写入合并，结果等同于按顺序执行两者
+     */
+    private static PendingRow mergeRows(PendingRow failed, PendingRow newer) {
+        if (newer.deleted) {
+            return newer;
+        }
+        if (failed.deleted) {
+            // 删除后只有重新绑定有效，与 saveBinding 的处理一致
+            if (!newer.insert) {
+                return failed;
+            }
+            if (newer.hidden == null) {
+                newer.hidden = false;
+            }
+            return newer;
+        }
+        if (!newer.hasValues && failed.hasValues) {
+            newer.material = failed.material;
+            newer.uses = failed.uses;
+            newer.maxUses = failed.maxUses;
+            newer.hasValues = true;
+        }
+        newer.insert |= failed.insert;
+        if (newer.hidden == null) {
+            newer.hidden = failed.hidden;
+        }
+        return newer;
+    }
+
+    @Override
+    public void close() {
+        synchronized (commitLock) {
+            if (connection == null) {
+                return;
+            }
+            flush();
+            closeConnection();
+        }
+    }
+
+    private void closeConnection() {
+        for (PreparedStatement stmt : statementCache.values()) {
+            try {
+                stmt.close();
+            } catch (SQLException ignored) {
+            }
+        }
+        statementCache.clear();
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                logger.log(Level.WARNING, "关闭 " + getTypeName() + " 连接失败", e);
+            }
+            connection = null;
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return connection != null;
+    }
+}
@@ -0,0 +1,246 @@
+package io.github.syferie.magicblock.storage;
+
+import io.github.syferie.magicblock.MagicBlockPlugin;
+import io.github.syferie.magicblock.repository.BindingJsonRepository;
+import io.github.syferie.magicblock.repository.BindingRecord;
+import io.github.syferie.magicblock.repository.FavoriteJsonRepository;
+import org.bukkit.Material;
+
+import java.io.File;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * JSON 文件存储实现 (bindings.json / favorites.json)
+ *
+ * - 数据常驻内存，由 JsonFileRepository 在后台延迟批量落盘
+ * - 每个玩家的数据以不可变副本替换，落盘时无需与写入方加锁
+ *
+ * @author MagicBlock Team
+ * @version 2.0
+ */
+public class FileDataStorage implements DataStorage {
+
+    private final MagicBlockPlugin plugin;
+    private final BindingJsonRepository bindings;
+    private final FavoriteJsonRepository favorites;
+
+    public FileDataStorage(MagicBlockPlugin plugin) {
+        this.plugin = plugin;
+        this.bindings = new BindingJsonRepository(new File(plugin.getDataFolder(), "bindings.json"), plugin.getLogger());
+        this.favorites = new FavoriteJsonRepository(new File(plugin.getDataFolder(), "favorites.json"), plugin.getLogger());
+    }
+
+    @Override
+    public synchronized void saveBinding(UUID player, String blockId, String material, int uses, int maxUses) {
+        Map<String, BindingRecord> playerBindings = copyPlayerBindings(player);
+        BindingRecord existing = playerBindings.get(blockId);
+        playerBindings.put(blockId, existing != null
+                ? existing.withValues(material, uses, maxUses)
+                : new BindingRecord(material, uses, maxUses, false));
+        bindings.save(player.toString(), playerBindings);
+    }
+
+    @Override
+    public synchronized void updateBinding(UUID player, String blockId, String material, int uses, int maxUses) {
+        Map<String, BindingRecord> playerBindings = copyPlayerBindings(player);
+        BindingRecord existing = playerBindings.get(blockId);
+        if (existing == null) {
+            return;
+        }
+        playerBindings.put(blockId, existing.withValues(material, uses, maxUses));
+        bindings.save(player.toString(), playerBindings);
+    }
+
+    @Override
+    public synchronized void setBindingHidden(UUID player, String blockId, boolean hidden) {
+        Map<String, BindingRecord> playerBindings = copyPlayerBindings(player);
+        BindingRecord existing = playerBindings.get(blockId);
+        if (existing == null || existing.isHidden() == hidden) {
+            return;
+        }
+        playerBindings.put(blockId, existing.withHidden(hidden));
+        bindings.save(player.toString(), playerBindings);
+    }
+
+    @Override
+    public synchronized void deleteBinding(UUID player, String blockId) {
+        Map<String, BindingRecord> playerBindings = copyPlayerBindings(player);
+        if (playerBindings.remove(blockId) == null) {
+            return;
+        }
+        if (playerBindings.isEmpty()) {
+            bindings.delete(player.toString());
+        } else {
+            bindings.save(player.toString(), playerBindings);
+        }
+    }
+
+    @Override
+    public synchronized void deleteDepletedBindings(UUID player) {
+        Map<String, BindingRecord> playerBindings = copyPlayerBindings(player);
+        if (!playerBindings.values().removeIf(record -> record.getUses() <= 0)) {
+            return;
+        }
+        if (playerBindings.isEmpty()) {
+            bindings.delete(player.toString());
+        } else {
+            bindings.save(player.toString(), playerBindings);
+        }
+    }
+
+    @Override
+    public synchronized Map<String, Map<String, Object>> getPlayerBindings(UUID player) {
+        Map<String, Map<String, Object>> result = new HashMap<>();
+        for (Map.Entry<String, BindingRecord> entry : copyPlayerBindings(player).entrySet()) {
+            if (!entry.getValue().isHidden()) {
+                result.put(entry.getKey(), toMap(entry.getValue()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized Map<String, Object> getBinding(UUID player, String blockId) {
+        BindingRecord record = bindings.get(player.toString())
+                .map(playerBindings -> playerBindings.get(blockId))
+                .orElse(null);
+        return record != null ? toMap(record) : null;
+    }
+
+    @Override
+    public synchronized Map<UUID, Map<String, Map<String, Object>>> getAllBindings() {
+        Map<UUID, Map<String, Map<String, Object>>> result = new HashMap<>();
+        for (Map.Entry<String, Map<String, BindingRecord>> playerEntry : bindings.getAll().entrySet()) {
+            UUID playerUUID;
+            try {
+                playerUUID = UUID.fromString(playerEntry.getKey());
+            } catch (IllegalArgumentException e) {
+                plugin.debug("跳过无效UUID: " + playerEntry.getKey());
+                continue;
+            }
+            Map<String, Map<String, Object>> playerBindings = new HashMap<>();
+            for (Map.Entry<String, BindingRecord> entry : playerEntry.getValue().entrySet()) {
+                playerBindings.put(entry.getKey(), toMap(entry.getValue()));
+            }
+            result.put(playerUUID, playerBindings);
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void deletePlayerBindings(UUID player) {
+        bindings.delete(player.toString());
+    }
+
+    @Override
+    public synchronized void saveFavorites(UUID player, Set<Material> materials) {
+        if (materials.isEmpty()) {
+            favorites.delete(player.toString());
+            return;
+        }
+        Set<String> names = new HashSet<>();
+        for (Material material : materials) {
+            names.add(material.name());
+        }
+        favorites.save(player.toString(), names);
+    }
+
+    @Override
+    public synchronized boolean updateFavorites(Map<UUID, Map<Material, Boolean>> changes) {
+        for (Map.Entry<UUID, Map<Material, Boolean>> entry : changes.entrySet()) {
+            String key = entry.getKey().toString();
+            Set<String> names = favorites.get(key)
+                    .<Set<String>>map(HashSet::new)
+                    .orElseGet(HashSet::new);
+            for (Map.Entry<Material, Boolean> change : entry.getValue().entrySet()) {
+                if (change.getValue()) {
+                    names.add(change.getKey().name());
+                } else {
+                    names.remove(change.getKey().name());
+                }
+            }
+            if (names.isEmpty()) {
+                favorites.delete(key);
+            } else {
+                favorites.save(key, names);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized Set<Material> loadFavorites(UUID player) {
+        return toMaterials(favorites.get(player.toString()).orElse(null));
+    }
+
+    @Override
+    public synchronized Map<UUID, Set<Material>> getAllFavorites() {
+        Map<UUID, Set<Material>> result = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : favorites.getAll().entrySet()) {
+            try {
+                Set<Material> materials = toMaterials(entry.getValue());
+                if (!materials.isEmpty()) {
+                    result.put(UUID.fromString(entry.getKey()), materials);
+                }
+            } catch (IllegalArgumentException e) {
+                plugin.debug("跳过无效UUID: " + entry.getKey());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * JSON 仓库自行在后台延迟批量写入，这里无需强制写入；关闭时会写入全部数据
+     */
+    @Override
+    public boolean flush() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+        bindings.close();
+        favorites.close();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    private Map<String, BindingRecord> copyPlayerBindings(UUID player) {
+        return bindings.get(player.toString())
+                .<Map<String, BindingRecord>>map(HashMap::new)
+                .orElseGet(HashMap::new);
+    }
+
+    private Set<Material> toMaterials(Set<String> names) {
+        Set<Material> materials = EnumSet.noneOf(Material.class);
+        if (names == null) {
+            return materials;
+        }
+        for (String name : names) {
+            Material material = Material.matchMaterial(name);
+            if (material != null) {
+                materials.add(material);
+            } else {
+                plugin.debug("跳过无效材质: " + name);
+            }
+        }
+        return materials;
+    }
+
+    private static Map<String, Object> toMap(BindingRecord record) {
+        Map<String, Object> blockData = new HashMap<>();
+        blockData.put("material", record.getMaterial());
+        blockData.put("uses", record.getUses());
+        blockData.put("max_uses", record.getMaxUses());
+        blockData.put("hidden", record.isHidden());
+        return blockData;
+    }
+}
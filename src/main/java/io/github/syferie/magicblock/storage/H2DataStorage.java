@@ -0,0 +1,58 @@
+package io.github.syferie.magicblock.storage;
+
+import io.github.syferie.magicblock.MagicBlockPlugin;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * H2 存储实现
+ *
+ * - 驱动通过 plugin.yml 的 libraries 由服务端下载
+ * - MVStore 引擎本身是追加写入的日志结构，无需单独开启 WAL
+ *
+ * @author MagicBlock Team
+ * @version 2.0
+ */
+public class H2DataStorage extends EmbeddedDataStorage {
+
+    public H2DataStorage(MagicBlockPlugin plugin, File dataFile, String tablePrefix) {
+        super(plugin, dataFile, tablePrefix);
+    }
+
+    H2DataStorage(Logger logger, Consumer<String> debugLogger, File dataFile, String tablePrefix) {
+        super(logger, debugLogger, dataFile, tablePrefix);
+    }
+
+    @Override
+    protected Connection openConnection() throws SQLException {
+        try {
+            Class.forName("org.h2.Driver");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("未找到 H2 JDBC 驱动", e);
+        }
+        // H2 会自动追加 .mv.db 后缀；由插件负责关闭数据库
+        return DriverManager.getConnection("jdbc:h2:file:" + dataFile.getAbsolutePath() + ";DB_CLOSE_ON_EXIT=FALSE");
+    }
+
+    @Override
+    protected String getUpsertBindingSql() {
+        return "MERGE INTO " + bindingsTable + " (player_uuid, block_id, material, uses, max_uses) " +
+                "KEY (block_id) VALUES (?, ?, ?, ?, ?)";
+    }
+
+    @Override
+    protected String getInsertIgnoreFavoriteSql() {
+        return "MERGE INTO " + favoritesTable + " (player_uuid, material) " +
+                "KEY (player_uuid, material) VALUES (?, ?)";
+    }
+
+    @Override
+    public String getTypeName() {
+        return "H2";
+    }
+}
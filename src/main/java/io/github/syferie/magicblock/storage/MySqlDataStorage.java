@@ -0,0 +1,115 @@
+package io.github.syferie.magicblock.storage;
+
+import io.github.syferie.magicblock.MagicBlockPlugin;
+import io.github.syferie.magicblock.database.DatabaseManager;
+import org.bukkit.Material;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * MySQL 存储实现
+ * 委托给 DatabaseManager (HikariCP 连接池 + 写入合并队列 + 玩家绑定缓存)
+ *
+ * @author MagicBlock Team
+ * @version 2.0
+ */
+public class MySqlDataStorage implements DataStorage {
+
+    private final MagicBlockPlugin plugin;
+    private final DatabaseManager databaseManager;
+
+    public MySqlDataStorage(MagicBlockPlugin plugin, DatabaseManager databaseManager) {
+        this.plugin = plugin;
+        this.databaseManager = databaseManager;
+    }
+
+    public DatabaseManager getDatabaseManager() {
+        return databaseManager;
+    }
+
+    @Override
+    public void saveBinding(UUID player, String blockId, String material, int uses, int maxUses) {
+        String playerName = plugin.getServer().getOfflinePlayer(player).getName();
+        if (playerName == null) playerName = "Unknown";
+        databaseManager.queueBindingUpsert(player, playerName, blockId, material, uses, maxUses);
+    }
+
+    @Override
+    public void updateBinding(UUID player, String blockId, String material, int uses, int maxUses) {
+        databaseManager.queueBindingUpdate(player, blockId, material, uses, maxUses);
+    }
+
+    @Override
+    public void deleteBinding(UUID player, String blockId) {
+        databaseManager.deleteBinding(player, blockId);
+    }
+
+    @Override
+    public void setBindingHidden(UUID player, String blockId, boolean hidden) {
+        databaseManager.setBlockHidden(player, blockId, hidden);
+    }
+
+    @Override
+    public Map<String, Map<String, Object>> getPlayerBindings(UUID player) {
+        return databaseManager.getPlayerBindings(player);
+    }
+
+    @Override
+    public Map<String, Object> getBinding(UUID player, String blockId) {
+        return databaseManager.getBlockBinding(player, blockId);
+    }
+
+    @Override
+    public Map<UUID, Map<String, Map<String, Object>>> getAllBindings() {
+        return databaseManager.getAllBindings();
+    }
+
+    @Override
+    public void deleteDepletedBindings(UUID player) {
+        databaseManager.cleanupZeroUsageBlocks(player);
+    }
+
+    @Override
+    public void deletePlayerBindings(UUID player) {
+        databaseManager.deletePlayerBindings(player);
+    }
+
+    @Override
+    public void saveFavorites(UUID player, Set<Material> favorites) {
+        databaseManager.saveFavorites(player, favorites);
+    }
+
+    @Override
+    public boolean updateFavorites(Map<UUID, Map<Material, Boolean>> changes) {
+        return databaseManager.updateFavorites(changes);
+    }
+
+    @Override
+    public Set<Material> loadFavorites(UUID player) {
+        return databaseManager.loadFavorites(player);
+    }
+
+    @Override
+    public Map<UUID, Set<Material>> getAllFavorites() {
+        return databaseManager.getAllFavorites();
+    }
+
+    @Override
+    public boolean flush() {
+        databaseManager.flushPendingWrites();
+        // 写入失败的条目留在队列中，此时视为未提交
+        return !databaseManager.hasPendingWrites();
+    }
+
+    @Override
+    public void close() {
+        databaseManager.close();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return databaseManager.isEnabled();
+    }
+}
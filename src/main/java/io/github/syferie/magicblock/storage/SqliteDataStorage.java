@@ -0,0 +1,67 @@
+package io.github.syferie.magicblock.storage;
+
+import io.github.syferie.magicblock.MagicBlockPlugin;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * SQLite 存储实现
+ *
+ * - 使用服务端自带的 SQLite JDBC 驱动，无需额外依赖
+ * - WAL 模式：写入不阻塞读取，配合 synchronous=NORMAL 减少 fsync 次数
+ *
+ * @author MagicBlock Team
+ * @version 2.0
+ */
+public class SqliteDataStorage extends EmbeddedDataStorage {
+
+    public SqliteDataStorage(MagicBlockPlugin plugin, File dataFile, String tablePrefix) {
+        super(plugin, dataFile, tablePrefix);
+    }
+
+    SqliteDataStorage(Logger logger, Consumer<String> debugLogger, File dataFile, String tablePrefix) {
+        super(logger, debugLogger, dataFile, tablePrefix);
+    }
+
+    @Override
+    protected Connection openConnection() throws SQLException {
+        try {
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("未找到 SQLite JDBC 驱动", e);
+        }
+        return DriverManager.getConnection("jdbc:sqlite:" + dataFile.getAbsolutePath());
+    }
+
+    @Override
+    protected void configureConnection(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA journal_mode=WAL");
+            stmt.execute("PRAGMA synchronous=NORMAL");
+            stmt.execute("PRAGMA busy_timeout=5000");
+        }
+    }
+
+    @Override
+    protected String getUpsertBindingSql() {
+        return "INSERT INTO " + bindingsTable + " (player_uuid, block_id, material, uses, max_uses) " +
+                "VALUES (?, ?, ?, ?, ?) ON CONFLICT(block_id) DO UPDATE SET " +
+                "material = excluded.material, uses = excluded.uses, max_uses = excluded.max_uses";
+    }
+
+    @Override
+    protected String getInsertIgnoreFavoriteSql() {
+        return "INSERT OR IGNORE INTO " + favoritesTable + " (player_uuid, material) VALUES (?, ?)";
+    }
+
+    @Override
+    public String getTypeName() {
+        return "SQLite";
+    }
+}
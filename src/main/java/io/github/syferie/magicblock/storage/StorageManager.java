@@ -0,0 +1,315 @@
+package io.github.syferie.magicblock.storage;
+
+import io.github.syferie.magicblock.MagicBlockPlugin;
+import io.github.syferie.magicblock.database.BindingCache;
+import io.github.syferie.magicblock.database.DatabaseManager;
+import org.bukkit.Material;
+import org.bukkit.event.HandlerList;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * 存储管理器 - 所有持久化数据的唯一入口
+ *
+ * 职责:
+ * - 按配置创建存储后端 (file / sqlite / h2 / mysql)
+ * - 共享的异步落盘定时任务：依次刷新各参与组件的脏数据和存储自身的写入队列
+ * - 统一的关闭落盘
+ * - 重载时存储类型变化则在异步线程迁移数据并在运行时切换后端
+ * - 外部只拿到 SwitchableDataStorage 句柄，切换时等待进行中的调用结束后再关闭旧后端
+ *
+ * @author MagicBlock Team
+ * @version 2.0
+ */
+public class StorageManager {
+
+    private final MagicBlockPlugin plugin;
+    private final List<StorageParticipant> participants = new CopyOnWriteArrayList<>();
+    private final Object flushLock = new Object();
+    private final AtomicBoolean switching = new AtomicBoolean();
+    private volatile boolean closed;
+
+    private volatile DataStorage storage;
+    private volatile String storageType;
+    private volatile SwitchableDataStorage handle;
+
+    public StorageManager(MagicBlockPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * 创建配置的存储后端并启动落盘任务
+     */
+    public void initialize() {
+        String type = DataStorageFactory.resolveType(plugin.getConfig());
+        DataStorage created = DataStorageFactory.create(plugin, type);
+        if (created == null) {
+            plugin.getLogger().warning("存储类型 " + type + " 不可用，将使用文件存储");
+            type = "file";
+            created = DataStorageFactory.create(plugin, type);
+        }
+
+        this.storage = created;
+        this.storageType = type;
+        this.handle = new SwitchableDataStorage(created);
+        registerCacheListener(created);
+
+        if (!"file".equals(type)) {
+            importLegacyFiles();
+        }
+
+        long flushIntervalMs = Math.max(50L, plugin.getConfig().getLong("storage.flush-interval", 2000L));
+        long periodTicks = Math.max(1L, flushIntervalMs / 50L);
+        plugin.getFoliaLib().getScheduler().runTimerAsync(() -> flushAll(false), periodTicks, periodTicks);
+        plugin.debug("存储类型: " + type + "，落盘间隔: " + flushIntervalMs + "ms");
+    }
+
+    /**
+     * 获取存储句柄，切换后端后仍然有效
+     */
+    public DataStorage getStorage() {
+        return handle;
+    }
+
+    public String getStorageType() {
+        return storageType;
+    }
+
+    /**
+     * 获取 MySQL 数据库管理器
+     * @return 当前存储为 MySQL 时返回数据库管理器，否则返回null
+     */
+    public DatabaseManager getDatabaseManager() {
+        DataStorage current = storage;
+        return current instanceof MySqlDataStorage ? ((MySqlDataStorage) current).getDatabaseManager() : null;
+    }
+
+    public void register(StorageParticipant participant) {
+        participants.add(participant);
+    }
+
+    public void unregister(StorageParticipant participant) {
+        participants.remove(participant);
+    }
+
+    /**
+     * 刷新所有参与组件的脏数据，并提交存储的写入队列
+     * 参与组件通过句柄写入，迁移期间的写入会被记录并补写到新后端
+     *
+     * @param force 为true时忽略各组件的延迟策略
+     */
+    public void flushAll(boolean force) {
+        synchronized (flushLock) {
+            DataStorage current = handle;
+            if (current == null || closed) {
+                return;
+            }
+            for (StorageParticipant participant : participants) {
+                try {
+                    participant.flush(current, force);
+                } catch (RuntimeException e) {
+                    plugin.getLogger().log(Level.SEVERE, "写入数据失败: " + e.getMessage(), e);
+                }
+            }
+            current.flush();
+        }
+    }
+
+    /**
+     * 关闭时写入所有数据并关闭存储
+     */
+    public void shutdown() {
+        synchronized (flushLock) {
+            flushAll(true);
+            closed = true;
+            if (storage != null) {
+                handle.exclusive(() -> {
+                    unregisterCacheListener(storage);
+                    storage.close();
+                });
+            }
+        }
+    }
+
+    /**
+     * 重载配置后检查存储类型，变化时切换后端
+     */
+    public void reload() {
+        String type = DataStorageFactory.resolveType(plugin.getConfig());
+        if (!type.equals(storageType)) {
+            switchStorage(type);
+        }
+    }
+
+    /**
+     * 在运行时切换存储后端，并将现有数据迁移到新后端
+     * 迁移在异步线程执行，调用方不等待
+     */
+    public void switchStorage(String type) {
+        if (!switching.compareAndSet(false, true)) {
+            plugin.getLogger().warning("存储正在切换中，忽略切换到 " + type + " 的请求");
+            return;
+        }
+        plugin.getFoliaLib().getScheduler().runAsync(task -> {
+            try {
+                migrate(type);
+            } finally {
+                switching.set(false);
+            }
+        });
+    }
+
+    /**
+     * 复制快照期间不持有写锁，读写照常访问旧后端；
+     * 写锁下只补写复制期间记录的修改并替换后端
+     */
+    private void migrate(String type) {
+        DataStorage target = DataStorageFactory.create(plugin, type);
+        if (target == null) {
+            plugin.getLogger().warning("无法切换到存储类型 " + type + "，继续使用 " + storageType);
+            return;
+        }
+
+        DataStorage previous = storage;
+        String previousType = storageType;
+        plugin.getLogger().info("正在将数据从 " + previousType + " 迁移到 " + type + "...");
+
+        // 先开始记录再提交并复制，复制期间的写入不会遗漏
+        handle.startJournal();
+        try {
+            flushAll(true);
+            copyAll(previous, target);
+        } catch (RuntimeException e) {
+            handle.stopJournal();
+            target.close();
+            plugin.getLogger().log(Level.SEVERE, "迁移数据到 " + type + " 失败: " + e.getMessage(), e);
+            return;
+        }
+
+        synchronized (flushLock) {
+            if (closed) {
+                handle.stopJournal();
+                target.close();
+                return;
+            }
+            // 先把参与组件的脏数据写入旧后端并记录，再在写锁下补写
+            flushAll(true);
+            handle.exclusive(() -> {
+                List<Consumer<DataStorage>> journal = handle.stopJournal();
+                for (Consumer<DataStorage> write : journal) {
+                    write.accept(target);
+                }
+                if (!target.flush()) {
+                    plugin.getLogger().warning("新存储 " + type + " 首次提交失败，将在下次落盘时重试");
+                }
+                plugin.debug("迁移期间补写 " + journal.size() + " 次修改");
+
+                this.storage = target;
+                this.storageType = type;
+                handle.setDelegate(target);
+                previous.close();
+            });
+        }
+
+        // 事件监听在服务器线程上注册
+        plugin.getFoliaLib().getScheduler().runLater(() -> {
+            unregisterCacheListener(previous);
+            registerCacheListener(target);
+        }, 1L);
+
+        // 文件数据已迁移，避免下次启动时被重复导入
+        if ("file".equals(previousType)) {
+            renameLegacyFiles();
+        }
+
+        plugin.getLogger().info("存储已切换为 " + type);
+    }
+
+    /**
+     * 非文件存储启动时，导入遗留的 JSON 文件数据
+     */
+    private void importLegacyFiles() {
+        File bindingsFile = new File(plugin.getDataFolder(), "bindings.json");
+        File favoritesFile = new File(plugin.getDataFolder(), "favorites.json");
+        if (!bindingsFile.exists() && !favoritesFile.exists()) {
+            return;
+        }
+
+        plugin.getLogger().info(plugin.getLanguageManager().getMessage("general.database-migration-start"));
+        FileDataStorage fileStorage = new FileDataStorage(plugin);
+        copyAll(fileStorage, storage);
+        fileStorage.close();
+        if (storage.flush()) {
+            renameLegacyFiles();
+            plugin.getLogger().info(plugin.getLanguageManager().getMessage("general.database-migration-complete"));
+        }
+    }
+
+    private void renameLegacyFiles() {
+        for (String name : new String[]{"bindings.json", "favorites.json"}) {
+            File file = new File(plugin.getDataFolder(), name);
+            if (file.exists() && !file.renameTo(new File(plugin.getDataFolder(), name + ".migrated"))) {
+                plugin.getLogger().warning("无法重命名已迁移的文件: " + name);
+            }
+        }
+    }
+
+    /**
+     * 复制全部绑定和收藏数据
+     */
+    private void copyAll(DataStorage from, DataStorage to) {
+        int blocks = 0;
+        for (Map.Entry<UUID, Map<String, Map<String, Object>>> playerEntry : from.getAllBindings().entrySet()) {
+            UUID playerUUID = playerEntry.getKey();
+            for (Map.Entry<String, Map<String, Object>> entry : playerEntry.getValue().entrySet()) {
+                Map<String, Object> blockData = entry.getValue();
+                String material = (String) blockData.get("material");
+                if (material == null) continue;
+
+                int uses = (int) blockData.getOrDefault("uses", 0);
+                int maxUses = (int) blockData.getOrDefault("max_uses", uses);
+                to.saveBinding(playerUUID, entry.getKey(), material, uses, maxUses);
+                if ((boolean) blockData.getOrDefault("hidden", false)) {
+                    to.setBindingHidden(playerUUID, entry.getKey(), true);
+                }
+                blocks++;
+            }
+        }
+
+        Map<UUID, Set<Material>> favorites = from.getAllFavorites();
+        for (Map.Entry<UUID, Set<Material>> entry : favorites.entrySet()) {
+            to.saveFavorites(entry.getKey(), entry.getValue());
+        }
+
+        plugin.getLogger().info("已迁移 " + blocks + " 个绑定方块和 " + favorites.size() + " 个玩家的收藏");
+    }
+
+    private void registerCacheListener(DataStorage target) {
+        BindingCache cache = getBindingCache(target);
+        if (cache != null) {
+            plugin.getServer().getPluginManager().registerEvents(cache, plugin);
+            plugin.debug("绑定数据缓存事件已注册");
+        }
+    }
+
+    private void unregisterCacheListener(DataStorage target) {
+        BindingCache cache = getBindingCache(target);
+        if (cache != null) {
+            HandlerList.unregisterAll(cache);
+        }
+    }
+
+    private static BindingCache getBindingCache(DataStorage target) {
+        return target instanceof MySqlDataStorage
+                ? ((MySqlDataStorage) target).getDatabaseManager().getBindingCache()
+                : null;
+    }
+}
@@ -0,0 +1,19 @@
+package io.github.syferie.magicblock.storage;
+
+/**
+ * 参与统一落盘调度的组件
+ * 由 StorageManager 的共享异步定时任务调用，关闭或切换存储时强制调用
+ *
+ * @author MagicBlock Team
+ * @version 2.0
+ */
+public interface StorageParticipant {
+
+    /**
+     * 将脏数据写入存储
+     *
+     * @param storage 当前使用的存储
+     * @param force 为true时忽略延迟策略，立即写入全部脏数据
+     */
+    void flush(DataStorage storage, boolean force);
+}
@@ -0,0 +1,190 @@
+package io.github.syferie.magicblock.storage;
+
+import org.bukkit.Material;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 可切换后端的存储句柄 - 由 StorageManager 交给外部使用
+ *
+ * 工作原理:
+ * - 每次调用在读锁下委托给当前后端，调用之间互不阻塞
+ * - 迁移数据时记录写入日志：复制快照期间的写入照常进入旧后端，同时记录下来
+ * - 切换后端时持有写锁：只补写日志中的修改并替换后端，
+ *   切换期间的新调用会等待，完成后直接访问新后端
+ *
+ * @author MagicBlock Team
+ * @version 2.0
+ */
+final class SwitchableDataStorage implements DataStorage {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private DataStorage delegate;
+    // 迁移期间的写入日志，为 null 表示不记录
+    private volatile Queue<Consumer<DataStorage>> journal;
+
+    SwitchableDataStorage(DataStorage delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * 持有写锁执行切换，期间没有其他调用访问后端
+     */
+    void exclusive(Runnable action) {
+        lock.writeLock().lock();
+        try {
+            action.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 替换当前后端，需在 exclusive 中调用
+     */
+    void setDelegate(DataStorage delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * 开始记录写入，之后的写入可在切换时补写到新后端
+     */
+    void startJournal() {
+        journal = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * 停止记录并取出已记录的写入，需在 exclusive 中调用以保证没有遗漏
+     */
+    List<Consumer<DataStorage>> stopJournal() {
+        Queue<Consumer<DataStorage>> recorded = journal;
+        journal = null;
+        return recorded == null ? new ArrayList<>() : new ArrayList<>(recorded);
+    }
+
+    private void write(Consumer<DataStorage> action) {
+        lock.readLock().lock();
+        try {
+            action.accept(delegate);
+            Queue<Consumer<DataStorage>> recording = journal;
+            if (recording != null) {
+                recording.add(action);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private <T> T call(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void saveBinding(UUID player, String blockId, String material, int uses, int maxUses) {
+        write(storage -> storage.saveBinding(player, blockId, material, uses, maxUses));
+    }
+
+    @Override
+    public void updateBinding(UUID player, String blockId, String material, int uses, int maxUses) {
+        write(storage -> storage.updateBinding(player, blockId, material, uses, maxUses));
+    }
+
+    @Override
+    public void deleteBinding(UUID player, String blockId) {
+        write(storage -> storage.deleteBinding(player, blockId));
+    }
+
+    @Override
+    public void setBindingHidden(UUID player, String blockId, boolean hidden) {
+        write(storage -> storage.setBindingHidden(player, blockId, hidden));
+    }
+
+    @Override
+    public Map<String, Map<String, Object>> getPlayerBindings(UUID player) {
+        return call(() -> delegate.getPlayerBindings(player));
+    }
+
+    @Override
+    public Map<String, Object> getBinding(UUID player, String blockId) {
+        return call(() -> delegate.getBinding(player, blockId));
+    }
+
+    @Override
+    public Map<UUID, Map<String, Map<String, Object>>> getAllBindings() {
+        return call(() -> delegate.getAllBindings());
+    }
+
+    @Override
+    public void deleteDepletedBindings(UUID player) {
+        write(storage -> storage.deleteDepletedBindings(player));
+    }
+
+    @Override
+    public void deletePlayerBindings(UUID player) {
+        write(storage -> storage.deletePlayerBindings(player));
+    }
+
+    @Override
+    public void saveFavorites(UUID player, Set<Material> favorites) {
+        write(storage -> storage.saveFavorites(player, favorites));
+    }
+
+    @Override
+    public Set<Material> loadFavorites(UUID player) {
+        return call(() -> delegate.loadFavorites(player));
+    }
+
+    @Override
+    public Map<UUID, Set<Material>> getAllFavorites() {
+        return call(() -> delegate.getAllFavorites());
+    }
+
+    @Override
+    public void addFavorite(UUID player, Material material) {
+        write(storage -> storage.addFavorite(player, material));
+    }
+
+    @Override
+    public void removeFavorite(UUID player, Material material) {
+        write(storage -> storage.removeFavorite(player, material));
+    }
+
+    @Override
+    public boolean updateFavorites(Map<UUID, Map<Material, Boolean>> changes) {
+        boolean[] written = new boolean[1];
+        write(storage -> written[0] = storage.updateFavorites(changes));
+        return written[0];
+    }
+
+    @Override
+    public boolean flush() {
+        return call(() -> delegate.flush());
+    }
+
+    /**
+     * 后端的生命周期由 StorageManager 管理，这里不关闭
+     */
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return call(() -> delegate.isEnabled());
+    }
+}
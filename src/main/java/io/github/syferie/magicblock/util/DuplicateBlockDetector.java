@@ -1,6 +1,7 @@
 package io.github.syferie.magicblock.util;
 
 import io.github.syferie.magicblock.MagicBlockPlugin;
+import io.github.syferie.magicblock.manager.BlockLocationRegistry;
 import org.bukkit.Bukkit;
 import org.bukkit.NamespacedKey;
 import org.bukkit.entity.Player;
@@ -8,28 +9,70 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerItemHeldEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.player.PlayerSwapHandItemsEvent;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.persistence.PersistentDataType;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 魔法方块防刷检测器
  * 在玩家切换到魔法方块时检测并移除重复方块：
  * 1. 检测使用者自己背包中的重复方块（除了当前手持的）
- * 2. 检测其他玩家背包中的重复方块
+ * 2. 通过方块位置登记表查找并检测持有同ID方块的其他玩家背包
  * 注意：只检测背包，不检测末影箱（末影箱中的方块无法直接使用）
  */
 public class DuplicateBlockDetector implements Listener {
     private final MagicBlockPlugin plugin;
     private final NamespacedKey blockIdKey;
+
+    // 玩家背包中副手的槽位
+    private static final int OFF_HAND_SLOT = 40;
+    
+    // 每个玩家的检测状态（合并请求、记录最近验证结果）
+    private final Map<UUID, CheckState> checkStates = new ConcurrentHashMap<>();
     
     // 性能统计
     private final AtomicLong duplicateChecks = new AtomicLong(0);
     private final AtomicLong duplicatesFound = new AtomicLong(0);
     private final AtomicLong duplicatesRemoved = new AtomicLong(0);
+    private final AtomicLong checkRequests = new AtomicLong(0);
+    private final AtomicLong checksCoalesced = new AtomicLong(0);
+    private final AtomicLong checksSkipped = new AtomicLong(0);
+
+    /**
+     * 单个玩家的检测状态，访问时需同步在该对象上
+     */
+    private static final class CheckState {
+        // 等待检测的方块ID -> 需要保留的槽位
+        private final Map<String, Integer> pending = new LinkedHashMap<>();
+        private boolean inFlight;
+        // 最近验证过的方块ID -> {背包版本号, 验证时间}
+        private final Map<String, long[]> verified = new HashMap<>();
+
+        synchronized boolean isVerified(String blockId, long version, long windowMs) {
+            long[] entry = verified.get(blockId);
+            return entry != null
+                && entry[0] == version
+                && System.currentTimeMillis() - entry[1] < windowMs;
+        }
+
+        synchronized void markVerified(String blockId, long version, long windowMs) {
+            long now = System.currentTimeMillis();
+            verified.put(blockId, new long[]{version, now});
+            // 玩家通常只持有少量方块，清理过期记录即可控制大小
+            if (verified.size() > 16) {
+                verified.values().removeIf(entry -> now - entry[1] >= windowMs);
+            }
+        }
+    }
     
     public DuplicateBlockDetector(MagicBlockPlugin plugin) {
         this.plugin = plugin;
@@ -47,10 +90,8 @@ public class DuplicateBlockDetector implements Listener {
             // 确保方块有ID（兼容旧版本）
             String blockId = plugin.getOrCreateBlockId(newItem);
             if (blockId != null) {
-                // 异步检测重复方块
-                plugin.getFoliaLib().getScheduler().runAsync(task -> {
-                    detectAndRemoveDuplicates(player, blockId);
-                });
+                // 保留切换到的槽位中的方块
+                requestCheck(player, blockId, event.getNewSlot());
             }
         }
     }
@@ -66,76 +107,160 @@ public class DuplicateBlockDetector implements Listener {
             // 确保方块有ID（兼容旧版本）
             String blockId = plugin.getOrCreateBlockId(offHandItem);
             if (blockId != null) {
-                // 异步检测重复方块
-                plugin.getFoliaLib().getScheduler().runAsync(task -> {
-                    detectAndRemoveDuplicates(player, blockId);
-                });
+                // 交换完成后方块位于副手槽位
+                requestCheck(player, blockId, OFF_HAND_SLOT);
             }
         }
     }
     
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        checkStates.remove(event.getPlayer().getUniqueId());
+    }
+    
     /**
-     * 检测并移除重复的魔法方块
+     * 请求一次重复检测
+     * - 同一玩家同时最多只有一个检测在执行，等待期间同一方块的重复请求合并为一次
+     * - 检测在防抖时间后执行，滚动快捷栏时的连续请求会被合并
+     * - 方块最近已验证且背包版本未变化时直接跳过
      */
-    private void detectAndRemoveDuplicates(Player currentPlayer, String blockId) {
-        long startTime = System.nanoTime();
-        duplicateChecks.incrementAndGet();
+    private void requestCheck(Player player, String blockId, int keepSlot) {
+        checkRequests.incrementAndGet();
+        CheckState state = checkStates.computeIfAbsent(player.getUniqueId(), k -> new CheckState());
 
-        int duplicatesRemovedInThisCheck = 0;
+        synchronized (state) {
+            if (state.isVerified(blockId, plugin.getBlockLocationRegistry().getVersion(blockId), getVerifyWindowMs())) {
+                checksSkipped.incrementAndGet();
+                return;
+            }
+            boolean alreadyScheduled = !state.pending.isEmpty() || state.inFlight;
+            if (state.pending.put(blockId, keepSlot) != null) {
+                // 同一方块已在等待检测，只更新保留的槽位
+                checksCoalesced.incrementAndGet();
+            }
+            if (alreadyScheduled) {
+                // 等待中的检测或当前检测完成后会一并处理
+                return;
+            }
+        }
+        schedule(player, state);
+    }
 
-        // 🆕 首先检查使用者自己背包中的重复方块（除了当前手持的）
-        duplicatesRemovedInThisCheck += removeDuplicatesFromCurrentPlayerInventory(
-            currentPlayer, blockId
-        );
+    private long getVerifyWindowMs() {
+        return Math.max(0L, plugin.getConfig().getLong("anti-duplication.verify-window-ms", 5000L));
+    }
 
-        // 然后检查其他在线玩家的背包
-        for (Player onlinePlayer : Bukkit.getOnlinePlayers()) {
-            if (onlinePlayer.equals(currentPlayer)) continue;
+    private void schedule(Player player, CheckState state) {
+        plugin.getFoliaLib().getScheduler().runLater(() ->
+            plugin.getFoliaLib().getScheduler().runAtEntity(player, task -> runPending(player, state)),
+            Math.max(1L, plugin.getConfig().getLong("anti-duplication.debounce-ticks", 4L)));
+    }
 
-            // 只检查玩家背包（末影箱中的方块无法直接使用，无需检测）
-            duplicatesRemovedInThisCheck += removeDuplicatesFromInventory(
-                onlinePlayer, blockId, "背包"
-            );
+    /**
+     * 在玩家所在线程执行等待中的检测
+     */
+    private void runPending(Player player, CheckState state) {
+        Map<String, Integer> requests;
+        synchronized (state) {
+            requests = new LinkedHashMap<>(state.pending);
+            state.pending.clear();
+            state.inFlight = true;
         }
-        
-        if (duplicatesRemovedInThisCheck > 0) {
-            duplicatesFound.addAndGet(duplicatesRemovedInThisCheck);
-            duplicatesRemoved.addAndGet(duplicatesRemovedInThisCheck);
-            
-            // 记录到日志
-            plugin.getLogger().info(String.format(
-                "检测到并移除了 %d 个重复的魔法方块 (ID: %s, 触发玩家: %s)",
-                duplicatesRemovedInThisCheck, blockId, currentPlayer.getName()
-            ));
-            
-            // 发送消息给管理员（如果配置启用）
-            if (plugin.getConfig().getBoolean("anti-duplication.notify-admins", true)) {
-                String message = plugin.getLanguageManager().getMessage("anti-duplication.duplicates-removed")
-                    .replace("%amount%", String.valueOf(duplicatesRemovedInThisCheck))
-                    .replace("%player%", currentPlayer.getName());
-
-                for (Player admin : Bukkit.getOnlinePlayers()) {
-                    if (admin.hasPermission("magicblock.admin")) {
-                        admin.sendMessage(plugin.getLanguageManager().getMessage("general.prefix") + message);
-                    }
+
+        try {
+            BlockLocationRegistry registry = plugin.getBlockLocationRegistry();
+            for (Map.Entry<String, Integer> request : requests.entrySet()) {
+                if (!player.isOnline()) break;
+                String blockId = request.getKey();
+                if (state.isVerified(blockId, registry.getVersion(blockId), getVerifyWindowMs())) {
+                    checksSkipped.incrementAndGet();
+                    continue;
                 }
+                detectAndRemoveDuplicates(player, blockId, request.getValue());
+                state.markVerified(blockId, registry.getVersion(blockId), getVerifyWindowMs());
+            }
+        } finally {
+            boolean hasPending;
+            synchronized (state) {
+                state.inFlight = false;
+                hasPending = !state.pending.isEmpty();
+            }
+            if (hasPending && player.isOnline()) {
+                schedule(player, state);
             }
         }
+    }
+    
+    /**
+     * 检测并移除重复的魔法方块，需在触发玩家所在线程调用
+     * 通过位置登记表直接查到持有同ID方块的玩家，无需遍历所有在线玩家的背包；
+     * 每个玩家背包的修改都在该玩家所在线程执行
+     *
+     * @param keepSlot 触发玩家背包中需要保留的槽位
+     */
+    private void detectAndRemoveDuplicates(Player currentPlayer, String blockId, int keepSlot) {
+        duplicateChecks.incrementAndGet();
+        BlockLocationRegistry registry = plugin.getBlockLocationRegistry();
+
+        // 🆕 首先检查使用者自己背包中的重复方块（除了当前手持的）
+        int removedFromSelf = removeDuplicates(currentPlayer, blockId, keepSlot);
+        registry.trackPlayer(currentPlayer);
+        reportRemoved(currentPlayer, blockId, removedFromSelf);
+
+        // 然后只检查登记表中持有该方块的其他玩家（末影箱中的方块无法直接使用，无需检测）
+        int holders = 0;
+        for (BlockLocationRegistry.Holder holder : registry.getHolders(blockId)) {
+            if (holder.getType() != BlockLocationRegistry.HolderType.PLAYER
+                    || holder.getEntityId().equals(currentPlayer.getUniqueId())) {
+                continue;
+            }
+
+            Player holderPlayer = Bukkit.getPlayer(holder.getEntityId());
+            if (holderPlayer == null) {
+                registry.untrack(holder);
+                continue;
+            }
+
+            holders++;
+            plugin.getFoliaLib().getScheduler().runAtEntity(holderPlayer, task -> {
+                int removed = removeDuplicates(holderPlayer, blockId, -1);
+                registry.trackPlayer(holderPlayer);
+                reportRemoved(currentPlayer, blockId, removed);
+            });
+        }
 
         plugin.debug(String.format(
-            "重复检测完成 - 检查玩家数: %d (包括自己), 移除重复: %d (仅检测背包)",
-            Bukkit.getOnlinePlayers().size(), duplicatesRemovedInThisCheck
+            "重复检测 - 方块ID: %s, 持有该方块的其他玩家: %d (仅检测背包)",
+            blockId, holders
         ));
     }
     
     /**
-     * 从玩家背包中移除重复方块
+     * 从玩家背包中移除指定ID的方块，需在玩家所在线程调用
+     *
+     * @param keepSlot 保留的槽位，-1 表示全部移除
      */
-    private int removeDuplicatesFromInventory(Player player, String targetBlockId, String inventoryType) {
+    private int removeDuplicates(Player player, String targetBlockId, int keepSlot) {
+        if (!player.isOnline()) return 0;
+
         int removedCount = 0;
         ItemStack[] contents = player.getInventory().getContents();
+
+        // 防抖期间方块可能已被移动，保留的槽位不再是该方块时改为保留找到的第一个
+        if (keepSlot >= 0 && (keepSlot >= contents.length || !targetBlockId.equals(getBlockId(contents[keepSlot])))) {
+            keepSlot = -1;
+            for (int i = 0; i < contents.length; i++) {
+                if (targetBlockId.equals(getBlockId(contents[i]))) {
+                    keepSlot = i;
+                    break;
+                }
+            }
+            if (keepSlot < 0) return 0;
+        }
         
         for (int i = 0; i < contents.length; i++) {
+            if (i == keepSlot) continue;
+
             ItemStack item = contents[i];
             if (item != null && plugin.getBlockManager().isMagicBlock(item)) {
                 ItemMeta meta = item.getItemMeta();
@@ -150,8 +275,8 @@ public class DuplicateBlockDetector implements Listener {
                         removedCount++;
                         
                         plugin.debug(String.format(
-                            "从玩家 %s 的%s中移除重复方块 (ID: %s)",
-                            player.getName(), inventoryType, targetBlockId
+                            "从玩家 %s 的背包中移除重复方块 (ID: %s%s)",
+                            player.getName(), targetBlockId, keepSlot >= 0 ? ", 自己的重复方块" : ""
                         ));
                     }
                 }
@@ -161,55 +286,52 @@ public class DuplicateBlockDetector implements Listener {
         return removedCount;
     }
 
+    private String getBlockId(ItemStack item) {
+        if (item == null || !item.hasItemMeta()) return null;
+        ItemMeta meta = item.getItemMeta();
+        return meta != null ? meta.getPersistentDataContainer().get(blockIdKey, PersistentDataType.STRING) : null;
+    }
+
     /**
-     * 从当前玩家背包中移除重复方块（除了当前手持的方块）
+     * 记录移除结果并通知管理员
      */
-    private int removeDuplicatesFromCurrentPlayerInventory(Player player, String targetBlockId) {
-        int removedCount = 0;
-        ItemStack[] contents = player.getInventory().getContents();
-        ItemStack mainHandItem = player.getInventory().getItemInMainHand();
-        ItemStack offHandItem = player.getInventory().getItemInOffHand();
-
-        for (int i = 0; i < contents.length; i++) {
-            ItemStack item = contents[i];
-            if (item != null && plugin.getBlockManager().isMagicBlock(item)) {
-                // 跳过当前手持的方块（主手和副手）
-                if (item.equals(mainHandItem) || item.equals(offHandItem)) {
-                    continue;
-                }
+    private void reportRemoved(Player currentPlayer, String blockId, int removed) {
+        if (removed <= 0) return;
 
-                ItemMeta meta = item.getItemMeta();
-                if (meta != null) {
-                    String itemBlockId = meta.getPersistentDataContainer().get(
-                        blockIdKey, PersistentDataType.STRING
-                    );
-
-                    if (targetBlockId.equals(itemBlockId)) {
-                        // 找到重复方块，移除它
-                        player.getInventory().setItem(i, null);
-                        removedCount++;
+        duplicatesFound.addAndGet(removed);
+        duplicatesRemoved.addAndGet(removed);
+        
+        // 记录到日志
+        plugin.getLogger().info(String.format(
+            "检测到并移除了 %d 个重复的魔法方块 (ID: %s, 触发玩家: %s)",
+            removed, blockId, currentPlayer.getName()
+        ));
+        
+        // 发送消息给管理员（如果配置启用）
+        if (plugin.getConfig().getBoolean("anti-duplication.notify-admins", true)) {
+            String message = plugin.getLanguageManager().getMessage("anti-duplication.duplicates-removed")
+                .replace("%amount%", String.valueOf(removed))
+                .replace("%player%", currentPlayer.getName());
 
-                        plugin.debug(String.format(
-                            "从玩家 %s 的背包中移除重复方块 (ID: %s, 自己的重复方块)",
-                            player.getName(), targetBlockId
-                        ));
-                    }
+            for (Player admin : Bukkit.getOnlinePlayers()) {
+                if (admin.hasPermission("magicblock.admin")) {
+                    admin.sendMessage(plugin.getLanguageManager().getMessage("general.prefix") + message);
                 }
             }
         }
-
-        return removedCount;
     }
 
-
-
     /**
      * 获取性能统计信息
      */
     public String getPerformanceStats() {
+        long requests = checkRequests.get();
+        long saved = checksCoalesced.get() + checksSkipped.get();
         return String.format(
-            "重复检测统计 - 总检测次数: %d, 发现重复: %d, 移除重复: %d",
-            duplicateChecks.get(), duplicatesFound.get(), duplicatesRemoved.get()
+            "重复检测统计 - 请求次数: %d, 实际检测次数: %d, 合并: %d, 跳过: %d, 节省: %.1f%%, 发现重复: %d, 移除重复: %d",
+            requests, duplicateChecks.get(), checksCoalesced.get(), checksSkipped.get(),
+            requests > 0 ? (double) saved / requests * 100 : 0.0,
+            duplicatesFound.get(), duplicatesRemoved.get()
         );
     }
     
@@ -220,5 +342,8 @@ public class DuplicateBlockDetector implements Listener {
         duplicateChecks.set(0);
         duplicatesFound.set(0);
         duplicatesRemoved.set(0);
+        checkRequests.set(0);
+        checksCoalesced.set(0);
+        checksSkipped.set(0);
     }
 }
@@ -6,19 +6,99 @@ import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
 /**
  * Lore工具类 - 统一管理魔法方块和魔法食物的lore生成逻辑
  *
+ * 性能优化:
+ * - 进度条只有 barLength + 1 种状态，按 (长度, 填充字符, 空字符) 预先生成全部字符串
+ * - 使用次数文本编译为模板，前缀和颜色代码只拼接一次
+ * - 已生成的样式和模板保存在写时复制数组中，查询时不分配内存
  */
 public final class LoreUtil {
 
+    // 不同样式的数量很少，超过上限时重新开始，防止配置反复变化导致无限增长
+    private static final int MAX_CACHED_STYLES = 16;
+    private static final String DEFAULT_INFINITE_SYMBOL = "∞";
+
+    private static volatile ProgressBar[] progressBars = new ProgressBar[0];
+    private static volatile UsageTemplate[] usageTemplates = new UsageTemplate[0];
+
     private LoreUtil() {
         // 工具类不允许实例化
     }
 
+    /**
+     * 某一样式的全部进度条，下标为已填充的格数
+     */
+    private static final class ProgressBar {
+        final int length;
+        final String filledChar;
+        final String emptyChar;
+        final String[] bars;
+
+        ProgressBar(int length, String filledChar, String emptyChar) {
+            this.length = length;
+            this.filledChar = filledChar;
+            this.emptyChar = emptyChar;
+            this.bars = new String[length + 1];
+            for (int filled = 0; filled <= length; filled++) {
+                StringBuilder progressBar = new StringBuilder();
+                progressBar.append(ChatColor.GRAY).append("[");
+                for (int i = 0; i < length; i++) {
+                    if (i < filled) {
+                        progressBar.append(ChatColor.GREEN).append(filledChar);
+                    } else {
+                        progressBar.append(ChatColor.GRAY).append(emptyChar);
+                    }
+                }
+                progressBar.append(ChatColor.GRAY).append("]");
+                bars[filled] = progressBar.toString();
+            }
+        }
+
+        boolean matches(int length, String filledChar, String emptyChar) {
+            return this.length == length && this.filledChar.equals(filledChar) && this.emptyChar.equals(emptyChar);
+        }
+    }
+
+    /**
+     * 编译后的使用次数文本模板
+     * 前缀和颜色代码在编译时拼接好，格式化时只追加数字
+     */
+    public static final class UsageTemplate {
+        private static final String SEPARATOR = ChatColor.GRAY + "/" + ChatColor.GRAY;
+
+        private final String prefix;
+        private final String infiniteSymbol;
+        private final String head;
+        private final String infiniteText;
+
+        public UsageTemplate(String prefix, String infiniteSymbol) {
+            this.prefix = prefix;
+            this.infiniteSymbol = infiniteSymbol;
+            this.head = ChatColor.GRAY + prefix + " " + ChatColor.AQUA;
+            this.infiniteText = head + infiniteSymbol + SEPARATOR + infiniteSymbol;
+        }
+
+        /**
+         * 生成使用次数文本，无限次数时直接返回预先生成的字符串
+         */
+        public String format(int remainingTimes, int maxTimes, boolean isInfinite) {
+            if (isInfinite) {
+                return infiniteText;
+            }
+            return head + remainingTimes + SEPARATOR + maxTimes;
+        }
+
+        boolean matches(String prefix, String infiniteSymbol) {
+            return this.prefix.equals(prefix) && this.infiniteSymbol.equals(infiniteSymbol);
+        }
+    }
+
     /**
      * 生成进度条字符串
      *
@@ -31,22 +111,31 @@ public final class LoreUtil {
      */
     public static String generateProgressBar(int remainingTimes, int maxTimes, int barLength,
                                             String filledChar, String emptyChar) {
+        int length = Math.max(0, barLength);
         double usedPercentage = (double) remainingTimes / maxTimes;
-        int filledBars = (int) Math.round(usedPercentage * barLength);
+        int filledBars = (int) Math.round(usedPercentage * length);
 
-        StringBuilder progressBar = new StringBuilder();
-        progressBar.append(ChatColor.GRAY).append("[");
+        ProgressBar bar = getProgressBar(length, filledChar, emptyChar);
+        return bar.bars[Math.max(0, Math.min(length, filledBars))];
+    }
 
-        for (int i = 0; i < barLength; i++) {
-            if (i < filledBars) {
-                progressBar.append(ChatColor.GREEN).append(filledChar);
-            } else {
-                progressBar.append(ChatColor.GRAY).append(emptyChar);
+    private static ProgressBar getProgressBar(int length, String filledChar, String emptyChar) {
+        for (ProgressBar bar : progressBars) {
+            if (bar.matches(length, filledChar, emptyChar)) {
+                return bar;
             }
         }
-
-        progressBar.append(ChatColor.GRAY).append("]");
-        return progressBar.toString();
+        synchronized (LoreUtil.class) {
+            ProgressBar[] current = progressBars;
+            for (ProgressBar bar : current) {
+                if (bar.matches(length, filledChar, emptyChar)) {
+                    return bar;
+                }
+            }
+            ProgressBar bar = new ProgressBar(length, filledChar, emptyChar);
+            progressBars = append(current, bar);
+            return bar;
+        }
     }
 
     /**
@@ -73,20 +162,53 @@ public final class LoreUtil {
      */
     public static String generateUsageText(String prefix, int remainingTimes, int maxTimes,
                                           boolean isInfinite, String infiniteSymbol) {
-        StringBuilder usageText = new StringBuilder();
-        usageText.append(ChatColor.GRAY).append(prefix).append(" ");
+        return getUsageTemplate(prefix, infiniteSymbol).format(remainingTimes, maxTimes, isInfinite);
+    }
 
-        if (isInfinite) {
-            usageText.append(ChatColor.AQUA).append(infiniteSymbol)
-                    .append(ChatColor.GRAY).append("/")
-                    .append(ChatColor.GRAY).append(infiniteSymbol);
-        } else {
-            usageText.append(ChatColor.AQUA).append(remainingTimes)
-                    .append(ChatColor.GRAY).append("/")
-                    .append(ChatColor.GRAY).append(maxTimes);
+    /**
+     * 获取使用次数文本模板（使用默认无限符号）
+     *
+     * @param prefix 前缀文本
+     * @return 编译后的模板
+     */
+    public static UsageTemplate getUsageTemplate(String prefix) {
+        return getUsageTemplate(prefix, DEFAULT_INFINITE_SYMBOL);
+    }
+
+    /**
+     * 获取使用次数文本模板，相同的前缀和无限符号共用同一个模板
+     *
+     * @param prefix 前缀文本
+     * @param infiniteSymbol 无限符号
+     * @return 编译后的模板
+     */
+    public static UsageTemplate getUsageTemplate(String prefix, String infiniteSymbol) {
+        for (UsageTemplate template : usageTemplates) {
+            if (template.matches(prefix, infiniteSymbol)) {
+                return template;
+            }
+        }
+        synchronized (LoreUtil.class) {
+            UsageTemplate[] current = usageTemplates;
+            for (UsageTemplate template : current) {
+                if (template.matches(prefix, infiniteSymbol)) {
+                    return template;
+                }
+            }
+            UsageTemplate template = new UsageTemplate(prefix, infiniteSymbol);
+            usageTemplates = append(current, template);
+            return template;
         }
+    }
 
-        return usageText.toString();
+    /**
+     * 写时复制追加，达到上限时只保留新元素
+     */
+    private static <T> T[] append(T[] current, T element) {
+        int keep = current.length >= MAX_CACHED_STYLES ? 0 : current.length;
+        T[] updated = Arrays.copyOf(current, keep + 1);
+        updated[keep] = element;
+        return updated;
     }
 
     /**
@@ -99,7 +221,7 @@ public final class LoreUtil {
      * @return 格式化的使用次数字符串
      */
     public static String generateUsageText(String prefix, int remainingTimes, int maxTimes, boolean isInfinite) {
-        return generateUsageText(prefix, remainingTimes, maxTimes, isInfinite, "∞");
+        return generateUsageText(prefix, remainingTimes, maxTimes, isInfinite, DEFAULT_INFINITE_SYMBOL);
     }
 
     /**
@@ -130,6 +252,24 @@ public final class LoreUtil {
         return processedLine;
     }
 
+    /**
+     * 对已转换颜色代码的lore行应用PlaceholderAPI变量
+     *
+     * @param lines 已转换颜色代码的lore行列表
+     * @param player 玩家（可以为null）
+     * @return 未安装PlaceholderAPI时直接返回原列表
+     */
+    public static List<String> applyPlaceholders(List<String> lines, Player player) {
+        if (lines.isEmpty() || Bukkit.getPluginManager().getPlugin("PlaceholderAPI") == null) {
+            return lines;
+        }
+        List<String> processedLines = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            processedLines.add(me.clip.placeholderapi.PlaceholderAPI.setPlaceholders(player, line));
+        }
+        return processedLines;
+    }
+
     /**
      * 批量处理装饰性lore列表
      *
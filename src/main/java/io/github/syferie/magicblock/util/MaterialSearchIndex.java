@@ -0,0 +1,181 @@
+package io.github.syferie.magicblock.util;
+
+import org.bukkit.Material;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 材料搜索索引
+ *
+ * 工作原理:
+ * - 创建时为每个材料的英文名（含下划线换成空格的形式）和本地化名称建立单字/双字索引
+ * - 查询时取查询词所有双字的倒排表求交集，再对少量候选做子串校验
+ * - 没有子串匹配时退回按顺序包含字符的模糊匹配（如 "dmnd" 匹配 diamond）
+ * - 查询结果为不可变列表并缓存，重复查询不再分配
+ *
+ * 线程安全:
+ * - 索引创建后只读，结果缓存使用 ConcurrentHashMap，可在任意线程查询
+ */
+public final class MaterialSearchIndex {
+
+    private static final int MAX_CACHED_QUERIES = 256;
+    private static final int[] EMPTY = new int[0];
+
+    private final Material[] materials;
+    private final String[][] keys;
+    private final Map<String, int[]> grams;
+    private final Map<String, List<Material>> results = new ConcurrentHashMap<>();
+
+    /**
+     * @param materials 可搜索的材料，结果保持该顺序
+     * @param localizedName 本地化名称
+     */
+    public MaterialSearchIndex(List<Material> materials, Function<Material, String> localizedName) {
+        this.materials = materials.toArray(new Material[0]);
+        this.keys = new String[this.materials.length][];
+
+        Map<String, List<Integer>> postings = new HashMap<>();
+        for (int i = 0; i < this.materials.length; i++) {
+            String name = this.materials[i].name().toLowerCase(Locale.ROOT);
+            String localized = localizedName.apply(this.materials[i]);
+            keys[i] = localized == null
+                    ? new String[]{name, name.replace('_', ' ')}
+                    : new String[]{name, name.replace('_', ' '), localized.toLowerCase(Locale.ROOT)};
+            for (String key : keys[i]) {
+                for (int start = 0; start < key.length(); start++) {
+                    addPosting(postings, key.substring(start, start + 1), i);
+                    if (start + 2 <= key.length()) {
+                        addPosting(postings, key.substring(start, start + 2), i);
+                    }
+                }
+            }
+        }
+
+        this.grams = new HashMap<>(postings.size() * 2);
+        for (Map.Entry<String, List<Integer>> entry : postings.entrySet()) {
+            List<Integer> list = entry.getValue();
+            int[] ids = new int[list.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = list.get(i);
+            }
+            grams.put(entry.getKey(), ids);
+        }
+    }
+
+    private static void addPosting(Map<String, List<Integer>> postings, String gram, int id) {
+        List<Integer> list = postings.computeIfAbsent(gram, k -> new ArrayList<>());
+        // 同一材料按顺序加入，只需和最后一个比较即可去重
+        if (list.isEmpty() || list.get(list.size() - 1) != id) {
+            list.add(id);
+        }
+    }
+
+    /**
+     * 搜索材料，返回的列表不可修改
+     */
+    public List<Material> search(String query) {
+        String normalized = query.trim().toLowerCase(Locale.ROOT);
+        if (normalized.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Material> cached = results.get(normalized);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<Material> found = findSubstring(normalized);
+        if (found.isEmpty()) {
+            found = findFuzzy(normalized);
+        }
+        found = Collections.unmodifiableList(found);
+
+        if (results.size() >= MAX_CACHED_QUERIES) {
+            results.clear();
+        }
+        results.put(normalized, found);
+        return found;
+    }
+
+    private List<Material> findSubstring(String query) {
+        int[] candidates;
+        if (query.length() == 1) {
+            candidates = grams.getOrDefault(query, EMPTY);
+        } else {
+            candidates = null;
+            for (int start = 0; start + 2 <= query.length(); start++) {
+                int[] posting = grams.getOrDefault(query.substring(start, start + 2), EMPTY);
+                candidates = candidates == null ? posting : intersect(candidates, posting);
+                if (candidates.length == 0) break;
+            }
+        }
+
+        List<Material> found = new ArrayList<>();
+        for (int id : candidates) {
+            if (matches(id, query)) {
+                found.add(materials[id]);
+            }
+        }
+        return found;
+    }
+
+    private boolean matches(int id, String query) {
+        for (String key : keys[id]) {
+            if (key.contains(query)) return true;
+        }
+        return false;
+    }
+
+    private List<Material> findFuzzy(String query) {
+        // 查询词中的每个字符都必须出现过，否则不可能匹配
+        for (int i = 0; i < query.length(); i++) {
+            if (!grams.containsKey(query.substring(i, i + 1))) {
+                return new ArrayList<>();
+            }
+        }
+        List<Material> found = new ArrayList<>();
+        for (int id = 0; id < materials.length; id++) {
+            for (String key : keys[id]) {
+                if (isSubsequence(query, key)) {
+                    found.add(materials[id]);
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+
+    private static boolean isSubsequence(String query, String key) {
+        int matched = 0;
+        for (int i = 0; i < key.length() && matched < query.length(); i++) {
+            if (key.charAt(i) == query.charAt(matched)) {
+                matched++;
+            }
+        }
+        return matched == query.length();
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, size = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+}
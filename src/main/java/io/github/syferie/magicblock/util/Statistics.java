@@ -1,106 +1,141 @@
 package io.github.syferie.magicblock.util;
 
 import io.github.syferie.magicblock.MagicBlockPlugin;
-import org.bukkit.configuration.file.FileConfiguration;
+import io.github.syferie.magicblock.storage.DataStorage;
+import io.github.syferie.magicblock.storage.DirtyTracker;
+import io.github.syferie.magicblock.storage.StorageParticipant;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.concurrent.ConcurrentHashMap;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 
-public class Statistics {
+/**
+ * 使用统计 (stats.yml)
+ * - 计数保存在插件的 UsageCounters 中（与 bStats、PlaceholderAPI 共用），这里只负责持久化
+ * - 由 StorageManager 的统一落盘任务在后台线程写入计数快照，写入时不与事件线程共享任何可变对象
+ */
+public class Statistics implements StorageParticipant {
     private final MagicBlockPlugin plugin;
     private final File statsFile;
-    private FileConfiguration stats;
-    private final ConcurrentHashMap<UUID, Integer> blockUses = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<UUID, Integer> foodUses = new ConcurrentHashMap<>();
+    private final UsageCounters blockUses;
+    private final UsageCounters foodUses;
 
-    // 性能优化：批量保存和缓存
-    private volatile boolean needsSave = false;
-    private long lastSaveTime = 0;
+    // 有新使用记录、等待保存的玩家
+    private final DirtyTracker<UUID> dirtyPlayers;
 
     public Statistics(MagicBlockPlugin plugin) {
         this.plugin = plugin;
         this.statsFile = new File(plugin.getDataFolder(), "stats.yml");
+        this.blockUses = plugin.getBlockUsage();
+        this.foodUses = plugin.getFoodUsage();
+        // 从配置读取性能设置，未配置时使用存储的统一策略
+        this.dirtyPlayers = new DirtyTracker<>(
+            plugin.getConfig().getInt("performance.statistics.batch-threshold",
+                plugin.getConfig().getInt("storage.batch-threshold", 50)),
+            plugin.getConfig().getLong("performance.statistics.save-interval",
+                plugin.getConfig().getLong("storage.max-delay", 5000L)));
         loadStats();
     }
 
     private void loadStats() {
         if (!statsFile.exists()) {
+            return;
+        }
+        YamlConfiguration stats = YamlConfiguration.loadConfiguration(statsFile);
+        loadSection(stats.getConfigurationSection("blocks"), blockUses);
+        loadSection(stats.getConfigurationSection("foods"), foodUses);
+    }
+
+    private void loadSection(ConfigurationSection section, UsageCounters target) {
+        if (section == null) return;
+        for (String key : section.getKeys(false)) {
             try {
-                statsFile.createNewFile();
-            } catch (IOException e) {
-                plugin.getLogger().warning("无法创建统计文件: " + e.getMessage());
-                return;
+                UUID playerUUID = UUID.fromString(key);
+                long value = section.getLong(key, 0L);
+                // 统计关闭期间内存中的计数可能已超过文件中的值，取较大者
+                if (value > target.get(playerUUID)) {
+                    target.set(playerUUID, value);
+                }
+            } catch (IllegalArgumentException e) {
+                plugin.debug("跳过无效UUID: " + key);
             }
         }
-        stats = YamlConfiguration.loadConfiguration(statsFile);
     }
 
-    public void saveStats() {
-        if (stats == null) return;
-        
+    /**
+     * 写入当前计数的快照
+     * 快照在调用线程上生成，写入临时文件后原子替换
+     */
+    public synchronized void saveStats() {
+        YamlConfiguration snapshot = new YamlConfiguration();
+        writeSection(snapshot, "blocks", blockUses);
+        writeSection(snapshot, "foods", foodUses);
+
+        File tempFile = new File(statsFile.getParentFile(), statsFile.getName() + ".tmp");
         try {
-            stats.save(statsFile);
+            if (!statsFile.getParentFile().exists()) {
+                statsFile.getParentFile().mkdirs();
+            }
+            try (Writer writer = Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8)) {
+                writer.write(snapshot.saveToString());
+            }
+            try {
+                Files.move(tempFile.toPath(), statsFile.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile.toPath(), statsFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
         } catch (IOException e) {
             plugin.getLogger().warning("无法保存统计数据: " + e.getMessage());
         }
     }
 
-    public void logBlockUse(Player player, ItemStack block) {
-        UUID playerUUID = player.getUniqueId();
-        String path = "blocks." + playerUUID;
-        int uses = stats.getInt(path, 0) + 1;
-        stats.set(path, uses);
-        blockUses.put(playerUUID, uses);
+    private static void writeSection(YamlConfiguration snapshot, String path, UsageCounters counters) {
+        Map<String, Object> values = new HashMap<>();
+        for (Map.Entry<UUID, Long> entry : counters.snapshot().entrySet()) {
+            values.put(entry.getKey().toString(), entry.getValue());
+        }
+        snapshot.createSection(path, values);
+    }
 
-        // 性能优化：智能保存策略
-        scheduleSmartSave(uses);
+    /**
+     * 记录方块使用，计数已由插件的 UsageCounters 自增，这里只标记待保存
+     */
+    public void logBlockUse(Player player, ItemStack block) {
+        dirtyPlayers.markDirty(player.getUniqueId());
     }
 
+    /**
+     * 记录食物使用，计数已由插件的 UsageCounters 自增，这里只标记待保存
+     */
     public void logFoodUse(Player player, ItemStack food) {
-        UUID playerUUID = player.getUniqueId();
-        String path = "foods." + playerUUID;
-        int uses = stats.getInt(path, 0) + 1;
-        stats.set(path, uses);
-        foodUses.put(playerUUID, uses);
-
-        // 性能优化：智能保存策略
-        scheduleSmartSave(uses);
+        dirtyPlayers.markDirty(player.getUniqueId());
     }
 
-    // 性能优化：智能保存策略
-    private void scheduleSmartSave(int totalUses) {
-        needsSave = true;
-        long currentTime = System.currentTimeMillis();
-
-        // 从配置读取性能设置
-        int batchThreshold = plugin.getConfig().getInt("performance.statistics.batch-threshold", 50);
-        long saveInterval = plugin.getConfig().getLong("performance.statistics.save-interval", 30000);
-
-        // 条件1：达到批量保存阈值
-        // 条件2：距离上次保存超过指定时间间隔
-        if (totalUses % batchThreshold == 0 ||
-            (currentTime - lastSaveTime) > saveInterval) {
-
-            plugin.getFoliaLib().getScheduler().runAsync(wrappedTask -> {
-                if (needsSave) {
-                    saveStats();
-                    needsSave = false;
-                    lastSaveTime = System.currentTimeMillis();
-                }
-            });
+    @Override
+    public void flush(DataStorage storage, boolean force) {
+        if (dirtyPlayers.shouldFlush(force)) {
+            dirtyPlayers.drain();
+            saveStats();
         }
     }
 
     public int getBlockUses(UUID playerUUID) {
-        return blockUses.getOrDefault(playerUUID, stats.getInt("blocks." + playerUUID, 0));
+        return (int) blockUses.get(playerUUID);
     }
 
     public int getFoodUses(UUID playerUUID) {
-        return foodUses.getOrDefault(playerUUID, stats.getInt("foods." + playerUUID, 0));
+        return (int) foodUses.get(playerUUID);
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,413 @@
+package io.github.syferie.magicblock.util;
+
+import io.github.syferie.magicblock.MagicBlockPlugin;
+import io.github.syferie.magicblock.storage.DataStorage;
+import io.github.syferie.magicblock.storage.StorageParticipant;
+import org.bukkit.Material;
+import org.bukkit.World;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 按时间窗口统计的使用分析 (analytics.dat)
+ * - 放置和食用事件只对待汇总的 LongAdder 自增，不在事件线程上操作时间序列
+ * - 落盘任务定期把待汇总计数并入按分钟(60)/小时(24)/天(30)划分的环形缓冲区，内存占用有上限
+ * - 查询只读取已汇总的时间序列，不遍历待汇总计数，结果最多落后一个落盘间隔
+ * - 按全局、材质和世界分别统计，快照以紧凑的二进制格式(gzip)写入磁盘
+ */
+public class UsageAnalytics implements StorageParticipant {
+
+    private static final int MAGIC = 0x4D424155; // "MBAU"
+    private static final byte FORMAT_VERSION = 1;
+    private static final long SAVE_INTERVAL_MS = 60_000L;
+
+    /**
+     * 统计的事件类型
+     */
+    public enum EventType {
+        PLACE, EAT
+    }
+
+    /**
+     * 时间窗口，size 为环形缓冲区的桶数
+     */
+    public enum Window {
+        MINUTE(1, 60), HOUR(60, 24), DAY(1440, 30);
+
+        private final long minutes;
+        private final int size;
+
+        Window(long minutes, int size) {
+            this.minutes = minutes;
+            this.size = size;
+        }
+
+        public int getSize() {
+            return size;
+        }
+    }
+
+    /**
+     * 一组时间序列：每个窗口一个环形缓冲区，桶内记录所属的时间编号，过期的桶在写入时重置
+     */
+    private static final class Series {
+        private final long[][] counts = new long[Window.values().length][];
+        private final long[][] stamps = new long[Window.values().length][];
+
+        Series() {
+            for (Window window : Window.values()) {
+                counts[window.ordinal()] = new long[window.size];
+                stamps[window.ordinal()] = new long[window.size];
+            }
+        }
+
+        void add(long epochMinute, long amount) {
+            for (Window window : Window.values()) {
+                long index = epochMinute / window.minutes;
+                int slot = (int) (index % window.size);
+                long[] windowCounts = counts[window.ordinal()];
+                long[] windowStamps = stamps[window.ordinal()];
+                if (windowStamps[slot] != index) {
+                    windowStamps[slot] = index;
+                    windowCounts[slot] = 0;
+                }
+                windowCounts[slot] += amount;
+            }
+        }
+
+        /**
+         * 最近 span 个窗口（包括当前窗口）的总数
+         */
+        long sum(Window window, int span, long epochMinute) {
+            long current = epochMinute / window.minutes;
+            long[] windowCounts = counts[window.ordinal()];
+            long[] windowStamps = stamps[window.ordinal()];
+            long total = 0;
+            for (int i = 0; i < Math.min(span, window.size); i++) {
+                long index = current - i;
+                int slot = (int) (index % window.size);
+                if (windowStamps[slot] == index) {
+                    total += windowCounts[slot];
+                }
+            }
+            return total;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            for (Window window : Window.values()) {
+                long[] windowCounts = counts[window.ordinal()];
+                long[] windowStamps = stamps[window.ordinal()];
+                int nonEmpty = 0;
+                for (long count : windowCounts) {
+                    if (count != 0) nonEmpty++;
+                }
+                out.writeByte(nonEmpty);
+                for (int slot = 0; slot < window.size; slot++) {
+                    if (windowCounts[slot] == 0) continue;
+                    out.writeByte(slot);
+                    out.writeInt((int) windowStamps[slot]);
+                    out.writeLong(windowCounts[slot]);
+                }
+            }
+        }
+
+        void read(DataInputStream in) throws IOException {
+            for (Window window : Window.values()) {
+                int nonEmpty = in.readUnsignedByte();
+                for (int i = 0; i < nonEmpty; i++) {
+                    int slot = in.readUnsignedByte();
+                    long stamp = in.readInt();
+                    long count = in.readLong();
+                    if (slot < window.size) {
+                        stamps[window.ordinal()][slot] = stamp;
+                        counts[window.ordinal()][slot] = count;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 单个事件类型的待汇总计数
+     */
+    private static final class Pending {
+        private final LongAdder global = new LongAdder();
+        private final AtomicReferenceArray<LongAdder> byMaterial = new AtomicReferenceArray<>(Material.values().length);
+        private final Map<String, LongAdder> byWorld = new ConcurrentHashMap<>();
+
+        void record(Material material, String world) {
+            global.increment();
+            LongAdder materialCounter = byMaterial.get(material.ordinal());
+            if (materialCounter == null) {
+                byMaterial.compareAndSet(material.ordinal(), null, new LongAdder());
+                materialCounter = byMaterial.get(material.ordinal());
+            }
+            materialCounter.increment();
+            if (world != null) {
+                byWorld.computeIfAbsent(world, k -> new LongAdder()).increment();
+            }
+        }
+    }
+
+    private final MagicBlockPlugin plugin;
+    private final File dataFile;
+    private final Material[] materials = Material.values();
+
+    private final Map<EventType, Pending> pending = new EnumMap<>(EventType.class);
+
+    // 以下时间序列只在持有 this 锁时访问
+    private final Map<EventType, Series> global = new EnumMap<>(EventType.class);
+    private final Map<EventType, Map<Material, Series>> byMaterial = new EnumMap<>(EventType.class);
+    private final Map<EventType, Map<String, Series>> byWorld = new EnumMap<>(EventType.class);
+
+    private boolean dirty;
+    private long lastSaveTime = System.currentTimeMillis();
+
+    public UsageAnalytics(MagicBlockPlugin plugin) {
+        this.plugin = plugin;
+        this.dataFile = new File(plugin.getDataFolder(), "analytics.dat");
+        for (EventType type : EventType.values()) {
+            pending.put(type, new Pending());
+            global.put(type, new Series());
+            byMaterial.put(type, new EnumMap<>(Material.class));
+            byWorld.put(type, new HashMap<>());
+        }
+        load();
+    }
+
+    /**
+     * 记录一次事件，可在任意线程调用
+     */
+    public void record(EventType type, Material material, World world) {
+        pending.get(type).record(material, world != null ? world.getName() : null);
+    }
+
+    /**
+     * 将待汇总的计数并入当前分钟的时间序列，只在落盘任务中调用
+     */
+    private synchronized void drain() {
+        long now = currentMinute();
+        for (EventType type : EventType.values()) {
+            Pending typePending = pending.get(type);
+            // 各计数器独立自增，全局为0时材质/世界计数器仍可能有值，需逐个清空
+            long total = typePending.global.sumThenReset();
+            if (total > 0) {
+                dirty = true;
+                global.get(type).add(now, total);
+            }
+            for (int i = 0; i < materials.length; i++) {
+                LongAdder counter = typePending.byMaterial.get(i);
+                long amount = counter != null ? counter.sumThenReset() : 0;
+                if (amount > 0) {
+                    dirty = true;
+                    byMaterial.get(type).computeIfAbsent(materials[i], k -> new Series()).add(now, amount);
+                }
+            }
+            for (Map.Entry<String, LongAdder> entry : typePending.byWorld.entrySet()) {
+                long amount = entry.getValue().sumThenReset();
+                if (amount > 0) {
+                    dirty = true;
+                    byWorld.get(type).computeIfAbsent(entry.getKey(), k -> new Series()).add(now, amount);
+                }
+            }
+        }
+    }
+
+    /**
+     * 全局在最近 span 个窗口内的次数
+     */
+    public long count(EventType type, Window window, int span) {
+        synchronized (this) {
+            return global.get(type).sum(window, span, currentMinute());
+        }
+    }
+
+    /**
+     * 指定材质在最近 span 个窗口内的次数
+     */
+    public long count(EventType type, Material material, Window window, int span) {
+        synchronized (this) {
+            Series series = byMaterial.get(type).get(material);
+            return series != null ? series.sum(window, span, currentMinute()) : 0L;
+        }
+    }
+
+    /**
+     * 指定世界在最近 span 个窗口内的次数
+     */
+    public long count(EventType type, String world, Window window, int span) {
+        synchronized (this) {
+            Series series = byWorld.get(type).get(world);
+            return series != null ? series.sum(window, span, currentMinute()) : 0L;
+        }
+    }
+
+    /**
+     * 最近 span 个窗口内次数最多的材质
+     */
+    public List<Map.Entry<String, Long>> topMaterials(EventType type, Window window, int span, int limit) {
+        synchronized (this) {
+            Map<String, Series> named = new HashMap<>();
+            for (Map.Entry<Material, Series> entry : byMaterial.get(type).entrySet()) {
+                named.put(entry.getKey().name(), entry.getValue());
+            }
+            return top(named, window, span, limit);
+        }
+    }
+
+    /**
+     * 最近 span 个窗口内次数最多的世界
+     */
+    public List<Map.Entry<String, Long>> topWorlds(EventType type, Window window, int span, int limit) {
+        synchronized (this) {
+            return top(byWorld.get(type), window, span, limit);
+        }
+    }
+
+    private List<Map.Entry<String, Long>> top(Map<String, Series> source, Window window, int span, int limit) {
+        long now = currentMinute();
+        List<Map.Entry<String, Long>> result = new ArrayList<>();
+        for (Map.Entry<String, Series> entry : source.entrySet()) {
+            long sum = entry.getValue().sum(window, span, now);
+            if (sum > 0) {
+                result.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), sum));
+            }
+        }
+        result.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    @Override
+    public void flush(DataStorage storage, boolean force) {
+        drain();
+        long now = System.currentTimeMillis();
+        if (force || now - lastSaveTime >= SAVE_INTERVAL_MS) {
+            lastSaveTime = now;
+            save();
+        }
+    }
+
+    /**
+     * 写入二进制快照：序列化在锁内完成（仅内存操作），写文件在锁外进行
+     */
+    public void save() {
+        byte[] data;
+        synchronized (this) {
+            if (!dirty) return;
+            try {
+                data = serialize();
+                dirty = false;
+            } catch (IOException e) {
+                plugin.getLogger().warning("无法序列化使用分析数据: " + e.getMessage());
+                return;
+            }
+        }
+
+        File tempFile = new File(dataFile.getParentFile(), dataFile.getName() + ".tmp");
+        try {
+            if (!dataFile.getParentFile().exists()) {
+                dataFile.getParentFile().mkdirs();
+            }
+            Files.write(tempFile.toPath(), data);
+            try {
+                Files.move(tempFile.toPath(), dataFile.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile.toPath(), dataFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                dirty = true;
+            }
+            plugin.getLogger().warning("无法保存使用分析数据: " + e.getMessage());
+        }
+    }
+
+    private byte[] serialize() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeInt(MAGIC);
+            out.writeByte(FORMAT_VERSION);
+            for (EventType type : EventType.values()) {
+                out.writeUTF(type.name());
+                global.get(type).write(out);
+
+                Map<Material, Series> materialSeries = byMaterial.get(type);
+                out.writeInt(materialSeries.size());
+                for (Map.Entry<Material, Series> entry : materialSeries.entrySet()) {
+                    out.writeUTF(entry.getKey().name());
+                    entry.getValue().write(out);
+                }
+
+                Map<String, Series> worldSeries = byWorld.get(type);
+                out.writeInt(worldSeries.size());
+                for (Map.Entry<String, Series> entry : worldSeries.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    entry.getValue().write(out);
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private synchronized void load() {
+        if (!dataFile.exists()) return;
+
+        try (InputStream file = Files.newInputStream(dataFile.toPath());
+             DataInputStream in = new DataInputStream(new GZIPInputStream(file))) {
+            if (in.readInt() != MAGIC || in.readByte() != FORMAT_VERSION) {
+                plugin.getLogger().warning("使用分析数据格式不兼容，将重新开始统计");
+                return;
+            }
+            for (int t = 0; t < EventType.values().length; t++) {
+                EventType type = EventType.valueOf(in.readUTF());
+                global.get(type).read(in);
+
+                int materialCount = in.readInt();
+                for (int i = 0; i < materialCount; i++) {
+                    String name = in.readUTF();
+                    Series series = new Series();
+                    series.read(in);
+                    Material material = Material.matchMaterial(name);
+                    if (material != null) {
+                        byMaterial.get(type).put(material, series);
+                    }
+                }
+
+                int worldCount = in.readInt();
+                for (int i = 0; i < worldCount; i++) {
+                    String name = in.readUTF();
+                    Series series = new Series();
+                    series.read(in);
+                    byWorld.get(type).put(name, series);
+                }
+            }
+            plugin.debug("已加载使用分析数据: " + dataFile.length() + " 字节");
+        } catch (IOException | IllegalArgumentException e) {
+            plugin.getLogger().warning("无法加载使用分析数据: " + e.getMessage());
+        }
+    }
+
+    private static long currentMinute() {
+        return System.currentTimeMillis() / 60_000L;
+    }
+}
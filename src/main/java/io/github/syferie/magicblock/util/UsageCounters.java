@@ -0,0 +1,130 @@
+package io.github.syferie.magicblock.util;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 每个玩家的使用次数计数器
+ * - 自增为 O(1) 的原子操作，可在任意区域线程调用，读取时不会与写入竞争
+ * - 同时维护总数、最大值和分布直方图，统计汇总时无需遍历所有玩家
+ */
+public class UsageCounters {
+
+    // 直方图各区间的下限：1-10, 11-100, 101-1000, 1001-10000, 10000+
+    private static final long[] BUCKET_LOWER_BOUNDS = {1, 11, 101, 1001, 10001};
+    private static final String[] BUCKET_LABELS = {"1-10", "11-100", "101-1000", "1001-10000", "10000+"};
+
+    private final Map<UUID, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong(0);
+    private final LongAdder[] histogram = new LongAdder[BUCKET_LOWER_BOUNDS.length];
+
+    public UsageCounters() {
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 玩家使用次数加一
+     * 每个玩家使用 AtomicLong 而非 LongAdder：最大值和直方图需要每次自增后的准确新值，
+     * LongAdder 的 sum() 不是原子读取，并发自增时会把玩家移入错误的区间
+     *
+     * @return 玩家新的使用次数
+     */
+    public long increment(UUID player) {
+        long value = counters.computeIfAbsent(player, k -> new AtomicLong()).incrementAndGet();
+        total.increment();
+        max.accumulateAndGet(value, Math::max);
+        moveBucket(value - 1, value);
+        return value;
+    }
+
+    /**
+     * 设置玩家的使用次数（从文件加载时使用）
+     */
+    public void set(UUID player, long value) {
+        if (value < 0) value = 0;
+        long previous = counters.computeIfAbsent(player, k -> new AtomicLong()).getAndSet(value);
+        total.add(value - previous);
+        max.accumulateAndGet(value, Math::max);
+        moveBucket(previous, value);
+    }
+
+    public long get(UUID player) {
+        AtomicLong counter = counters.get(player);
+        return counter != null ? counter.get() : 0L;
+    }
+
+    public long getTotal() {
+        return total.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public int getPlayerCount() {
+        return counters.size();
+    }
+
+    /**
+     * 每个玩家的平均使用次数
+     */
+    public long getAverage() {
+        int players = counters.size();
+        return players > 0 ? total.sum() / players : 0L;
+    }
+
+    /**
+     * 各使用次数区间的玩家数量
+     */
+    public Map<String, Long> getHistogram() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < histogram.length; i++) {
+            result.put(BUCKET_LABELS[i], histogram[i].sum());
+        }
+        return result;
+    }
+
+    /**
+     * 当前所有计数的快照
+     */
+    public Map<UUID, Long> snapshot() {
+        Map<UUID, Long> result = new HashMap<>();
+        for (Map.Entry<UUID, AtomicLong> entry : counters.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().get());
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    public void clear() {
+        counters.clear();
+        total.reset();
+        max.set(0);
+        for (LongAdder bucket : histogram) {
+            bucket.reset();
+        }
+    }
+
+    private void moveBucket(long from, long to) {
+        int fromBucket = bucketOf(from);
+        int toBucket = bucketOf(to);
+        if (fromBucket == toBucket) return;
+        if (fromBucket >= 0) histogram[fromBucket].decrement();
+        if (toBucket >= 0) histogram[toBucket].increment();
+    }
+
+    private static int bucketOf(long value) {
+        for (int i = BUCKET_LOWER_BOUNDS.length - 1; i >= 0; i--) {
+            if (value >= BUCKET_LOWER_BOUNDS[i]) return i;
+        }
+        return -1;
+    }
+}
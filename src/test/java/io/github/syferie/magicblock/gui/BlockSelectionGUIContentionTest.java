@@ -0,0 +1,258 @@
+package io.github.syferie.magicblock.gui;
+
+import io.github.syferie.magicblock.MagicBlockPlugin;
+import org.bukkit.Material;
+import org.bukkit.Server;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.inventory.ClickType;
+import org.bukkit.event.inventory.InventoryAction;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPluginLoader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 方块选择界面点击的锁竞争测试
+ *
+ * 多个线程模拟不同区域线程上的玩家同时点击页码按钮：
+ * 某个玩家的会话锁被长时间持有时，其他玩家的点击仍能完成，只有该玩家的点击等待
+ */
+class BlockSelectionGUIContentionTest {
+
+    private static final int THREADS = 16;
+    private static final int CLICKS_PER_THREAD = 2_000;
+
+    @TempDir
+    File tempDir;
+
+    private GUIManager guiManager;
+    private BlockSelectionGUI gui;
+    private Inventory topInventory;
+    private int pageInfoSlot = -1;
+
+    /**
+     * 通过测试构造方法创建插件，不启用
+     */
+    static final class TestPlugin extends MagicBlockPlugin {
+        TestPlugin(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+            super(loader, description, dataFolder, file);
+        }
+    }
+
+    @BeforeEach
+    @SuppressWarnings("deprecation")
+    void setUp() {
+        Logger serverLogger = Logger.getLogger("MagicBlockTestServer");
+        Server server = proxy(Server.class, (p, method, args) ->
+            method.getName().equals("getLogger") ? serverLogger : defaultValue(method.getReturnType()));
+
+        PluginDescriptionFile description = new PluginDescriptionFile("MagicBlock", "test",
+            MagicBlockPlugin.class.getName());
+        MagicBlockPlugin plugin = new TestPlugin(new JavaPluginLoader(server), description,
+            new File(tempDir, "MagicBlock"), new File(tempDir, "MagicBlock.jar"));
+        // 先加载一次配置，避免多个线程同时首次读取
+        plugin.getConfig();
+
+        guiManager = new GUIManager(plugin, Collections.emptyList());
+        gui = guiManager.getBlockSelectionGUI();
+
+        GUIConfig.SlotLayout layout = new GUIConfig(plugin).getSlotLayout();
+        for (int slot = 0; slot < layout.getSize(); slot++) {
+            if (layout.getAction(slot) == GUIConfig.ACTION_PAGE_INFO) {
+                pageInfoSlot = slot;
+                break;
+            }
+        }
+        assertTrue(pageInfoSlot >= 0, "默认布局中没有页码按钮");
+
+        ItemStack pageInfo = new ItemStack(Material.PAPER);
+        topInventory = proxy(Inventory.class, (p, method, args) -> {
+            switch (method.getName()) {
+                case "getSize":
+                    return layout.getSize();
+                case "getItem":
+                    return pageInfo;
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    @Test
+    void clicksOnOtherSessionsProgressWhileOneSessionIsLocked() throws Exception {
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            players.add(openSession("Player" + i));
+        }
+        Player blockedPlayer = players.get(0);
+        GuiSession blockedSession = guiManager.findSession(blockedPlayer.getUniqueId());
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS + 1);
+        try {
+            // 另一个线程持有第一个玩家的会话锁，直到测试放行
+            CountDownLatch locked = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            Future<?> holder = pool.submit(() -> {
+                synchronized (blockedSession) {
+                    locked.countDown();
+                    release.await();
+                }
+                return null;
+            });
+            assertTrue(locked.await(10, TimeUnit.SECONDS));
+
+            AtomicReference<Thread> blockedThread = new AtomicReference<>();
+            Future<?> blockedClicks = pool.submit(() -> {
+                blockedThread.set(Thread.currentThread());
+                click(blockedPlayer, CLICKS_PER_THREAD);
+                return null;
+            });
+            List<Future<?>> otherClicks = new ArrayList<>();
+            for (Player player : players.subList(1, players.size())) {
+                otherClicks.add(pool.submit(() -> {
+                    click(player, CLICKS_PER_THREAD);
+                    return null;
+                }));
+            }
+
+            // 其他玩家的点击全部完成，被锁定的玩家仍在等待自己的会话锁
+            for (Future<?> future : otherClicks) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+            assertFalse(blockedClicks.isDone(), "会话锁被持有时该玩家的点击不应完成");
+            awaitBlocked(blockedThread);
+
+            release.countDown();
+            holder.get(10, TimeUnit.SECONDS);
+            blockedClicks.get(60, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // 每个玩家使用自己的会话，页码按钮不改变页面
+        Set<GuiSession> sessions = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Player player : players) {
+            GuiSession session = guiManager.findSession(player.getUniqueId());
+            assertNotNull(session);
+            assertEquals(1, session.currentPage);
+            sessions.add(session);
+        }
+        assertEquals(THREADS, sessions.size());
+    }
+
+    private Player openSession(String name) {
+        UUID uuid = UUID.nameUUIDFromBytes(name.getBytes());
+        Player player = proxy(Player.class, (p, method, args) -> {
+            switch (method.getName()) {
+                case "getUniqueId":
+                    return uuid;
+                case "getName":
+                    return name;
+                case "hasPermission":
+                    return true;
+                case "equals":
+                    return p == args[0];
+                case "hashCode":
+                    return uuid.hashCode();
+                case "toString":
+                    return name;
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        });
+        // 打开时间设为0，跳过打开后的操作冷却
+        guiManager.getSession(player).lastOpenTime = 0L;
+        return player;
+    }
+
+    private void click(Player player, int times) {
+        InventoryClickEvent event = new InventoryClickEvent(createView(player),
+            InventoryType.SlotType.CONTAINER, pageInfoSlot, ClickType.LEFT, InventoryAction.PICKUP_ALL);
+        for (int i = 0; i < times; i++) {
+            gui.handleInventoryClick(event, player, false);
+        }
+    }
+
+    /**
+     * 等待线程进入 BLOCKED 状态，确认它确实在等待会话锁
+     */
+    private static void awaitBlocked(AtomicReference<Thread> thread) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (thread.get() == null || thread.get().getState() != Thread.State.BLOCKED) {
+            assertTrue(System.nanoTime() < deadline, "点击线程没有在会话锁上等待");
+            Thread.sleep(10);
+        }
+    }
+
+    private InventoryView createView(Player player) {
+        return new InventoryView() {
+            @Override
+            public Inventory getTopInventory() {
+                return topInventory;
+            }
+
+            @Override
+            public Inventory getBottomInventory() {
+                return topInventory;
+            }
+
+            @Override
+            public HumanEntity getPlayer() {
+                return player;
+            }
+
+            @Override
+            public InventoryType getType() {
+                return InventoryType.CHEST;
+            }
+
+            @Override
+            public String getTitle() {
+                return "MagicBlock";
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) return false;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        if (type == double.class) return 0D;
+        if (type == float.class) return 0F;
+        if (type == short.class) return (short) 0;
+        if (type == byte.class) return (byte) 0;
+        if (type == char.class) return (char) 0;
+        return null;
+    }
+}
@@ -0,0 +1,195 @@
+package io.github.syferie.magicblock.storage;
+
+import org.bukkit.Material;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SQLite / H2 存储的公共测试
+ *
+ * 读取不应触发提交，但必须读到尚未提交的写入；提交后重新打开应得到相同结果
+ */
+abstract class EmbeddedDataStorageTest {
+
+    protected static final Logger LOGGER = Logger.getLogger("MagicBlockTest");
+
+    private static final UUID PLAYER = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID OTHER = UUID.fromString("00000000-0000-0000-0000-000000000002");
+
+    @TempDir
+    File tempDir;
+
+    private EmbeddedDataStorage storage;
+
+    /**
+     * 创建指定后端的存储，不调用 initialize
+     */
+    protected abstract EmbeddedDataStorage create(File dataFile);
+
+    @BeforeEach
+    void setUp() {
+        storage = open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        storage.close();
+    }
+
+    private EmbeddedDataStorage open() {
+        EmbeddedDataStorage opened = create(new File(tempDir, "data"));
+        assertTrue(opened.initialize(), "存储初始化失败");
+        return opened;
+    }
+
+    /**
+     * 关闭后重新打开，验证写入已持久化
+     */
+    private void reopen() {
+        storage.close();
+        storage = open();
+    }
+
+    @Test
+    void readsPendingWritesWithoutFlushing() {
+        storage.saveBinding(PLAYER, "a", "STONE", 10, 20);
+
+        Map<String, Object> binding = storage.getBinding(PLAYER, "a");
+        assertNotNull(binding);
+        assertEquals("STONE", binding.get("material"));
+        assertEquals(10, binding.get("uses"));
+        assertEquals(20, binding.get("max_uses"));
+        assertEquals(Collections.singleton("a"), storage.getPlayerBindings(PLAYER).keySet());
+        assertTrue(storage.hasPendingWrites(), "读取不应提交待写入数据");
+
+        assertTrue(storage.flush());
+        assertFalse(storage.hasPendingWrites());
+        reopen();
+        assertEquals(10, storage.getBinding(PLAYER, "a").get("uses"));
+    }
+
+    @Test
+    void pendingUpdateOverlaysCommittedRow() {
+        storage.saveBinding(PLAYER, "a", "STONE", 10, 20);
+        assertTrue(storage.flush());
+
+        storage.updateBinding(PLAYER, "a", "STONE", 3, 20);
+        assertEquals(3, storage.getBinding(PLAYER, "a").get("uses"));
+        assertEquals(3, storage.getPlayerBindings(PLAYER).get("a").get("uses"));
+
+        assertTrue(storage.flush());
+        reopen();
+        assertEquals(3, storage.getBinding(PLAYER, "a").get("uses"));
+    }
+
+    @Test
+    void updateDoesNotCreateMissingRow() {
+        storage.updateBinding(PLAYER, "missing", "STONE", 5, 5);
+        assertNull(storage.getBinding(PLAYER, "missing"));
+        assertTrue(storage.getPlayerBindings(PLAYER).isEmpty());
+
+        assertTrue(storage.flush());
+        assertNull(storage.getBinding(PLAYER, "missing"));
+    }
+
+    @Test
+    void pendingDeleteHidesCommittedRow() {
+        storage.saveBinding(PLAYER, "a", "STONE", 10, 20);
+        assertTrue(storage.flush());
+
+        storage.deleteBinding(PLAYER, "a");
+        assertNull(storage.getBinding(PLAYER, "a"));
+        assertTrue(storage.getPlayerBindings(PLAYER).isEmpty());
+
+        assertTrue(storage.flush());
+        reopen();
+        assertNull(storage.getBinding(PLAYER, "a"));
+    }
+
+    @Test
+    void hiddenBindingsAreExcludedFromPlayerList() {
+        storage.saveBinding(PLAYER, "a", "STONE", 10, 20);
+        storage.saveBinding(PLAYER, "b", "DIRT", 5, 5);
+        assertTrue(storage.flush());
+
+        storage.setBindingHidden(PLAYER, "a", true);
+        assertEquals(Collections.singleton("b"), storage.getPlayerBindings(PLAYER).keySet());
+        // 单个查询仍能找到隐藏的绑定，用于取回
+        assertEquals(true, storage.getBinding(PLAYER, "a").get("hidden"));
+
+        assertTrue(storage.flush());
+        reopen();
+        assertEquals(Collections.singleton("b"), storage.getPlayerBindings(PLAYER).keySet());
+    }
+
+    @Test
+    void bindingsAreScopedToOwner() {
+        storage.saveBinding(PLAYER, "a", "STONE", 10, 20);
+        storage.saveBinding(OTHER, "b", "DIRT", 5, 5);
+
+        assertNull(storage.getBinding(OTHER, "a"));
+        assertEquals(Collections.singleton("b"), storage.getPlayerBindings(OTHER).keySet());
+
+        assertTrue(storage.flush());
+        assertNull(storage.getBinding(OTHER, "a"));
+        assertEquals(Collections.singleton("a"), storage.getPlayerBindings(PLAYER).keySet());
+    }
+
+    @Test
+    void deleteDepletedBindingsIncludesPendingRows() {
+        storage.saveBinding(PLAYER, "committed", "STONE", 0, 20);
+        storage.saveBinding(PLAYER, "alive", "DIRT", 4, 5);
+        assertTrue(storage.flush());
+        storage.saveBinding(PLAYER, "pending", "SAND", 0, 5);
+
+        storage.deleteDepletedBindings(PLAYER);
+        assertEquals(Collections.singleton("alive"), storage.getPlayerBindings(PLAYER).keySet());
+
+        assertTrue(storage.flush());
+        reopen();
+        assertEquals(Collections.singleton("alive"), storage.getPlayerBindings(PLAYER).keySet());
+    }
+
+    @Test
+    void rebindAfterDeleteRestoresVisibleRow() {
+        storage.saveBinding(PLAYER, "a", "STONE", 10, 20);
+        storage.setBindingHidden(PLAYER, "a", true);
+        assertTrue(storage.flush());
+
+        storage.deleteBinding(PLAYER, "a");
+        storage.saveBinding(PLAYER, "a", "DIRT", 7, 7);
+        assertEquals("DIRT", storage.getPlayerBindings(PLAYER).get("a").get("material"));
+
+        assertTrue(storage.flush());
+        reopen();
+        assertEquals("DIRT", storage.getPlayerBindings(PLAYER).get("a").get("material"));
+    }
+
+    @Test
+    void favoritesSurviveFlushAndReopen() {
+        storage.saveFavorites(PLAYER, EnumSet.of(Material.STONE, Material.DIRT));
+        assertTrue(storage.flush());
+
+        storage.updateFavorites(Collections.singletonMap(PLAYER,
+            Map.of(Material.DIRT, false, Material.SAND, true)));
+        Set<Material> expected = EnumSet.of(Material.STONE, Material.SAND);
+        assertEquals(expected, storage.loadFavorites(PLAYER));
+
+        assertTrue(storage.flush());
+        reopen();
+        assertEquals(expected, storage.loadFavorites(PLAYER));
+        assertTrue(storage.loadFavorites(OTHER).isEmpty());
+    }
+}
@@ -0,0 +1,11 @@
+package io.github.syferie.magicblock.storage;
+
+import java.io.File;
+
+class H2DataStorageTest extends EmbeddedDataStorageTest {
+
+    @Override
+    protected EmbeddedDataStorage create(File dataFile) {
+        return new H2DataStorage(LOGGER, message -> { }, dataFile, "magicblock_");
+    }
+}
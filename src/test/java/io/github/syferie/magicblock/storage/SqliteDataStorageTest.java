@@ -0,0 +1,73 @@
+package io.github.syferie.magicblock.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqliteDataStorageTest extends EmbeddedDataStorageTest {
+
+    private static final UUID PLAYER = UUID.fromString("00000000-0000-0000-0000-000000000003");
+
+    @TempDir
+    File failingDir;
+
+    @Override
+    protected EmbeddedDataStorage create(File dataFile) {
+        return new SqliteDataStorage(LOGGER, message -> { }, dataFile, "magicblock_");
+    }
+
+    /**
+     * 提交事务期间其他线程的写入不被阻塞；提交失败后换出的数据合并回队列，且不覆盖事务期间的新写入
+     */
+    @Test
+    void failedCommitKeepsRowsWithoutOverwritingNewerWrites() throws Exception {
+        boolean[] fail = {false};
+        EmbeddedDataStorage storage = new SqliteDataStorage(LOGGER, message -> { },
+                new File(failingDir, "data"), "magicblock_") {
+            @Override
+            protected String getUpsertBindingSql() {
+                if (!fail[0]) {
+                    return super.getUpsertBindingSql();
+                }
+                // 事务进行中，从另一个线程写入
+                CompletableFuture.runAsync(() -> {
+                    updateBinding(PLAYER, "a", "STONE", 5, 20);
+                    saveBinding(PLAYER, "c", "SAND", 1, 1);
+                }).orTimeout(5, TimeUnit.SECONDS).join();
+                return "INSERT INTO missing_table VALUES (?, ?, ?, ?, ?)";
+            }
+        };
+        assertTrue(storage.initialize());
+        try {
+            storage.saveBinding(PLAYER, "a", "STONE", 10, 20);
+            storage.saveBinding(PLAYER, "b", "DIRT", 3, 3);
+            storage.setBindingHidden(PLAYER, "b", true);
+
+            fail[0] = true;
+            assertFalse(storage.flush());
+            fail[0] = false;
+
+            assertTrue(storage.hasPendingWrites());
+            Map<String, Object> a = storage.getBinding(PLAYER, "a");
+            assertNotNull(a, "失败的插入应保留");
+            assertEquals(5, a.get("uses"), "事务期间的新写入应优先");
+            assertEquals(true, storage.getBinding(PLAYER, "b").get("hidden"));
+            assertNotNull(storage.getBinding(PLAYER, "c"));
+
+            assertTrue(storage.flush());
+            assertFalse(storage.hasPendingWrites());
+            assertEquals(5, storage.getBinding(PLAYER, "a").get("uses"));
+            assertEquals(true, storage.getBinding(PLAYER, "b").get("hidden"));
+            assertEquals(1, storage.getBinding(PLAYER, "c").get("uses"));
+        } finally {
+            storage.close();
+        }
+    }
+}